@@ -36,12 +36,32 @@ public class AggregateCounter {
 	private final AggregateCounterResolution resolution;
 
 	public AggregateCounter(String name, Interval interval, long[] counts, AggregateCounterResolution resolution) {
+		this(name, interval, counts, resolution, true);
+	}
+
+	private AggregateCounter(String name, Interval interval, long[] counts, AggregateCounterResolution resolution,
+			boolean copyCounts) {
 		this.name = name;
 		this.interval = interval;
-		this.counts = counts.clone();
+		this.counts = copyCounts ? counts.clone() : counts;
 		this.resolution = resolution;
 	}
 
+	/**
+	 * Create a counter that takes ownership of the given array instead of copying it, as the public constructor does.
+	 * Callers must not modify the array afterwards, and should only use this with arrays they have just filled.
+	 *
+	 * @param name the name of the counter
+	 * @param interval the interval covered by the counts
+	 * @param counts the counts, which the counter now owns
+	 * @param resolution the resolution of the counts
+	 * @return the aggregate counter
+	 */
+	public static AggregateCounter ofOwnedCounts(String name, Interval interval, long[] counts,
+			AggregateCounterResolution resolution) {
+		return new AggregateCounter(name, interval, counts, resolution, false);
+	}
+
 	/**
 	 * @return the total number of counts in the interval.
 	 */
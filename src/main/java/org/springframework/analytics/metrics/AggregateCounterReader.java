@@ -49,6 +49,16 @@ public interface AggregateCounterReader {
 	 */
 	AggregateCounter getCounts(String name, Interval interval, AggregateCounterResolution resolution);
 
+	/**
+	 * Query function to retrieve the counts of several counters for the same interval and resolution at once.
+	 *
+	 * @param names the counters to query
+	 * @param interval the time interval to return data for. Includes start and end.
+	 * @param resolution the resolution at which the data should be returned (minute, hour, day, month)
+	 * @return the counts of each counter, in the order of {@code names}
+	 */
+	List<AggregateCounter> getCounts(List<String> names, Interval interval, AggregateCounterResolution resolution);
+
 	/**
 	 * Queries by requesting a number of points, ending on the given date (inclusive).
 	 * The date may be null to use the current time, thus returning the last nCounts point
@@ -69,9 +79,32 @@ public interface AggregateCounterReader {
 	 */
 	AggregateCounter findOne(String name);
 
+	/**
+	 * Tell whether a counter exists, without reading any of its counts.
+	 * @param name the counter to look for
+	 * @return whether the counter exists
+	 */
+	boolean exists(String name);
+
 	/**
 	 * List the names of all available aggregate counters.
 	 * @return the names of all available aggregate counters.
 	 */
 	List<String> list();
+
+	/**
+	 * List the names of the counters that start with a given prefix, in lexicographic order.
+	 * @param prefix the prefix of the names to list, or {@literal null} to list all counters
+	 * @param offset the index of the first name to return
+	 * @param limit the maximum number of names to return
+	 * @return the requested page of names
+	 */
+	List<String> list(String prefix, long offset, int limit);
+
+	/**
+	 * Return the number of counters whose name starts with a given prefix.
+	 * @param prefix the prefix of the names to count, or {@literal null} to count all counters
+	 * @return the number of matching counters
+	 */
+	long count(String prefix);
 }
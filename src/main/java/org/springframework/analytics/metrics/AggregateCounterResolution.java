@@ -16,8 +16,10 @@
 package org.springframework.analytics.metrics;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
 import org.joda.time.Days;
 import org.joda.time.Hours;
+import org.joda.time.Interval;
 import org.joda.time.Minutes;
 import org.joda.time.Months;
 import org.joda.time.ReadablePeriod;
@@ -55,4 +57,78 @@ public enum AggregateCounterResolution {
 		}
 		return start;
 	}
+
+	/**
+	 * Return the number of buckets of this resolution that an interval spans, counting the partial buckets at both
+	 * ends. Minutes and hours have a fixed length and are counted out of milliseconds, so that intervals of any
+	 * length can be measured at those resolutions.
+	 *
+	 * @param interval the interval to measure
+	 * @return the number of buckets, at least 1, or {@link Long#MAX_VALUE} if there are too many to count
+	 */
+	public long bucketsIn(Interval interval) {
+		DateTime start = roundFloor(interval.getStart());
+		DateTime end = roundFloor(interval.getEnd());
+		try {
+			switch (this) {
+			case minute:
+				return Math.subtractExact(end.getMillis(), start.getMillis()) / DateTimeConstants.MILLIS_PER_MINUTE + 1L;
+			case hour:
+				return Math.subtractExact(end.getMillis(), start.getMillis()) / DateTimeConstants.MILLIS_PER_HOUR + 1L;
+			case day:
+				return Days.daysBetween(start, end).getDays() + 1L;
+			case month:
+				return Months.monthsBetween(start, end).getMonths() + 1L;
+			case year:
+				return Years.yearsBetween(start, end).getYears() + 1L;
+			default:
+				throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + this);
+			}
+		}
+		catch (ArithmeticException e) {
+			// More buckets than an int (or a long, for minutes and hours) can hold
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Return the finest resolution, not finer than this one, at which an interval spans at most a given number of
+	 * buckets. Querying at that resolution reads and returns fewer buckets than querying at a finer one.
+	 *
+	 * @param interval the interval to query
+	 * @param maxPoints the maximum number of buckets wanted
+	 * @return this resolution or a coarser one, or {@link #year} if even years are too many
+	 */
+	public AggregateCounterResolution coarsen(Interval interval, int maxPoints) {
+		AggregateCounterResolution[] resolutions = values();
+		for (int i = ordinal(); i < resolutions.length; i++) {
+			if (resolutions[i].bucketsIn(interval) <= maxPoints) {
+				return resolutions[i];
+			}
+		}
+		return year;
+	}
+
+	/**
+	 * Return the start of the period of this resolution that contains a supplied date.
+	 *
+	 * @param dt the date to round
+	 * @return the start of the bucket {@code dt} belongs to
+	 */
+	public DateTime roundFloor(DateTime dt) {
+		switch (this) {
+		case minute:
+			return dt.minuteOfHour().roundFloorCopy();
+		case hour:
+			return dt.hourOfDay().roundFloorCopy();
+		case day:
+			return dt.dayOfMonth().roundFloorCopy();
+		case month:
+			return dt.monthOfYear().roundFloorCopy();
+		case year:
+			return dt.year().roundFloorCopy();
+		default:
+			throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + this);
+		}
+	}
 }
@@ -15,6 +15,8 @@
  */
 package org.springframework.analytics.metrics;
 
+import java.util.Map;
+
 import org.joda.time.DateTime;
 
 /**
@@ -33,6 +35,19 @@ public interface AggregateCounterWriter {
 	 */
 	long increment(String name, long amount, DateTime dateTime);
 
+	/**
+	 * Increments several counters at once, by specific amounts, for the given instant.
+	 * @param amounts the amounts to increment, by counter name
+	 * @param dateTime the time of the events
+	 */
+	void increment(Map<String, Long> amounts, DateTime dateTime);
+
+	/**
+	 * Increments several counters at once, by specific amounts, for several instants.
+	 * @param amounts the amounts to increment, by instant then by counter name
+	 */
+	void increment(Map<DateTime, Map<String, Long>> amounts);
+
 	/**
 	 * Reset the given AggregateCounter.
 	 *
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.Duration;
+
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link CounterService} and {@link GaugeService} that buffers writes in memory and periodically flushes them to a
+ * {@link MetricRepository}.
+ *
+ * <p>
+ * Increments and decrements of a counter only update a {@link LongAdder}, and are coalesced into a single delta per
+ * counter at flush time. Gauges are coalesced too, only their last submitted value being written. Each flush writes
+ * all pending deltas and gauges as one {@link MetricRepository#write(java.util.Collection, java.util.Collection)
+ * batch}. Gauges of a batch that fails are kept for the next flush, and so are deltas unless
+ * {@link #setRetryFailedDeltas(boolean) configured otherwise}.
+ * </p>
+ *
+ * <p>
+ * Delivery of deltas is thus at-least-once: a batch that failed after the repository applied it (<i>e.g.</i> when its
+ * reply was lost) is counted again by the next flush. Disable retries to get at-most-once delivery instead.
+ * </p>
+ *
+ * <p>
+ * Flushes are scheduled once this service is {@link #start() started}, which happens automatically when it is
+ * declared as a bean. Stopping it, <i>e.g.</i> when the application context is closed, performs a final flush.
+ * </p>
+ */
+public class BufferedCounterService implements CounterService, GaugeService, SmartLifecycle {
+
+	private static final Log logger = LogFactory.getLog(BufferedCounterService.class);
+
+	private final MetricRepository repository;
+
+	private final ConcurrentMap<String, LongAdder> deltas = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Metric<Double>> gauges = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, String> counterNames = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, String> gaugeNames = new ConcurrentHashMap<>();
+
+	private Duration flushInterval = Duration.standardSeconds(5);
+
+	private volatile boolean retryFailedDeltas = true;
+
+	private ScheduledExecutorService executor;
+
+	private ScheduledFuture<?> flushTask;
+
+	/**
+	 * Create a service that flushes buffered writes to the given repository.
+	 *
+	 * @param repository the repository to write to
+	 */
+	public BufferedCounterService(MetricRepository repository) {
+		Assert.notNull(repository, "repository must not be null");
+		this.repository = repository;
+	}
+
+	/**
+	 * Set the time between two flushes. Defaults to 5 seconds. Only taken into account when this service is started.
+	 *
+	 * @param flushInterval the time between two flushes
+	 */
+	public void setFlushInterval(Duration flushInterval) {
+		Assert.isTrue(flushInterval != null && flushInterval.getMillis() > 0, "flushInterval must be positive");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Set whether the deltas of a batch that failed to be written are kept for the next flush, at the risk of counting
+	 * them twice if the repository did apply them. Defaults to {@literal true}.
+	 *
+	 * @param retryFailedDeltas whether to write failed deltas again
+	 */
+	public void setRetryFailedDeltas(boolean retryFailedDeltas) {
+		this.retryFailedDeltas = retryFailedDeltas;
+	}
+
+	@Override
+	public void increment(String metricName) {
+		adderFor(metricName).increment();
+	}
+
+	@Override
+	public void decrement(String metricName) {
+		adderFor(metricName).decrement();
+	}
+
+	/**
+	 * Reset the specified counter right away, discarding its buffered increments.
+	 *
+	 * @param metricName the name of the counter
+	 */
+	@Override
+	public void reset(String metricName) {
+		String name = wrap(metricName, "counter.", this.counterNames);
+		this.deltas.remove(name);
+		this.repository.reset(name);
+	}
+
+	@Override
+	public void submit(String metricName, double value) {
+		String name = wrap(metricName, "gauge.", this.gaugeNames);
+		this.gauges.put(name, new Metric<Double>(name, value));
+	}
+
+	/**
+	 * Write all buffered deltas and gauges to the repository.
+	 */
+	public synchronized void flush() {
+		List<Delta<Long>> pendingDeltas = new ArrayList<>();
+		for (Map.Entry<String, LongAdder> entry : this.deltas.entrySet()) {
+			long sum = entry.getValue().sum();
+			if (sum != 0) {
+				// Subtract what we flush rather than resetting, so that concurrent updates are not lost
+				entry.getValue().add(-sum);
+				pendingDeltas.add(new Delta<Long>(entry.getKey(), sum));
+			}
+		}
+		List<Metric<Double>> pendingGauges = new ArrayList<>();
+		for (String name : this.gauges.keySet()) {
+			Metric<Double> gauge = this.gauges.remove(name);
+			if (gauge != null) {
+				pendingGauges.add(gauge);
+			}
+		}
+
+		if (pendingDeltas.isEmpty() && pendingGauges.isEmpty()) {
+			return;
+		}
+		try {
+			this.repository.write(pendingDeltas, pendingGauges);
+		}
+		catch (RuntimeException e) {
+			if (this.retryFailedDeltas) {
+				logger.warn("Could not flush " + pendingDeltas.size() + " counters and " + pendingGauges.size()
+						+ " gauges, will retry on next flush", e);
+				for (Delta<Long> delta : pendingDeltas) {
+					this.deltas.computeIfAbsent(delta.getName(), n -> new LongAdder()).add(delta.getValue());
+				}
+			}
+			else {
+				logger.warn("Could not flush " + pendingDeltas.size() + " counters, which are dropped, and "
+						+ pendingGauges.size() + " gauges, will retry on next flush", e);
+			}
+			for (Metric<Double> gauge : pendingGauges) {
+				this.gauges.putIfAbsent(gauge.getName(), gauge);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.executor == null) {
+			this.executor = Executors.newSingleThreadScheduledExecutor(
+					new CustomizableThreadFactory("buffered-counter-service-"));
+			long millis = this.flushInterval.getMillis();
+			this.flushTask = this.executor.scheduleWithFixedDelay(this::flushQuietly, millis, millis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void stop() {
+		synchronized (this) {
+			if (this.executor == null) {
+				return;
+			}
+			this.flushTask.cancel(false);
+			this.executor.shutdown();
+			this.executor = null;
+			this.flushTask = null;
+		}
+		flush();
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		try {
+			stop();
+		}
+		finally {
+			callback.run();
+		}
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return this.executor != null;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	@Override
+	public int getPhase() {
+		return 0;
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch (RuntimeException e) {
+			logger.warn("Could not flush buffered metrics", e);
+		}
+	}
+
+	private LongAdder adderFor(String metricName) {
+		return this.deltas.computeIfAbsent(wrap(metricName, "counter.", this.counterNames), n -> new LongAdder());
+	}
+
+	private static String wrap(String metricName, String prefix, ConcurrentMap<String, String> names) {
+		String cached = names.get(metricName);
+		if (cached != null) {
+			return cached;
+		}
+		if (metricName.startsWith("counter.") || metricName.startsWith("meter.")
+				|| metricName.startsWith("gauge.")) {
+			return metricName;
+		}
+		String name = prefix + metricName;
+		names.put(metricName, name);
+		return name;
+	}
+
+}
@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-package org.springframework.analytics.test.support;
+package org.springframework.analytics.metrics;
 
 /**
  * A service that can be used to increment, decrement and reset a named counter value.
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import org.springframework.util.Assert;
+
+/**
+ * Describes which fields of a FieldValueCounter can be discarded: fields whose score is below a minimum, and/or the
+ * lowest scoring fields in excess of a maximum cardinality. Scores are compared after decay, if any.
+ */
+public final class FieldValueCounterPruningPolicy {
+
+	/**
+	 * A policy that never prunes anything.
+	 */
+	public static final FieldValueCounterPruningPolicy NONE = new FieldValueCounterPruningPolicy(Integer.MAX_VALUE,
+			Double.NEGATIVE_INFINITY);
+
+	private final int maxCardinality;
+
+	private final double minScore;
+
+	/**
+	 * Create a policy that bounds both the number of fields and their minimum score.
+	 *
+	 * @param maxCardinality the maximum number of fields to keep
+	 * @param minScore fields with a score strictly lower than this are discarded
+	 */
+	public FieldValueCounterPruningPolicy(int maxCardinality, double minScore) {
+		Assert.isTrue(maxCardinality >= 0, "maxCardinality must not be negative");
+		Assert.isTrue(!Double.isNaN(minScore), "minScore must be a number");
+		this.maxCardinality = maxCardinality;
+		this.minScore = minScore;
+	}
+
+	/**
+	 * Create a policy that keeps only the {@code maxCardinality} highest scoring fields.
+	 *
+	 * @param maxCardinality the maximum number of fields to keep
+	 * @return the policy
+	 */
+	public static FieldValueCounterPruningPolicy maxCardinality(int maxCardinality) {
+		return new FieldValueCounterPruningPolicy(maxCardinality, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Create a policy that discards fields whose score is strictly lower than {@code minScore}.
+	 *
+	 * @param minScore the minimum score of fields to keep
+	 * @return the policy
+	 */
+	public static FieldValueCounterPruningPolicy minScore(double minScore) {
+		return new FieldValueCounterPruningPolicy(Integer.MAX_VALUE, minScore);
+	}
+
+	public int getMaxCardinality() {
+		return maxCardinality;
+	}
+
+	public double getMinScore() {
+		return minScore;
+	}
+
+	public boolean hasMaxCardinality() {
+		return maxCardinality != Integer.MAX_VALUE;
+	}
+
+	public boolean hasMinScore() {
+		return minScore != Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * @return whether this policy may discard fields at all
+	 */
+	public boolean isPruning() {
+		return hasMaxCardinality() || hasMinScore();
+	}
+
+	@Override
+	public String toString() {
+		return "FieldValueCounterPruningPolicy [maxCardinality=" + maxCardinality + ", minScore=" + minScore + "]";
+	}
+
+}
@@ -17,6 +17,8 @@
 package org.springframework.analytics.metrics;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Contains operations to find FieldValueCounters.
@@ -32,9 +34,81 @@ public interface FieldValueCounterReader {
 	 */
 	FieldValueCounter findOne(String name);
 
+	/**
+	 * Retrieve the score of a single field of a counter, without retrieving the whole counter.
+	 * @param name the name of the counter
+	 * @param fieldName the name of the field
+	 * @return the score of the field, or {@literal null} if the counter or the field doesn't exist
+	 */
+	Double findScore(String name, String fieldName);
+
+	/**
+	 * Retrieve the scores of some fields of a counter, without retrieving the whole counter.
+	 * @param name the name of the counter
+	 * @param fieldNames the names of the fields
+	 * @return the scores of the requested fields that exist, by field name
+	 */
+	Map<String, Double> findScores(String name, Collection<String> fieldNames);
+
+	/**
+	 * Retrieve a page of the fields of a counter, ranked by decreasing score.
+	 * @param name the name of the counter
+	 * @param offset the rank of the first field to retrieve, starting at 0
+	 * @param limit the maximum number of fields to retrieve
+	 * @return the counter, restricted to the fields ranked {@code offset} to {@code offset + limit - 1} and iterating
+	 * over them by decreasing score (empty if the counter doesn't exist)
+	 */
+	FieldValueCounter findRange(String name, long offset, int limit);
+
+	/**
+	 * Retrieve the rank of a field of a counter, by decreasing score.
+	 * @param name the name of the counter
+	 * @param fieldName the name of the field
+	 * @return the rank of the field, starting at 0, or {@literal null} if the counter or the field doesn't exist
+	 */
+	Long findRank(String name, String fieldName);
+
+	/**
+	 * Retrieve both the score and the rank of a field of a counter, consistently with one another.
+	 * @param name the name of the counter
+	 * @param fieldName the name of the field
+	 * @return the score and rank of the field, or {@literal null} if the counter or the field doesn't exist
+	 */
+	RankedFieldValue findRankAndScore(String name, String fieldName);
+
+	/**
+	 * Return the number of fields of a counter.
+	 * @param name the name of the counter
+	 * @return the number of fields, 0 if the counter doesn't exist
+	 */
+	long countFields(String name);
+
+	/**
+	 * Tell whether a counter exists, without reading any of its fields.
+	 * @param name the name of the counter
+	 * @return whether the counter exists
+	 */
+	boolean exists(String name);
+
 	/**
 	 * List the names of all available counters.
 	 * @return the names of all available counters.
 	 */
 	Collection<String> list();
+
+	/**
+	 * List the names of the counters that start with a given prefix, in lexicographic order.
+	 * @param prefix the prefix of the names to list, or {@literal null} to list all counters
+	 * @param offset the index of the first name to return
+	 * @param limit the maximum number of names to return
+	 * @return the requested page of names
+	 */
+	List<String> list(String prefix, long offset, int limit);
+
+	/**
+	 * Return the number of counters whose name starts with a given prefix.
+	 * @param prefix the prefix of the names to count, or {@literal null} to count all counters
+	 * @return the number of matching counters
+	 */
+	long count(String prefix);
 }
@@ -15,6 +15,8 @@
  */
 package org.springframework.analytics.metrics;
 
+import java.util.Map;
+
 /**
  * Contains operations to modify and reset FieldValueCounter instances.
  * 
@@ -35,6 +37,23 @@ public interface FieldValueCounterWriter {
 	 */
 	void increment(String name, String fieldName, double score);
 
+	/**
+	 * Increment several fields of a FieldValueCounter at once, creating missing counters.
+	 *
+	 * @param name the FieldValueCounter name
+	 * @param scores the incremental value of each field
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void increment(String name, Map<String, Double> scores);
+
+	/**
+	 * Increment the fields of several FieldValueCounters at once, creating missing counters.
+	 *
+	 * @param scores the incremental value of each field, keyed by FieldValueCounter name
+	 * @throws IllegalArgumentException in case one of the given names is null
+	 */
+	void increment(Map<String, Map<String, Double>> scores);
+
 	/**
 	 * Decrement the FieldValueCounter for a given field name by score, creating missing counters.
 	 * 
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import org.joda.time.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Exponential decay of scores, implemented with forward decay.
+ *
+ * <p>
+ * Rather than periodically decaying every stored score, an increment made at time {@code t} is stored scaled up by
+ * {@code exp(lambda * (t - landmark))}, where the landmark is a fixed point in time. Stored scores thus never need to
+ * be rewritten and keep ranking fields correctly. The decayed value as of time {@code now} is recovered by scaling the
+ * stored score down by {@code exp(lambda * (now - landmark))}.
+ * </p>
+ *
+ * <p>
+ * As weights grow exponentially, the stored scores of a counter have to be renormalized (scaled down and the landmark
+ * moved forward) once in a while, which is what {@link #isRenormalizationNeeded(long, long)} tells.
+ * </p>
+ */
+public final class ForwardDecay {
+
+	/**
+	 * Largest exponent that weights are allowed to reach before a renormalization is triggered. Keeps stored scores
+	 * well within the range of doubles.
+	 */
+	public static final double MAX_EXPONENT = 100d;
+
+	private final Duration halfLife;
+
+	private final double lambda;
+
+	/**
+	 * Create a decay under which scores lose half of their value every {@code halfLife}.
+	 *
+	 * @param halfLife the half-life of scores
+	 */
+	public ForwardDecay(Duration halfLife) {
+		Assert.notNull(halfLife, "halfLife must not be null");
+		Assert.isTrue(halfLife.getMillis() > 0, "halfLife must be positive");
+		this.halfLife = halfLife;
+		this.lambda = Math.log(2) / halfLife.getMillis();
+	}
+
+	public Duration getHalfLife() {
+		return halfLife;
+	}
+
+	/**
+	 * @return the decay rate, per millisecond
+	 */
+	public double getLambda() {
+		return lambda;
+	}
+
+	/**
+	 * Return the factor by which an increment made at {@code timestamp} should be multiplied before being stored.
+	 *
+	 * @param timestamp the time of the increment, in milliseconds
+	 * @param landmark the landmark of the counter, in milliseconds
+	 * @return the weight to apply
+	 */
+	public double weight(long timestamp, long landmark) {
+		return Math.exp(lambda * (timestamp - landmark));
+	}
+
+	/**
+	 * Return the factor by which stored scores should be multiplied to get their decayed value as of {@code now}.
+	 *
+	 * @param now the current time, in milliseconds
+	 * @param landmark the landmark of the counter, in milliseconds
+	 * @return the factor to apply
+	 */
+	public double decayFactor(long now, long landmark) {
+		return Math.exp(-lambda * (now - landmark));
+	}
+
+	/**
+	 * Tell whether stored scores should be renormalized before storing an increment made at {@code timestamp}.
+	 *
+	 * @param timestamp the time of the increment, in milliseconds
+	 * @param landmark the landmark of the counter, in milliseconds
+	 * @return whether weights have grown too large
+	 */
+	public boolean isRenormalizationNeeded(long timestamp, long landmark) {
+		return lambda * (timestamp - landmark) > MAX_EXPONENT;
+	}
+
+	@Override
+	public String toString() {
+		return "ForwardDecay [halfLife=" + halfLife + "]";
+	}
+
+}
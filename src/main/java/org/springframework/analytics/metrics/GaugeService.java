@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics;
+
+/**
+ * A service that can be used to submit a named gauge value.
+ */
+public interface GaugeService {
+
+	/**
+	 * Set the specified gauge value.
+	 * @param metricName the name of the gauge
+	 * @param value the value of the gauge
+	 */
+	void submit(String metricName, double value);
+
+}
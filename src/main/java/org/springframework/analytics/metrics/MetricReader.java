@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics;
+
+import java.util.List;
+
+import org.springframework.analytics.rest.domain.Metric;
+
+/**
+ * Contains operations to find simple metrics, such as counters and gauges.
+ *
+ * <p>
+ * The type of a metric is the part of its name before the first dot, <i>e.g.</i> {@code counter} for
+ * {@code counter.foo}.
+ * </p>
+ */
+public interface MetricReader {
+
+	/**
+	 * Retrieve a single metric by name.
+	 * @param metricName the name of the metric
+	 * @return the metric, or {@literal null} if it doesn't exist
+	 */
+	Metric<?> findOne(String metricName);
+
+	/**
+	 * Retrieve all metrics, in an order that depends on the implementation.
+	 * @return all metrics
+	 */
+	Iterable<Metric<?>> findAll();
+
+	/**
+	 * Retrieve a page of the metrics of a given type, by increasing name.
+	 * @param type the type of metrics to return, <i>e.g.</i> {@code counter}
+	 * @param offset the index of the first metric to return
+	 * @param limit the maximum number of metrics to return
+	 * @return the requested metrics
+	 */
+	List<Metric<?>> findAll(String type, long offset, int limit);
+
+	/**
+	 * Return the number of metrics.
+	 * @return the number of metrics
+	 */
+	long count();
+
+	/**
+	 * Return the number of metrics of a given type.
+	 * @param type the type of metrics to count, <i>e.g.</i> {@code counter}
+	 * @return the number of metrics of that type
+	 */
+	long count(String type);
+
+}
@@ -67,6 +67,22 @@ public final class MetricUtils {
 		return result;
 	}
 
+	/**
+	 * Return the smallest string that is greater than all the strings starting with a given prefix, which is the
+	 * exclusive upper bound of a range scan over such strings.
+	 * @param prefix the prefix
+	 * @return the end of the prefix range, or {@literal null} if the range is unbounded
+	 */
+	public static String prefixEnd(String prefix) {
+		for (int i = prefix.length() - 1; i >= 0; i--) {
+			char c = prefix.charAt(i);
+			if (c != Character.MAX_VALUE) {
+				return prefix.substring(0, i) + (char) (c + 1);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Return the sum of values in the array
 	 * @param array the array to sum
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import java.util.Collection;
+
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+
+/**
+ * Contains operations to modify and reset simple metrics, such as counters and gauges.
+ */
+public interface MetricWriter {
+
+	/**
+	 * Increment the value of a metric, creating it if needed.
+	 * @param delta the name of the metric, the amount to add to it and the timestamp of the update
+	 */
+	void increment(Delta<?> delta);
+
+	/**
+	 * Apply several deltas at once.
+	 * @param deltas the deltas to apply
+	 */
+	void increment(Collection<? extends Delta<?>> deltas);
+
+	/**
+	 * Set the value of a metric, creating it if needed.
+	 * @param value the name, the value and the timestamp of the metric
+	 */
+	void set(Metric<?> value);
+
+	/**
+	 * Set several metrics at once.
+	 * @param values the metrics to set
+	 */
+	void set(Collection<? extends Metric<?>> values);
+
+	/**
+	 * Apply several deltas and set several metrics at once, as a single batch.
+	 * @param deltas the deltas to apply
+	 * @param values the metrics to set
+	 */
+	void write(Collection<? extends Delta<?>> deltas, Collection<? extends Metric<?>> values);
+
+	/**
+	 * Reset (remove) the given metric.
+	 * @param metricName the name of the metric
+	 */
+	void reset(String metricName);
+
+}
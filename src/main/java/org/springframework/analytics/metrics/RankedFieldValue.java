@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import org.springframework.util.Assert;
+
+/**
+ * The score of a single field of a {@link FieldValueCounter}, along with its rank by decreasing score, both read at
+ * the same point in time.
+ */
+public final class RankedFieldValue {
+
+	private final String field;
+
+	private final double value;
+
+	private final long rank;
+
+	public RankedFieldValue(String field, double value, long rank) {
+		Assert.notNull(field, "field must not be null");
+		this.field = field;
+		this.value = value;
+		this.rank = rank;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the rank of the field, starting at 0
+	 */
+	public long getRank() {
+		return rank;
+	}
+
+	@Override
+	public String toString() {
+		return "RankedFieldValue [field=" + field + ", value=" + value + ", rank=" + rank + "]";
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import org.joda.time.Interval;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non blocking counterpart of {@link AggregateCounterReader}, for use with reactive web stacks.
+ *
+ * @see AggregateCounterReader
+ */
+public interface ReactiveAggregateCounterReader {
+
+	/**
+	 * Tell whether a counter exists, without reading any of its counts.
+	 * @param name the counter to look for
+	 * @return whether the counter exists
+	 */
+	Mono<Boolean> exists(String name);
+
+	/**
+	 * Retrieve the counts of a counter for a specific interval, at the given resolution.
+	 * @param name the counter to query
+	 * @param interval the time interval to return data for. Includes start and end.
+	 * @param resolution the resolution at which the data should be returned (minute, hour, day, month)
+	 * @return an object containing an indexed array of the aggregate counts for the given query.
+	 */
+	Mono<AggregateCounter> getCounts(String name, Interval interval, AggregateCounterResolution resolution);
+
+	/**
+	 * List the names of the counters that start with a given prefix, in lexicographic order.
+	 * @param prefix the prefix of the names to list, or {@literal null} to list all counters
+	 * @param offset the index of the first name to return
+	 * @param limit the maximum number of names to return
+	 * @return the requested page of names
+	 */
+	Flux<String> list(String prefix, long offset, int limit);
+
+	/**
+	 * Return the number of counters whose name starts with a given prefix.
+	 * @param prefix the prefix of the names to count, or {@literal null} to count all counters
+	 * @return the number of matching counters
+	 */
+	Mono<Long> count(String prefix);
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non blocking counterpart of {@link FieldValueCounterReader}, for use with reactive web stacks.
+ *
+ * @see FieldValueCounterReader
+ */
+public interface ReactiveFieldValueCounterReader {
+
+	/**
+	 * Retrieve a single counter by name.
+	 * @param name the name of the counter
+	 * @return the counter, or an empty {@link Mono} if it doesn't exist
+	 */
+	Mono<FieldValueCounter> findOne(String name);
+
+	/**
+	 * Retrieve the score of a single field of a counter, without retrieving the whole counter.
+	 * @param name the name of the counter
+	 * @param fieldName the name of the field
+	 * @return the score of the field, or an empty {@link Mono} if the counter or the field doesn't exist
+	 */
+	Mono<Double> findScore(String name, String fieldName);
+
+	/**
+	 * Retrieve the scores of some fields of a counter, without retrieving the whole counter.
+	 * @param name the name of the counter
+	 * @param fieldNames the names of the fields
+	 * @return the scores of the requested fields that exist, by field name
+	 */
+	Mono<Map<String, Double>> findScores(String name, Collection<String> fieldNames);
+
+	/**
+	 * Retrieve a page of the fields of a counter, ranked by decreasing score.
+	 * @param name the name of the counter
+	 * @param offset the rank of the first field to retrieve, starting at 0
+	 * @param limit the maximum number of fields to retrieve
+	 * @return the counter, restricted to the fields ranked {@code offset} to {@code offset + limit - 1} and iterating
+	 * over them by decreasing score (empty if the counter doesn't exist)
+	 */
+	Mono<FieldValueCounter> findRange(String name, long offset, int limit);
+
+	/**
+	 * Retrieve the rank of a field of a counter, by decreasing score.
+	 * @param name the name of the counter
+	 * @param fieldName the name of the field
+	 * @return the rank of the field, starting at 0, or an empty {@link Mono} if the counter or the field doesn't
+	 * exist
+	 */
+	Mono<Long> findRank(String name, String fieldName);
+
+	/**
+	 * Retrieve both the score and the rank of a field of a counter, consistently with one another.
+	 * @param name the name of the counter
+	 * @param fieldName the name of the field
+	 * @return the score and rank of the field, or an empty {@link Mono} if the counter or the field doesn't exist
+	 */
+	Mono<RankedFieldValue> findRankAndScore(String name, String fieldName);
+
+	/**
+	 * Return the number of fields of a counter.
+	 * @param name the name of the counter
+	 * @return the number of fields, 0 if the counter doesn't exist
+	 */
+	Mono<Long> countFields(String name);
+
+	/**
+	 * Tell whether a counter exists, without reading any of its fields.
+	 * @param name the name of the counter
+	 * @return whether the counter exists
+	 */
+	Mono<Boolean> exists(String name);
+
+	/**
+	 * List the names of the counters that start with a given prefix, in lexicographic order.
+	 * @param prefix the prefix of the names to list, or {@literal null} to list all counters
+	 * @param offset the index of the first name to return
+	 * @param limit the maximum number of names to return
+	 * @return the requested page of names
+	 */
+	Flux<String> list(String prefix, long offset, int limit);
+
+	/**
+	 * Return the number of counters whose name starts with a given prefix.
+	 * @param prefix the prefix of the names to count, or {@literal null} to count all counters
+	 * @return the number of matching counters
+	 */
+	Mono<Long> count(String prefix);
+}
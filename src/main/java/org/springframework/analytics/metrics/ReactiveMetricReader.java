@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.analytics.rest.domain.Metric;
+
+/**
+ * Non blocking counterpart of {@link MetricReader}, for use with reactive web stacks.
+ *
+ * @see MetricReader
+ */
+public interface ReactiveMetricReader {
+
+	/**
+	 * Retrieve a single metric by name.
+	 * @param metricName the name of the metric
+	 * @return the metric, or an empty {@link Mono} if it doesn't exist
+	 */
+	Mono<Metric<?>> findOne(String metricName);
+
+	/**
+	 * Retrieve a page of the metrics of a given type, by increasing name.
+	 * @param type the type of metrics to return, <i>e.g.</i> {@code counter}
+	 * @param offset the index of the first metric to return
+	 * @param limit the maximum number of metrics to return
+	 * @return the requested metrics
+	 */
+	Flux<Metric<?>> findAll(String type, long offset, int limit);
+
+	/**
+	 * Return the number of metrics of a given type.
+	 * @param type the type of metrics to count, <i>e.g.</i> {@code counter}
+	 * @return the number of metrics of that type
+	 */
+	Mono<Long> count(String type);
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import java.util.Collection;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * Contains operations to query windowed FieldValueCounters, <i>i.e.</i> counters whose scores are
+ * kept per time bucket so that rankings can be computed over a sliding window.
+ */
+public interface WindowedFieldValueCounterReader {
+
+	/**
+	 * Return the {@code n} fields with the highest score over the last {@code window}, ending now.
+	 *
+	 * @param name the name of the counter
+	 * @param n the maximum number of fields to return
+	 * @param window the length of the window, rounded up to a whole number of buckets
+	 * @return a counter whose values are ordered by decreasing score, possibly empty
+	 */
+	FieldValueCounter findTop(String name, int n, Duration window);
+
+	/**
+	 * Return the {@code n} fields with the highest score over the {@code window} that ends on the given date
+	 * (inclusive).
+	 *
+	 * @param name the name of the counter
+	 * @param n the maximum number of fields to return
+	 * @param window the length of the window, rounded up to a whole number of buckets
+	 * @param end the end of the window. Cannot be null.
+	 * @return a counter whose values are ordered by decreasing score, possibly empty
+	 */
+	FieldValueCounter findTop(String name, int n, Duration window, DateTime end);
+
+	/**
+	 * List the names of all available windowed counters.
+	 * @return the names of all available windowed counters.
+	 */
+	Collection<String> list();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import org.joda.time.DateTime;
+
+/**
+ * Contains operations to modify and reset windowed FieldValueCounters.
+ */
+public interface WindowedFieldValueCounterWriter {
+
+	/**
+	 * Increment the score of a field in the current time bucket, creating missing counters.
+	 *
+	 * @param name the counter name
+	 * @param fieldName the name of the field
+	 * @param score the incremental value
+	 */
+	void increment(String name, String fieldName, double score);
+
+	/**
+	 * Increment the score of a field in the time bucket the given instant falls into, creating missing counters.
+	 * Increments older than the retention period of the repository are ignored.
+	 *
+	 * @param name the counter name
+	 * @param fieldName the name of the field
+	 * @param score the incremental value
+	 * @param dateTime the time of the event
+	 * @throws IllegalArgumentException if the event falls into a bucket that starts in the future
+	 */
+	void increment(String name, String fieldName, double score, DateTime dateTime);
+
+	/**
+	 * Reset the given counter, discarding all of its buckets.
+	 *
+	 * @param name the counter name
+	 */
+	void reset(String name);
+}
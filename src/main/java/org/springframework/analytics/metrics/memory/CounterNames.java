@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+import org.springframework.analytics.metrics.MetricUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Prefix range reads over counters kept in a map sorted by name.
+ */
+final class CounterNames {
+
+	private CounterNames() {
+	}
+
+	/**
+	 * Return the page of names starting with {@code prefix}, if any, that starts at {@code offset}.
+	 */
+	static List<String> list(NavigableMap<String, ?> counters, String prefix, long offset, int limit) {
+		Assert.isTrue(offset >= 0, "offset must not be negative");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		List<String> result = new ArrayList<>(Math.min(limit, 100));
+		long index = 0L;
+		for (String name : withPrefix(counters, prefix).keySet()) {
+			if (result.size() == limit) {
+				break;
+			}
+			if (index++ >= offset) {
+				result.add(name);
+			}
+		}
+		return result;
+	}
+
+	static long count(NavigableMap<String, ?> counters, String prefix) {
+		return withPrefix(counters, prefix).size();
+	}
+
+	private static <V> NavigableMap<String, V> withPrefix(NavigableMap<String, V> counters, String prefix) {
+		if (!StringUtils.hasLength(prefix)) {
+			return counters;
+		}
+		String end = MetricUtils.prefixEnd(prefix);
+		return end == null ? counters.tailMap(prefix, true) : counters.subMap(prefix, true, end, false);
+	}
+
+}
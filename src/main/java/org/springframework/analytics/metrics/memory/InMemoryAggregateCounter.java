@@ -150,7 +150,7 @@ class InMemoryAggregateCounter {
 		else {
 			throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + resolution);
 		}
-		return new AggregateCounter(this.name, interval, counts, resolution);
+		return AggregateCounter.ofOwnedCounts(this.name, interval, counts, resolution);
 	}
 
 	private static List<long[]> accumulateDayCounts(Map<Integer, long[]> fromDayCounts, DateTime start, DateTime end,
@@ -17,10 +17,10 @@
 package org.springframework.analytics.metrics.memory;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -40,7 +40,7 @@ import org.springframework.analytics.metrics.AggregateCounterResolution;
  */
 public class InMemoryAggregateCounterRepository implements AggregateCounterRepository {
 
-	private Map<String, InMemoryAggregateCounter> aggregates = new ConcurrentHashMap<String, InMemoryAggregateCounter>();
+	private NavigableMap<String, InMemoryAggregateCounter> aggregates = new ConcurrentSkipListMap<String, InMemoryAggregateCounter>();
 
 	public long increment(String name) {
 		return increment(name, 1L, DateTime.now());
@@ -57,6 +57,20 @@ public class InMemoryAggregateCounterRepository implements AggregateCounterRepos
 		return counter.increment(amount, dateTime);
 	}
 
+	@Override
+	public void increment(Map<String, Long> amounts, DateTime dateTime) {
+		for (Map.Entry<String, Long> entry : amounts.entrySet()) {
+			increment(entry.getKey(), entry.getValue(), dateTime);
+		}
+	}
+
+	@Override
+	public void increment(Map<DateTime, Map<String, Long>> amounts) {
+		for (Map.Entry<DateTime, Map<String, Long>> entry : amounts.entrySet()) {
+			increment(entry.getValue(), entry.getKey());
+		}
+	}
+
 	@Override
 	public AggregateCounter getCounts(String name, int nCounts, AggregateCounterResolution resolution) {
 		return getOrCreate(name).getCounts(nCounts, new DateTime(), resolution);
@@ -67,17 +81,39 @@ public class InMemoryAggregateCounterRepository implements AggregateCounterRepos
 		return getOrCreate(name).getCounts(interval, resolution);
 	}
 
+	@Override
+	public List<AggregateCounter> getCounts(List<String> names, Interval interval,
+			AggregateCounterResolution resolution) {
+		List<AggregateCounter> result = new ArrayList<>(names.size());
+		for (String name : names) {
+			result.add(getCounts(name, interval, resolution));
+		}
+		return result;
+	}
+
 	@Override
 	public AggregateCounter findOne(String name) {
 		return getCounts(name, 1000, new DateTime(), AggregateCounterResolution.minute);
 	}
 
+	@Override
+	public boolean exists(String name) {
+		return aggregates.containsKey(name);
+	}
+
 	@Override
 	public List<String> list() {
-		List<String> list = new ArrayList<>();
-		list.addAll(aggregates.keySet());
-		Collections.sort(list);
-		return list;
+		return new ArrayList<>(aggregates.keySet());
+	}
+
+	@Override
+	public List<String> list(String prefix, long offset, int limit) {
+		return CounterNames.list(aggregates, prefix, offset, limit);
+	}
+
+	@Override
+	public long count(String prefix) {
+		return CounterNames.count(aggregates, prefix);
 	}
 
 	@Override
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.memory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.FieldValueCounterPruningPolicy;
+import org.springframework.analytics.metrics.ForwardDecay;
+import org.springframework.analytics.metrics.RankedFieldValue;
+
+/**
+ * Holds the scores of a field value counter kept in memory.
+ *
+ * <p>
+ * When a {@link ForwardDecay} is used, stored scores are weighted relative to the landmark of the counter and only
+ * scaled back to their decayed value when read.
+ * </p>
+ *
+ * <p>
+ * Fields ranked by decreasing score are kept in a sorted view that is built lazily on the first ranked read following
+ * a write, so that paging through a counter that is not being written to doesn't sort it over and over again.
+ * </p>
+ */
+class InMemoryFieldValueCounter {
+
+	/**
+	 * Orders fields like a redis sorted set read in reverse: by decreasing score, then by decreasing name.
+	 */
+	private static final Comparator<Map.Entry<String, Double>> BY_DECREASING_SCORE = Collections.reverseOrder(
+			Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+	private final String name;
+
+	private final Map<String, Double> scores = new HashMap<>();
+
+	private long landmark;
+
+	private int writesSincePruning;
+
+	private List<Map.Entry<String, Double>> ranked;
+
+	InMemoryFieldValueCounter(String name, long landmark) {
+		this.name = name;
+		this.landmark = landmark;
+	}
+
+	/**
+	 * Increment the score of a field.
+	 * @return the number of writes since this counter was last pruned
+	 */
+	synchronized int increment(String fieldName, double delta) {
+		scores.merge(fieldName, delta, Double::sum);
+		ranked = null;
+		return ++writesSincePruning;
+	}
+
+	/**
+	 * Increment the score of a field, weighting the increment according to the given decay.
+	 * @return the number of writes since this counter was last pruned
+	 */
+	synchronized int increment(String fieldName, double delta, ForwardDecay decay, long timestamp) {
+		if (decay.isRenormalizationNeeded(timestamp, landmark)) {
+			double factor = decay.decayFactor(timestamp, landmark);
+			scores.replaceAll((field, score) -> score * factor);
+			landmark = timestamp;
+		}
+		scores.merge(fieldName, delta * decay.weight(timestamp, landmark), Double::sum);
+		ranked = null;
+		return ++writesSincePruning;
+	}
+
+	/**
+	 * Discard the fields that the given policy doesn't want to keep.
+	 * @return the number of fields discarded
+	 */
+	synchronized int prune(FieldValueCounterPruningPolicy policy, ForwardDecay decay, long now) {
+		writesSincePruning = 0;
+		int before = scores.size();
+		if (policy.hasMinScore()) {
+			double threshold = decay == null ? policy.getMinScore() : policy.getMinScore() * decay.weight(now, landmark);
+			scores.values().removeIf(score -> score < threshold);
+		}
+		int excess = scores.size() - policy.getMaxCardinality();
+		if (excess > 0) {
+			List<Map.Entry<String, Double>> entries = new ArrayList<>(scores.entrySet());
+			entries.sort(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+			for (int i = 0; i < excess; i++) {
+				scores.remove(entries.get(i).getKey());
+			}
+		}
+		int pruned = before - scores.size();
+		if (pruned > 0) {
+			ranked = null;
+		}
+		return pruned;
+	}
+
+	/**
+	 * Return the scores of the given fields that exist, decayed as of {@code now} if a decay is given.
+	 */
+	synchronized Map<String, Double> scores(Collection<String> fieldNames, ForwardDecay decay, long now) {
+		double factor = decay == null ? 1d : decay.decayFactor(now, landmark);
+		Map<String, Double> values = new HashMap<>();
+		for (String fieldName : fieldNames) {
+			Double score = scores.get(fieldName);
+			if (score != null) {
+				values.put(fieldName, score * factor);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Return the fields ranked {@code offset} to {@code offset + limit - 1}, by decreasing score.
+	 */
+	synchronized FieldValueCounter range(long offset, int limit, ForwardDecay decay, long now) {
+		List<Map.Entry<String, Double>> view = rankedView();
+		int from = (int) Math.min(offset, view.size());
+		int to = (int) Math.min(from + (long) limit, view.size());
+		double factor = decay == null ? 1d : decay.decayFactor(now, landmark);
+		Map<String, Double> values = new LinkedHashMap<>((to - from) * 2);
+		for (Map.Entry<String, Double> entry : view.subList(from, to)) {
+			values.put(entry.getKey(), entry.getValue() * factor);
+		}
+		return new FieldValueCounter(name, values);
+	}
+
+	/**
+	 * Return the rank of a field by decreasing score, or {@literal null} if it doesn't exist.
+	 */
+	synchronized Long rank(String fieldName) {
+		Double score = scores.get(fieldName);
+		if (score == null) {
+			return null;
+		}
+		int index = Collections.binarySearch(rankedView(), new AbstractMap.SimpleImmutableEntry<>(fieldName, score),
+				BY_DECREASING_SCORE);
+		return (long) index;
+	}
+
+	/**
+	 * Return the decayed score and the rank of a field, or {@literal null} if it doesn't exist.
+	 */
+	synchronized RankedFieldValue rankAndScore(String fieldName, ForwardDecay decay, long now) {
+		Double score = scores.get(fieldName);
+		if (score == null) {
+			return null;
+		}
+		double factor = decay == null ? 1d : decay.decayFactor(now, landmark);
+		return new RankedFieldValue(fieldName, score * factor, rank(fieldName));
+	}
+
+	synchronized int size() {
+		return scores.size();
+	}
+
+	private List<Map.Entry<String, Double>> rankedView() {
+		if (ranked == null) {
+			List<Map.Entry<String, Double>> view = new ArrayList<>(scores.size());
+			for (Map.Entry<String, Double> entry : scores.entrySet()) {
+				view.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+			}
+			view.sort(BY_DECREASING_SCORE);
+			ranked = view;
+		}
+		return ranked;
+	}
+
+	/**
+	 * Return a snapshot of this counter, with scores decayed as of {@code now} if a decay is given.
+	 */
+	synchronized FieldValueCounter snapshot(ForwardDecay decay, long now) {
+		Map<String, Double> values = new HashMap<>(scores);
+		if (decay != null) {
+			double factor = decay.decayFactor(now, landmark);
+			values.replaceAll((field, score) -> score * factor);
+		}
+		return new FieldValueCounter(name, values);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2018 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,30 +16,170 @@
 package org.springframework.analytics.metrics.memory;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.Duration;
 
 import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.FieldValueCounterPruningPolicy;
 import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.ForwardDecay;
+import org.springframework.analytics.metrics.RankedFieldValue;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
 /**
- * Memory backed implementation of FieldValueCounterRepository that uses a ConcurrentMap
+ * Memory backed implementation of FieldValueCounterRepository that uses a ConcurrentNavigableMap sorted by counter
+ * name. Scores can optionally be decayed over time, see {@link #setDecay(ForwardDecay)}, and low scoring fields
+ * pruned, see {@link #setPruningPolicy(String, FieldValueCounterPruningPolicy)}.
  *
  * @author Mark Pollack
  * @author Ilayaperumal Gopinathan
  *
  */
-public class InMemoryFieldValueCounterRepository implements FieldValueCounterRepository {
+public class InMemoryFieldValueCounterRepository implements FieldValueCounterRepository, DisposableBean {
+
+	private final ConcurrentNavigableMap<String, InMemoryFieldValueCounter> map = new ConcurrentSkipListMap<>();
+
+	private final Map<String, FieldValueCounterPruningPolicy> pruningPolicies = new ConcurrentHashMap<>();
+
+	private final AtomicLong prunedFieldCount = new AtomicLong();
+
+	private volatile ForwardDecay decay;
 
-	private final ConcurrentMap<String, FieldValueCounter> map = new ConcurrentHashMap<>();
+	private volatile FieldValueCounterPruningPolicy defaultPruningPolicy = FieldValueCounterPruningPolicy.NONE;
+
+	private volatile int pruningInterval = 1000;
+
+	private ScheduledExecutorService sweeper;
+
+	private ScheduledFuture<?> sweep;
+
+	/**
+	 * Make this repository decay scores exponentially over time. Should be set before any counter is written to.
+	 *
+	 * @param decay the decay to apply, or {@literal null} to keep all-time totals
+	 */
+	public void setDecay(ForwardDecay decay) {
+		this.decay = decay;
+	}
+
+	/**
+	 * Set the pruning policy of counters that don't have one of their own.
+	 *
+	 * @param policy the policy to apply
+	 */
+	public void setDefaultPruningPolicy(FieldValueCounterPruningPolicy policy) {
+		Assert.notNull(policy, "policy must not be null");
+		this.defaultPruningPolicy = policy;
+	}
+
+	/**
+	 * Set the pruning policy of a given counter.
+	 *
+	 * @param name the name of the counter
+	 * @param policy the policy to apply, or {@literal null} to revert to the default policy
+	 */
+	public void setPruningPolicy(String name, FieldValueCounterPruningPolicy policy) {
+		if (policy == null) {
+			pruningPolicies.remove(name);
+		}
+		else {
+			pruningPolicies.put(name, policy);
+		}
+	}
+
+	/**
+	 * Set the number of writes to a counter after which its pruning policy is enforced. Defaults to 1000.
+	 *
+	 * @param pruningInterval the number of writes between two prunings
+	 */
+	public void setPruningInterval(int pruningInterval) {
+		Assert.isTrue(pruningInterval > 0, "pruningInterval must be positive");
+		this.pruningInterval = pruningInterval;
+	}
+
+	/**
+	 * Enforce pruning policies of all counters periodically in the background, in addition to enforcing them as
+	 * counters are written to.
+	 *
+	 * @param interval the time between two sweeps, or {@literal null} to stop sweeping
+	 */
+	public synchronized void setPruningSweepInterval(Duration interval) {
+		if (sweep != null) {
+			sweep.cancel(false);
+			sweep = null;
+		}
+		if (interval != null) {
+			if (sweeper == null) {
+				sweeper = Executors.newSingleThreadScheduledExecutor(
+						new CustomizableThreadFactory("field-value-counter-pruning-"));
+			}
+			sweep = sweeper.scheduleWithFixedDelay(this::prune, interval.getMillis(), interval.getMillis(),
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Enforce the pruning policy of every counter.
+	 */
+	public void prune() {
+		for (Map.Entry<String, InMemoryFieldValueCounter> entry : map.entrySet()) {
+			FieldValueCounterPruningPolicy policy = pruningPolicyFor(entry.getKey());
+			if (policy.isPruning()) {
+				prunedFieldCount.addAndGet(entry.getValue().prune(policy, decay, System.currentTimeMillis()));
+			}
+		}
+	}
+
+	/**
+	 * @return the total number of fields discarded by pruning since this repository was created
+	 */
+	public long getPrunedFieldCount() {
+		return prunedFieldCount.get();
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+			sweeper = null;
+			sweep = null;
+		}
+	}
 
 	@Override
 	public void increment(String name, String fieldName, double score) {
 		modifyFieldValue(name, fieldName, score);
 	}
 
+	@Override
+	public void increment(String name, Map<String, Double> scores) {
+		Assert.notNull(scores, "scores must not be null");
+		for (Map.Entry<String, Double> entry : scores.entrySet()) {
+			modifyFieldValue(name, entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void increment(Map<String, Map<String, Double>> scores) {
+		Assert.notNull(scores, "scores must not be null");
+		for (Map.Entry<String, Map<String, Double>> entry : scores.entrySet()) {
+			increment(entry.getKey(), entry.getValue());
+		}
+	}
+
 	@Override
 	public void decrement(String name, String fieldName, double score) {
 		modifyFieldValue(name, fieldName, -score);
@@ -51,33 +191,84 @@ public class InMemoryFieldValueCounterRepository implements FieldValueCounterRep
 	}
 
 	private void modifyFieldValue(String name, String fieldName, double delta) {
-		FieldValueCounter counter = getOrCreate(name);
-		Map<String, Double> data = counter.getFieldValueCounts();
-		double count = data.containsKey(fieldName) ? data.get(fieldName) : 0;
-		data.put(fieldName, count + delta);
-		save(counter);
-	}
-
-	private FieldValueCounter getOrCreate(String name) {
-			FieldValueCounter result = findOne(name);
-			if (result == null) {
-				synchronized (map) {
-					result = create(name);
-				}
-				result = save(result);
-			}
-			return result;
+		Assert.notNull(name, "The name of the metric must not be null");
+		ForwardDecay decay = this.decay;
+		long now = System.currentTimeMillis();
+		InMemoryFieldValueCounter counter = map.computeIfAbsent(name, n -> new InMemoryFieldValueCounter(n, now));
+		int writes = decay == null
+				? counter.increment(fieldName, delta)
+				: counter.increment(fieldName, delta, decay, now);
+		if (writes >= pruningInterval) {
+			prunedFieldCount.addAndGet(counter.prune(pruningPolicyFor(name), decay, now));
+		}
 	}
 
-	private FieldValueCounter save(FieldValueCounter fieldValueCounter) {
-		map.put(fieldValueCounter.getName(), fieldValueCounter);
-		return fieldValueCounter;
+	private FieldValueCounterPruningPolicy pruningPolicyFor(String name) {
+		FieldValueCounterPruningPolicy policy = pruningPolicies.get(name);
+		return policy == null ? defaultPruningPolicy : policy;
 	}
 
 	@Override
 	public FieldValueCounter findOne(String name) {
 		Assert.notNull(name, "The name of the metric must not be null");
-		return map.get(name);
+		InMemoryFieldValueCounter counter = map.get(name);
+		return counter == null ? null : counter.snapshot(decay, System.currentTimeMillis());
+	}
+
+	@Override
+	public Double findScore(String name, String fieldName) {
+		Assert.notNull(fieldName, "The name of the field must not be null");
+		return findScores(name, Collections.singleton(fieldName)).get(fieldName);
+	}
+
+	@Override
+	public Map<String, Double> findScores(String name, Collection<String> fieldNames) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		Assert.notNull(fieldNames, "fieldNames must not be null");
+		InMemoryFieldValueCounter counter = map.get(name);
+		return counter == null
+				? Collections.<String, Double>emptyMap()
+				: counter.scores(fieldNames, decay, System.currentTimeMillis());
+	}
+
+	@Override
+	public FieldValueCounter findRange(String name, long offset, int limit) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		Assert.isTrue(offset >= 0, "offset must not be negative");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		InMemoryFieldValueCounter counter = map.get(name);
+		return counter == null
+				? new FieldValueCounter(name, Collections.<String, Double>emptyMap())
+				: counter.range(offset, limit, decay, System.currentTimeMillis());
+	}
+
+	@Override
+	public Long findRank(String name, String fieldName) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		Assert.notNull(fieldName, "The name of the field must not be null");
+		InMemoryFieldValueCounter counter = map.get(name);
+		return counter == null ? null : counter.rank(fieldName);
+	}
+
+	@Override
+	public RankedFieldValue findRankAndScore(String name, String fieldName) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		Assert.notNull(fieldName, "The name of the field must not be null");
+		InMemoryFieldValueCounter counter = map.get(name);
+		return counter == null ? null : counter.rankAndScore(fieldName, decay, System.currentTimeMillis());
+	}
+
+	@Override
+	public long countFields(String name) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		InMemoryFieldValueCounter counter = map.get(name);
+		return counter == null ? 0L : counter.size();
+	}
+
+	@Override
+	public boolean exists(String name) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		return map.containsKey(name);
 	}
 
 	@Override
@@ -85,8 +276,14 @@ public class InMemoryFieldValueCounterRepository implements FieldValueCounterRep
 		return map.keySet();
 	}
 
-	private FieldValueCounter create(String name) {
-		return new FieldValueCounter(name);
+	@Override
+	public List<String> list(String prefix, long offset, int limit) {
+		return CounterNames.list(map, prefix, offset, limit);
+	}
+
+	@Override
+	public long count(String prefix) {
+		return CounterNames.count(map, prefix);
 	}
 
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.util.Assert;
+
+/**
+ * In-memory implementation of {@link MetricRepository}.
+ *
+ * <p>
+ * Metrics are kept in a concurrent hash map and every write goes through {@link ConcurrentHashMap#compute}, so that
+ * an update and a reset of the same metric never interleave: an update either lands before the reset and is erased
+ * by it, or recreates the metric after it. Names are also kept in a sorted set, so that metrics of a given type can be
+ * paged through by name, and the number of metrics of each type is maintained as metrics are created and reset.
+ * </p>
+ *
+ * <p>
+ * Note that the data is kept until the metric is reset or the host process is restarted.
+ * </p>
+ */
+public class InMemoryMetricRepository implements MetricRepository {
+
+	private final ConcurrentHashMap<String, MetricValue> metrics = new ConcurrentHashMap<>();
+
+	private final ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<>();
+
+	private final ConcurrentHashMap<String, LongAdder> countsByType = new ConcurrentHashMap<>();
+
+	@Override
+	public Metric<?> findOne(String metricName) {
+		Assert.notNull(metricName, "metricName must not be null");
+		MetricValue value = metrics.get(metricName);
+		return value == null ? null : value.toMetric(metricName);
+	}
+
+	/**
+	 * Retrieve all metrics, by increasing name.
+	 * @return all metrics
+	 */
+	@Override
+	public Iterable<Metric<?>> findAll() {
+		return toMetrics(names, 0L, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Metric<?>> findAll(String type, long offset, int limit) {
+		Assert.isTrue(offset >= 0, "offset must not be negative");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		return toMetrics(namesOfType(type), offset, limit);
+	}
+
+	@Override
+	public long count() {
+		return metrics.mappingCount();
+	}
+
+	@Override
+	public long count(String type) {
+		Assert.hasText(type, "type must not be empty");
+		LongAdder count = countsByType.get(type);
+		return count == null ? 0L : count.sum();
+	}
+
+	@Override
+	public void increment(Delta<?> delta) {
+		Assert.notNull(delta.getName(), "metricName must not be null");
+		final double value = delta.getValue().doubleValue();
+		final long timestamp = timestampOf(delta);
+		metrics.compute(delta.getName(), (name, current) -> {
+			MetricValue updated = current == null ? created(name) : current;
+			updated.add(value, timestamp);
+			return updated;
+		});
+	}
+
+	@Override
+	public void increment(Collection<? extends Delta<?>> deltas) {
+		for (Delta<?> delta : deltas) {
+			increment(delta);
+		}
+	}
+
+	@Override
+	public void set(Metric<?> value) {
+		Assert.notNull(value.getName(), "metricName must not be null");
+		final double newValue = value.getValue().doubleValue();
+		final long timestamp = timestampOf(value);
+		metrics.compute(value.getName(), (name, current) -> {
+			MetricValue updated = current == null ? created(name) : current;
+			updated.set(newValue, timestamp);
+			return updated;
+		});
+	}
+
+	@Override
+	public void set(Collection<? extends Metric<?>> values) {
+		for (Metric<?> value : values) {
+			set(value);
+		}
+	}
+
+	@Override
+	public void write(Collection<? extends Delta<?>> deltas, Collection<? extends Metric<?>> values) {
+		increment(deltas);
+		set(values);
+	}
+
+	@Override
+	public void reset(String metricName) {
+		metrics.computeIfPresent(metricName, (name, current) -> {
+			names.remove(name);
+			String type = typeOf(name);
+			if (type != null) {
+				countsByType.get(type).decrement();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Account for a metric about to be created. Only called while the map holds the lock of the metric.
+	 */
+	private MetricValue created(String metricName) {
+		names.add(metricName);
+		String type = typeOf(metricName);
+		if (type != null) {
+			countsByType.computeIfAbsent(type, t -> new LongAdder()).increment();
+		}
+		return new MetricValue();
+	}
+
+	/**
+	 * Return the names of the metrics whose name starts with {@code type.}. As {@code '/'} immediately follows
+	 * {@code '.'}, those are exactly the names in {@code [type., type/)}.
+	 */
+	private NavigableSet<String> namesOfType(String type) {
+		Assert.hasText(type, "type must not be empty");
+		return names.subSet(type + ".", type + "/");
+	}
+
+	/**
+	 * Return the type of a metric, which is what precedes the first dot of its name, or {@literal null} if it has
+	 * none.
+	 */
+	private static String typeOf(String metricName) {
+		int dot = metricName.indexOf('.');
+		return dot > 0 ? metricName.substring(0, dot) : null;
+	}
+
+	private List<Metric<?>> toMetrics(Collection<String> metricNames, long offset, int limit) {
+		if (limit == 0) {
+			return Collections.emptyList();
+		}
+		List<Metric<?>> result = new ArrayList<>();
+		long index = 0L;
+		for (String name : metricNames) {
+			MetricValue value = metrics.get(name);
+			if (value == null) {
+				// Reset since its name was read
+				continue;
+			}
+			if (index++ < offset) {
+				continue;
+			}
+			result.add(value.toMetric(name));
+			if (result.size() == limit) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	private static long timestampOf(Metric<?> metric) {
+		return metric.getTimestamp() == null ? System.currentTimeMillis() : metric.getTimestamp().getTime();
+	}
+
+	/**
+	 * The current value of a metric and the time of its last update. Only written to while the map holds the lock of
+	 * the metric.
+	 */
+	private static class MetricValue {
+
+		private volatile double value;
+
+		private volatile long timestamp;
+
+		private void add(double delta, long timestamp) {
+			this.value += delta;
+			this.timestamp = timestamp;
+		}
+
+		private void set(double value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+		private Metric<Double> toMetric(String name) {
+			return new Metric<Double>(name, value, new Date(timestamp));
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.memory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.util.Assert;
+
+/**
+ * Holds the per-bucket scores of a windowed field value counter.
+ *
+ * <p>
+ * Buckets are identified by their index since the epoch. For every window size that has been queried, the sum of the
+ * <i>closed</i> buckets of the window (all but the last one) is cached and kept up to date incrementally: writes and
+ * evictions are applied to every cached sum that covers the affected bucket, and sliding the window only subtracts the
+ * buckets that left it and adds the ones that entered it.
+ * </p>
+ *
+ * <p>
+ * Retention is relative to the current time rather than to the latest written bucket, so that a counter behaves the
+ * same way as its Redis counterpart whose buckets expire with the wall clock.
+ * </p>
+ */
+class InMemoryWindowedFieldValueCounter {
+
+	private static final double EPSILON = 1e-9;
+
+	private final String name;
+
+	private final long bucketMillis;
+
+	private final int maxBuckets;
+
+	private final NavigableMap<Long, Map<String, Double>> buckets = new TreeMap<>();
+
+	private final Map<Integer, MergedBuckets> mergedByWindowSize = new HashMap<>();
+
+	InMemoryWindowedFieldValueCounter(String name, long bucketMillis, int maxBuckets) {
+		this.name = name;
+		this.bucketMillis = bucketMillis;
+		this.maxBuckets = maxBuckets;
+	}
+
+	synchronized void increment(String fieldName, double score, long timestamp, long now) {
+		long bucket = timestamp / bucketMillis;
+		long current = now / bucketMillis;
+		Assert.isTrue(bucket <= current, "Cannot increment a bucket that starts in the future");
+		evictBefore(current - maxBuckets + 1);
+		if (bucket <= current - maxBuckets) {
+			// Older than the retention period
+			return;
+		}
+		Map<String, Double> counts = buckets.get(bucket);
+		if (counts == null) {
+			counts = new HashMap<>();
+			buckets.put(bucket, counts);
+		}
+		add(counts, fieldName, score);
+		for (MergedBuckets merged : mergedByWindowSize.values()) {
+			if (merged.covers(bucket)) {
+				add(merged.sums, fieldName, score);
+			}
+		}
+	}
+
+	synchronized FieldValueCounter findTop(int n, int windowBuckets, long end, long now) {
+		evictBefore(now / bucketMillis - maxBuckets + 1);
+		long last = end / bucketMillis;
+		long first = last - windowBuckets + 1;
+		Map<String, Double> closed = Collections.emptyMap();
+		if (windowBuckets > 1) {
+			closed = mergeClosedBuckets(windowBuckets - 1, first, last - 1);
+		}
+		Map<String, Double> open = buckets.get(last);
+		if (open == null) {
+			open = Collections.emptyMap();
+		}
+
+		PriorityQueue<Map.Entry<String, Double>> top = new PriorityQueue<>(n + 1, Map.Entry.comparingByValue());
+		for (Map.Entry<String, Double> entry : closed.entrySet()) {
+			Double inOpen = open.get(entry.getKey());
+			offer(top, n, entry.getKey(), inOpen == null ? entry.getValue() : entry.getValue() + inOpen);
+		}
+		for (Map.Entry<String, Double> entry : open.entrySet()) {
+			if (!closed.containsKey(entry.getKey())) {
+				offer(top, n, entry.getKey(), entry.getValue());
+			}
+		}
+
+		List<Map.Entry<String, Double>> sorted = new ArrayList<>(top);
+		sorted.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+		Map<String, Double> result = new LinkedHashMap<>(sorted.size() * 2);
+		for (Map.Entry<String, Double> entry : sorted) {
+			result.put(entry.getKey(), entry.getValue());
+		}
+		return new FieldValueCounter(name, result);
+	}
+
+	/**
+	 * Return the sum of buckets {@code [from, to]}, reusing (and sliding) the cached sum for windows of that size.
+	 */
+	private Map<String, Double> mergeClosedBuckets(int size, long from, long to) {
+		MergedBuckets merged = mergedByWindowSize.get(size);
+		if (merged == null || from < merged.from || from > merged.to) {
+			// No overlap with what we have cached, start over
+			merged = new MergedBuckets(from, from - 1);
+			mergedByWindowSize.put(size, merged);
+		}
+		for (Map<String, Double> leaving : bucketsBetween(merged.from, from - 1)) {
+			subtract(merged.sums, leaving);
+		}
+		for (Map<String, Double> entering : bucketsBetween(merged.to + 1, to)) {
+			for (Map.Entry<String, Double> entry : entering.entrySet()) {
+				add(merged.sums, entry.getKey(), entry.getValue());
+			}
+		}
+		merged.from = from;
+		merged.to = to;
+		return merged.sums;
+	}
+
+	private Iterable<Map<String, Double>> bucketsBetween(long from, long to) {
+		if (from > to) {
+			return Collections.emptyList();
+		}
+		return buckets.subMap(from, true, to, true).values();
+	}
+
+	private void evictBefore(long bucket) {
+		Iterator<Map.Entry<Long, Map<String, Double>>> it = buckets.headMap(bucket, false).entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, Map<String, Double>> evicted = it.next();
+			for (MergedBuckets merged : mergedByWindowSize.values()) {
+				if (merged.covers(evicted.getKey())) {
+					subtract(merged.sums, evicted.getValue());
+				}
+			}
+			it.remove();
+		}
+	}
+
+	private static void offer(PriorityQueue<Map.Entry<String, Double>> top, int n, String field, double score) {
+		if (top.size() < n) {
+			top.offer(new AbstractMap.SimpleImmutableEntry<>(field, score));
+		}
+		else if (score > top.peek().getValue()) {
+			top.poll();
+			top.offer(new AbstractMap.SimpleImmutableEntry<>(field, score));
+		}
+	}
+
+	private static void add(Map<String, Double> counts, String fieldName, double delta) {
+		Double current = counts.get(fieldName);
+		counts.put(fieldName, current == null ? delta : current + delta);
+	}
+
+	private static void subtract(Map<String, Double> sums, Map<String, Double> bucket) {
+		for (Map.Entry<String, Double> entry : bucket.entrySet()) {
+			Double current = sums.get(entry.getKey());
+			if (current != null) {
+				double remaining = current - entry.getValue();
+				// Compare against the magnitude of the operands, floating point residues would otherwise keep the
+				// fields of expired buckets around forever
+				if (Math.abs(remaining) <= EPSILON * Math.max(Math.abs(current), Math.abs(entry.getValue()))) {
+					sums.remove(entry.getKey());
+				}
+				else {
+					sums.put(entry.getKey(), remaining);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The sum of scores over buckets {@code [from, to]}.
+	 */
+	private static class MergedBuckets {
+
+		private final Map<String, Double> sums = new HashMap<>();
+
+		private long from;
+
+		private long to;
+
+		private MergedBuckets(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		private boolean covers(long bucket) {
+			return bucket >= from && bucket <= to;
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.memory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.WindowedFieldValueCounterRepository;
+import org.springframework.util.Assert;
+
+/**
+ * Memory backed implementation of {@link WindowedFieldValueCounterRepository}.
+ *
+ * <p>
+ * Scores are kept in one map per time bucket, for at most {@code maxBuckets} buckets. Rankings over a window are
+ * computed by incrementally merging buckets, see {@link InMemoryWindowedFieldValueCounter}.
+ * </p>
+ */
+public class InMemoryWindowedFieldValueCounterRepository implements WindowedFieldValueCounterRepository {
+
+	private final ConcurrentMap<String, InMemoryWindowedFieldValueCounter> counters = new ConcurrentHashMap<>();
+
+	private final long bucketMillis;
+
+	private final int maxBuckets;
+
+	/**
+	 * Create a repository that keeps one day worth of one minute buckets.
+	 */
+	public InMemoryWindowedFieldValueCounterRepository() {
+		this(Duration.standardMinutes(1), 60 * 24);
+	}
+
+	/**
+	 * Create a repository with the given bucket size and retention.
+	 *
+	 * @param bucketSize the time span covered by each bucket
+	 * @param maxBuckets the number of buckets to retain, which is also the largest window that can be queried
+	 */
+	public InMemoryWindowedFieldValueCounterRepository(Duration bucketSize, int maxBuckets) {
+		Assert.isTrue(bucketSize.getMillis() > 0, "bucketSize must be positive");
+		Assert.isTrue(maxBuckets > 0, "maxBuckets must be positive");
+		this.bucketMillis = bucketSize.getMillis();
+		this.maxBuckets = maxBuckets;
+	}
+
+	@Override
+	public void increment(String name, String fieldName, double score) {
+		increment(name, fieldName, score, new DateTime());
+	}
+
+	@Override
+	public void increment(String name, String fieldName, double score, DateTime dateTime) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		getOrCreate(name).increment(fieldName, score, dateTime.getMillis(), now());
+	}
+
+	@Override
+	public void reset(String name) {
+		counters.remove(name);
+	}
+
+	@Override
+	public FieldValueCounter findTop(String name, int n, Duration window) {
+		return findTop(name, n, window, new DateTime());
+	}
+
+	@Override
+	public FieldValueCounter findTop(String name, int n, Duration window, DateTime end) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		Assert.notNull(end, "end must not be null");
+		Assert.isTrue(n > 0, "n must be positive");
+		InMemoryWindowedFieldValueCounter counter = counters.get(name);
+		if (counter == null) {
+			return new FieldValueCounter(name, Collections.<String, Double>emptyMap());
+		}
+		return counter.findTop(n, windowBuckets(window), end.getMillis(), now());
+	}
+
+	@Override
+	public Collection<String> list() {
+		return counters.keySet();
+	}
+
+	/**
+	 * Return the current time, which buckets are retained relative to.
+	 */
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	private int windowBuckets(Duration window) {
+		long buckets = (window.getMillis() + bucketMillis - 1) / bucketMillis;
+		Assert.isTrue(buckets > 0 && buckets <= maxBuckets,
+				"window must be positive and at most " + maxBuckets + " buckets long");
+		return (int) buckets;
+	}
+
+	private InMemoryWindowedFieldValueCounter getOrCreate(String name) {
+		return counters.computeIfAbsent(name, n -> new InMemoryWindowedFieldValueCounter(n, bucketMillis, maxBuckets));
+	}
+
+}
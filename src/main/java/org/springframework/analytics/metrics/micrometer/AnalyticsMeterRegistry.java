@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.micrometer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.step.StepMeterRegistry;
+import org.joda.time.DateTime;
+
+import org.springframework.analytics.metrics.AggregateCounterWriter;
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.util.Assert;
+
+/**
+ * A Micrometer {@link io.micrometer.core.instrument.MeterRegistry} that publishes counters to the analytics
+ * repositories, so that code instrumented with Micrometer feeds the counters REST endpoints.
+ *
+ * <p>
+ * Meters only update in-process accumulators. At the end of each step, the count of every {@link Counter} and
+ * {@link FunctionCounter} over that step is added, as one batch, to the {@code counter.<name>} metric of a
+ * {@link MetricRepository} and, if an {@link AggregateCounterWriter} is given, to the {@code <name>} aggregate
+ * counter at the start of the step. Other meter types are not published. Meter names follow the dot naming
+ * convention, and tags are appended as {@code .<key>.<value>}. Counts are rounded to the nearest integer, and what
+ * rounding leaves out is carried over to the next step, so that fractional increments add up over time.
+ * </p>
+ */
+public class AnalyticsMeterRegistry extends StepMeterRegistry {
+
+	private final AnalyticsRegistryConfig config;
+
+	private final MetricRepository metricRepository;
+
+	private final AggregateCounterWriter aggregateCounterWriter;
+
+	/**
+	 * What rounding left out of the last published count, by name.
+	 */
+	private final Map<String, Double> remainders = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a registry that publishes to a metric repository only.
+	 *
+	 * @param config the registry configuration
+	 * @param clock the clock used to delimit steps
+	 * @param metricRepository the repository counters are published to
+	 */
+	public AnalyticsMeterRegistry(AnalyticsRegistryConfig config, Clock clock, MetricRepository metricRepository) {
+		this(config, clock, metricRepository, null);
+	}
+
+	/**
+	 * Create a registry that publishes to a metric repository and to aggregate counters.
+	 *
+	 * @param config the registry configuration
+	 * @param clock the clock used to delimit steps
+	 * @param metricRepository the repository counters are published to
+	 * @param aggregateCounterWriter the aggregate counters counts are also published to, may be {@literal null}
+	 */
+	public AnalyticsMeterRegistry(AnalyticsRegistryConfig config, Clock clock, MetricRepository metricRepository,
+			AggregateCounterWriter aggregateCounterWriter) {
+		super(config, clock);
+		Assert.notNull(metricRepository, "metricRepository must not be null");
+		this.config = config;
+		this.metricRepository = metricRepository;
+		this.aggregateCounterWriter = aggregateCounterWriter;
+		config().namingConvention(NamingConvention.dot);
+		if (config.enabled()) {
+			start();
+		}
+	}
+
+	@Override
+	protected void publish() {
+		Map<String, Double> totals = new LinkedHashMap<>();
+		for (Meter meter : getMeters()) {
+			double count;
+			if (meter instanceof Counter) {
+				count = ((Counter) meter).count();
+			}
+			else if (meter instanceof FunctionCounter) {
+				count = ((FunctionCounter) meter).count();
+			}
+			else {
+				continue;
+			}
+			totals.merge(nameFor(meter.getId()), count, Double::sum);
+		}
+		remainders.keySet().retainAll(totals.keySet());
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (Map.Entry<String, Double> entry : totals.entrySet()) {
+			double total = entry.getValue() + remainders.getOrDefault(entry.getKey(), 0d);
+			long rounded = Math.round(total);
+			if (total == rounded) {
+				remainders.remove(entry.getKey());
+			}
+			else {
+				remainders.put(entry.getKey(), total - rounded);
+			}
+			if (rounded != 0) {
+				counts.put(entry.getKey(), rounded);
+			}
+		}
+		if (counts.isEmpty()) {
+			return;
+		}
+
+		long stepStart = clock.wallTime() - config.step().toMillis();
+		List<Delta<Long>> deltas = new ArrayList<>(counts.size());
+		for (Map.Entry<String, Long> entry : counts.entrySet()) {
+			deltas.add(new Delta<Long>("counter." + entry.getKey(), entry.getValue(), new Date(stepStart)));
+		}
+		metricRepository.increment(deltas);
+		if (aggregateCounterWriter != null) {
+			aggregateCounterWriter.increment(counts, new DateTime(stepStart));
+		}
+	}
+
+	@Override
+	protected TimeUnit getBaseTimeUnit() {
+		return TimeUnit.MILLISECONDS;
+	}
+
+	private String nameFor(Meter.Id id) {
+		NamingConvention convention = config().namingConvention();
+		StringBuilder name = new StringBuilder(id.getConventionName(convention));
+		for (Tag tag : id.getConventionTags(convention)) {
+			name.append('.').append(tag.getKey()).append('.').append(tag.getValue());
+		}
+		return name.toString();
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.micrometer;
+
+import io.micrometer.core.instrument.step.StepRegistryConfig;
+
+/**
+ * Configuration of an {@link AnalyticsMeterRegistry}. Properties are looked up under the {@code analytics} prefix,
+ * <i>e.g.</i> {@code analytics.step}.
+ */
+public interface AnalyticsRegistryConfig extends StepRegistryConfig {
+
+	/**
+	 * Accepts all defaults.
+	 */
+	AnalyticsRegistryConfig DEFAULT = k -> null;
+
+	@Override
+	default String prefix() {
+		return "analytics";
+	}
+
+}
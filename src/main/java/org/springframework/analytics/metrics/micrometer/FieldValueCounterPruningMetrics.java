@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.micrometer;
+
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.util.Assert;
+
+/**
+ * Registers the number of fields discarded by the pruning policies of a field value counter repository as a
+ * Micrometer {@link FunctionCounter}, e.g. with
+ * {@code new FieldValueCounterPruningMetrics(repository::getPrunedFieldCount, "redis")}.
+ */
+public class FieldValueCounterPruningMetrics implements MeterBinder {
+
+	static final String METER_NAME = "analytics.fieldvaluecounters.pruned";
+
+	private final LongSupplier prunedFieldCount;
+
+	private final String repository;
+
+	/**
+	 * @param prunedFieldCount supplies the total number of fields pruned so far
+	 * @param repository the value of the {@literal repository} tag, telling repositories apart
+	 */
+	public FieldValueCounterPruningMetrics(LongSupplier prunedFieldCount, String repository) {
+		Assert.notNull(prunedFieldCount, "prunedFieldCount must not be null");
+		Assert.hasText(repository, "repository must not be empty");
+		this.prunedFieldCount = prunedFieldCount;
+		this.repository = repository;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder(METER_NAME, prunedFieldCount, LongSupplier::getAsLong)
+				.description("Fields discarded by pruning policies")
+				.tag("repository", repository)
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import org.joda.time.Days;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.joda.time.Months;
+import org.joda.time.MutableDateTime;
+import org.joda.time.Years;
+
+import org.springframework.analytics.metrics.AggregateCounter;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.MetricUtils;
+
+/**
+ * The hashes to read to answer an aggregate counter query, and how to assemble their entries into counts, whatever
+ * the way they are read.
+ *
+ * <p>
+ * For each query, we need to convert the interval into two variations. One is the start and end points rounded to
+ * the resolution (used to calculate the number of entries to be returned from the query). The second is the start
+ * and end buckets we have to retrieve which may contain entries for the interval. For example, when querying
+ * at day resolution, the number of entries is the number of Joda time days between the start (rounded down to a
+ * day boundary) and the end plus one day (also rounded down). However, we need load the data from the buckets
+ * from the month the start day occurs in to the month end day occurs in. These are then concatenated, using the
+ * start day as the start index into the first array, and writing the total number of entries in sequence from that
+ * point into the combined result counts array.
+ * </p>
+ */
+final class AggregateCountsQuery {
+
+	private final String name;
+
+	private final Interval interval;
+
+	private final AggregateCounterResolution resolution;
+
+	private final List<String> keys = new ArrayList<>();
+
+	/**
+	 * The number of buckets held by each hash.
+	 */
+	private final List<Integer> sizes = new ArrayList<>();
+
+	/**
+	 * Whether hash fields are 1 based (e.g. days of month).
+	 */
+	private boolean unitOffset;
+
+	/**
+	 * The index of the first bucket of the interval in the first hash, or the first year of the interval at year
+	 * resolution.
+	 */
+	private int start;
+
+	/**
+	 * The number of buckets of the interval.
+	 */
+	private int length;
+
+	AggregateCountsQuery(String keyPrefix, String name, Interval interval, AggregateCounterResolution resolution) {
+		this.name = name;
+		this.interval = interval;
+		this.resolution = resolution;
+
+		DateTime end = interval.getEnd();
+		Chronology c = interval.getChronology();
+
+		if (resolution == AggregateCounterResolution.minute) {
+			// Iterate through each hour in the interval and load the minutes for it
+			MutableDateTime dt = new MutableDateTime(interval.getStart());
+			dt.setRounding(c.hourOfDay());
+			Duration step = Duration.standardHours(1);
+			while (dt.isBefore(end) || dt.isEqual(end)) {
+				DateTime hour = new DateTime().withYear(dt.getYear()).withMonthOfYear(dt.getMonthOfYear())
+						.withDayOfMonth(dt.getDayOfMonth()).withHourOfDay(dt.getHourOfDay());
+				add(new AggregateKeyGenerator(keyPrefix, name, hour).getHourKey(), 60);
+				dt.add(step);
+			}
+			start = interval.getStart().getMinuteOfHour();
+			length = interval.toPeriod().toStandardMinutes().getMinutes() + 1;
+		}
+		else if (resolution == AggregateCounterResolution.hour) {
+			DateTime cursor = new DateTime(c.dayOfMonth().roundFloor(interval.getStart().getMillis()));
+			Duration step = Duration.standardHours(24);
+			while (cursor.isBefore(end)) {
+				add(new AggregateKeyGenerator(keyPrefix, name, cursor.withTimeAtStartOfDay()).getDayKey(), 24);
+				cursor = cursor.plus(step);
+			}
+			start = interval.getStart().getHourOfDay();
+			length = interval.toPeriod().toStandardHours().getHours() + 1;
+		}
+		else if (resolution == AggregateCounterResolution.day) {
+			DateTime startDay = new DateTime(c.dayOfYear().roundFloor(interval.getStart().getMillis()));
+			DateTime endDay = new DateTime(c.dayOfYear().roundFloor(end.plusDays(1).getMillis()));
+			DateTime cursor = new DateTime(c.monthOfYear().roundFloor(interval.getStart().getMillis()));
+			DateTime endMonth = new DateTime(c.monthOfYear().roundCeiling(interval.getEnd().plusMonths(1).getMillis()));
+			while (cursor.isBefore(endMonth)) {
+				// Days in this month
+				add(new AggregateKeyGenerator(keyPrefix, name, cursor.withTimeAtStartOfDay()).getMonthKey(),
+						cursor.dayOfMonth().getMaximumValue());
+				cursor = cursor.plusMonths(1);
+			}
+			unitOffset = true;
+			start = interval.getStart().getDayOfMonth() - 1;
+			length = Days.daysBetween(startDay, endDay).getDays();
+		}
+		else if (resolution == AggregateCounterResolution.month) {
+			DateTime startMonth = new DateTime(c.monthOfYear().roundFloor(interval.getStartMillis()));
+			DateTime endMonth = new DateTime(c.monthOfYear().roundFloor(end.plusMonths(1).getMillis()));
+			DateTime cursor = new DateTime(c.year().roundFloor(interval.getStartMillis()));
+			DateTime endYear = new DateTime(c.year().roundCeiling(interval.getEnd().plusYears(1).getMillis()));
+			while (cursor.isBefore(endYear)) {
+				// Months in this year
+				add(new AggregateKeyGenerator(keyPrefix, name, cursor).getYearKey(),
+						cursor.monthOfYear().getMaximumValue());
+				cursor = cursor.plusYears(1);
+			}
+			unitOffset = true;
+			start = interval.getStart().getMonthOfYear() - 1;
+			length = Months.monthsBetween(startMonth, endMonth).getMonths();
+		}
+		else if (resolution == AggregateCounterResolution.year) {
+			DateTime startYear = new DateTime(interval.getStart().getYear(), 1, 1, 0, 0);
+			DateTime endYear = new DateTime(end.getYear() + 1, 1, 1, 0, 0);
+			add(new AggregateKeyGenerator(keyPrefix, name, new DateTime()).getYearsKey(), 0);
+			start = startYear.getYear();
+			length = Years.yearsBetween(startYear, endYear).getYears();
+		}
+		else {
+			throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + resolution);
+		}
+	}
+
+	/**
+	 * @return the keys of the hashes to read, in order
+	 */
+	List<String> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Assemble the counts of the interval.
+	 *
+	 * @param entries the entries of each hash of {@link #getKeys()}, in the same order
+	 * @return the counts
+	 */
+	AggregateCounter assemble(List<Map<String, Long>> entries) {
+		long[] counts;
+		if (resolution == AggregateCounterResolution.year) {
+			Map<String, Long> yearCounts = entries.get(0);
+			counts = new long[length];
+			for (int i = 0; i < length; i++) {
+				Long count = yearCounts.get(Integer.toString(start + i));
+				counts[i] = count == null ? 0L : count;
+			}
+		}
+		else {
+			List<long[]> arrays = new ArrayList<>(entries.size());
+			for (int i = 0; i < entries.size(); i++) {
+				arrays.add(convertToArray(entries.get(i), sizes.get(i)));
+			}
+			counts = MetricUtils.concatArrays(arrays, start, length);
+		}
+		return AggregateCounter.ofOwnedCounts(name, interval, counts, resolution);
+	}
+
+	private void add(String key, int size) {
+		keys.add(key);
+		sizes.add(size);
+	}
+
+	/**
+	 * Will convert a (possibly sparse) map whose keys are String versions of numbers between 0 and size, to an array.
+	 */
+	private long[] convertToArray(Map<String, Long> map, int size) {
+		long[] values = new long[size];
+		// Some joda fields (e.g. days of month are unit offset)
+		int arrayOffset = unitOffset ? -1 : 0;
+		for (Map.Entry<String, Long> cursor : map.entrySet()) {
+			int offset = Integer.parseInt(cursor.getKey()) + arrayOffset;
+			values[offset] = cursor.getValue();
+		}
+		return values;
+	}
+
+}
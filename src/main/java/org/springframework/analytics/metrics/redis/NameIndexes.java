@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.redis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.analytics.metrics.MetricUtils;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.StringUtils;
+
+/**
+ * Helpers for the sorted sets that index counter names, where all members have the same score so that they can be
+ * read by lexicographic range.
+ */
+final class NameIndexes {
+
+	/**
+	 * How many names a rebuild of an index asks each {@code SCAN} page for, and adds with each {@code ZADD}.
+	 */
+	static final int REBUILD_BATCH_SIZE = 1000;
+
+	/**
+	 * Counts the names between two {@code ZRANGEBYLEX} bounds, as {@code ZLEXCOUNT} is not exposed by Spring Data
+	 * Redis. KEYS: index ARGV: min, max
+	 */
+	static final RedisScript<Long> COUNT_SCRIPT = new DefaultRedisScript<>(
+			"return redis.call('ZLEXCOUNT', KEYS[1], ARGV[1], ARGV[2])", Long.class);
+
+	/**
+	 * Reads a page of the names between two {@code ZRANGEBYLEX} bounds. Used by the reactive readers, as the reactive
+	 * commands of Spring Data Redis reject unbounded lexicographic ranges. KEYS: index ARGV: min, max, offset, count
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> RANGE_SCRIPT = new DefaultRedisScript<>(
+			"return redis.call('ZRANGEBYLEX', KEYS[1], ARGV[1], ARGV[2], 'LIMIT', ARGV[3], ARGV[4])", List.class);
+
+	private NameIndexes() {
+	}
+
+	/**
+	 * Return the range of names starting with the given prefix.
+	 */
+	static RedisZSetCommands.Range range(String prefix) {
+		if (!StringUtils.hasLength(prefix)) {
+			return RedisZSetCommands.Range.unbounded();
+		}
+		String end = MetricUtils.prefixEnd(prefix);
+		RedisZSetCommands.Range range = RedisZSetCommands.Range.range().gte(prefix);
+		return end == null ? range : range.lt(end);
+	}
+
+	/**
+	 * Read a page of the names of the given index that start with the given prefix, without blocking.
+	 */
+	static Flux<String> range(ReactiveRedisTemplate<String, String> template, String key, String prefix, long offset,
+			int limit) {
+		return template.execute(RANGE_SCRIPT, Collections.singletonList(key),
+				Arrays.asList(min(prefix), max(prefix), String.valueOf(offset), String.valueOf(limit)))
+				.flatMapIterable(names -> (List<?>) names)
+				.map(String::valueOf);
+	}
+
+	/**
+	 * Defer a non blocking read of an index until a blocking check that the index is complete has run, on a thread
+	 * allowed to block. The check is skipped if the index is known to be complete already.
+	 */
+	static <T> Flux<T> afterCheck(boolean complete, Runnable check, Flux<T> read) {
+		return complete ? read : Mono.fromRunnable(check).subscribeOn(Schedulers.elastic()).thenMany(read);
+	}
+
+	/**
+	 * Same as {@link #afterCheck(boolean, Runnable, Flux)}, for reads of a single value.
+	 */
+	static <T> Mono<T> afterCheck(boolean complete, Runnable check, Mono<T> read) {
+		return complete ? read : Mono.fromRunnable(check).subscribeOn(Schedulers.elastic()).then(read);
+	}
+
+	/**
+	 * Return the inclusive lower bound of names starting with the given prefix, in {@code ZLEXCOUNT} syntax.
+	 */
+	static String min(String prefix) {
+		return StringUtils.hasLength(prefix) ? "[" + prefix : "-";
+	}
+
+	/**
+	 * Return the exclusive upper bound of names starting with the given prefix, in {@code ZLEXCOUNT} syntax.
+	 */
+	static String max(String prefix) {
+		if (!StringUtils.hasLength(prefix)) {
+			return "+";
+		}
+		String end = MetricUtils.prefixEnd(prefix);
+		return end == null ? "+" : "(" + end;
+	}
+
+}
@@ -16,34 +16,55 @@
 
 package org.springframework.analytics.metrics.redis;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
-import org.joda.time.Chronology;
 import org.joda.time.DateTime;
-import org.joda.time.Days;
-import org.joda.time.Duration;
 import org.joda.time.Interval;
-import org.joda.time.Months;
-import org.joda.time.MutableDateTime;
-import org.joda.time.ReadableDateTime;
-import org.joda.time.Years;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.analytics.metrics.AggregateCounter;
 import org.springframework.analytics.metrics.AggregateCounterRepository;
 import org.springframework.analytics.metrics.AggregateCounterResolution;
-import org.springframework.analytics.metrics.MetricUtils;
+import org.springframework.analytics.metrics.ReactiveAggregateCounterReader;
 import org.springframework.analytics.retry.RedisRetryTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.retry.RetryOperations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import static java.lang.Math.toIntExact;
 
 /**
  * Redis implementation of {@link AggregateCounterRepository}.
@@ -52,16 +73,40 @@ import org.springframework.util.Assert;
  * @author Luke Taylor
  * @author Ilayaperumal Gopinathan
  */
-public class RedisAggregateCounterRepository implements AggregateCounterRepository {
+public class RedisAggregateCounterRepository implements AggregateCounterRepository, DisposableBean {
 
 	private static final String AGGREGATE_COUNTER_KEY_PREFIX = "aggregate-counters";
 
+	/**
+	 * Sorted set of the names of all counters, all with the same score so that they can be read by lexicographic
+	 * range.
+	 */
+	private static final String NAME_INDEX_KEY = "metric_meta.aggregate-counters";
+
+	/**
+	 * Marks the name index as holding the counters written before it was introduced.
+	 */
+	private static final String NAME_INDEX_REBUILT_KEY = NAME_INDEX_KEY + ".rebuilt";
+
 	private final RedisRetryTemplate redisTemplate;
 
 	protected HashOperations<String, String, Long> hashOperations;
 
 	protected SetOperations<String, String> setOperations;
 
+	private final ZSetOperations<String, String> zSetOperations;
+
+	private int resetBatchSize = 500;
+
+	private volatile boolean nameIndexChecked;
+
+	private Executor resetExecutor;
+
+	/**
+	 * The executor created by this repository when none was set, shut down along with it.
+	 */
+	private ThreadPoolTaskExecutor defaultResetExecutor;
+
 	public RedisAggregateCounterRepository(RedisConnectionFactory redisConnectionFactory, RetryOperations retryOperations) {
 		redisTemplate = new RedisRetryTemplate<String, String>();
 		redisTemplate.setConnectionFactory(redisConnectionFactory);
@@ -73,6 +118,7 @@ public class RedisAggregateCounterRepository implements AggregateCounterReposito
 		redisTemplate.afterPropertiesSet();
 		hashOperations = redisTemplate.opsForHash();
 		setOperations = redisTemplate.opsForSet();
+		zSetOperations = redisTemplate.opsForZSet();
 	}
 
 	long increment(String name) {
@@ -88,6 +134,7 @@ public class RedisAggregateCounterRepository implements AggregateCounterReposito
 
 		if (!this.setOperations.isMember(AGGREGATE_COUNTER_KEY_PREFIX, name)) {
 			this.setOperations.add(AGGREGATE_COUNTER_KEY_PREFIX, name);
+			this.zSetOperations.add(NAME_INDEX_KEY, name, 0d);
 		}
 		doIncrementHash(akg.getYearsKey(), akg.getYear(), amount, bookkeepingKey);
 		doIncrementHash(akg.getYearKey(), akg.getMonth(), amount, bookkeepingKey);
@@ -98,6 +145,80 @@ public class RedisAggregateCounterRepository implements AggregateCounterReposito
 		return redisTemplate.boundValueOps(getMetricKey(name)).increment(amount);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All counters are incremented in a single transaction. Unlike single increments, bookkeeping entries are written
+	 * unconditionally, which saves a round trip per counter.
+	 * </p>
+	 */
+	@Override
+	public void increment(Map<String, Long> amounts, DateTime dateTime) {
+		increment(Collections.singletonMap(dateTime, amounts));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All counters are incremented in a single transaction. Increments of the same bucket are merged beforehand, so
+	 * that each hash field is incremented once whatever the number of instants it covers.
+	 * </p>
+	 */
+	@Override
+	public void increment(Map<DateTime, Map<String, Long>> amounts) {
+		final Map<String, Map<String, Long>> buckets = new LinkedHashMap<>();
+		final Map<String, Long> totals = new LinkedHashMap<>();
+		final Map<String, Set<String>> bookkeeping = new HashMap<>();
+		for (Map.Entry<DateTime, Map<String, Long>> entry : amounts.entrySet()) {
+			for (Map.Entry<String, Long> amount : entry.getValue().entrySet()) {
+				String name = amount.getKey();
+				long value = amount.getValue();
+				AggregateKeyGenerator akg = new AggregateKeyGenerator(AGGREGATE_COUNTER_KEY_PREFIX, name,
+						entry.getKey());
+				mergeBucket(buckets, akg.getYearsKey(), akg.getYear(), value);
+				mergeBucket(buckets, akg.getYearKey(), akg.getMonth(), value);
+				mergeBucket(buckets, akg.getMonthKey(), akg.getDay(), value);
+				mergeBucket(buckets, akg.getDayKey(), akg.getHour(), value);
+				mergeBucket(buckets, akg.getHourKey(), akg.getMinute(), value);
+				totals.merge(name, value, Long::sum);
+				Collections.addAll(bookkeeping.computeIfAbsent(name, n -> new HashSet<>()), akg.getYearsKey(),
+						akg.getYearKey(), akg.getMonthKey(), akg.getDayKey(), akg.getHourKey());
+			}
+		}
+		if (totals.isEmpty()) {
+			return;
+		}
+		redisTemplate.execute(new SessionCallback<Object>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <K, V> Object execute(RedisOperations<K, V> operations) {
+				RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+				HashOperations<String, String, Long> hashes = stringOperations.opsForHash();
+				SetOperations<String, String> sets = stringOperations.opsForSet();
+				stringOperations.multi();
+				for (Map.Entry<String, Map<String, Long>> bucket : buckets.entrySet()) {
+					for (Map.Entry<String, Long> field : bucket.getValue().entrySet()) {
+						hashes.increment(bucket.getKey(), field.getKey(), field.getValue());
+					}
+				}
+				for (Map.Entry<String, Long> total : totals.entrySet()) {
+					String name = total.getKey();
+					sets.add(AGGREGATE_COUNTER_KEY_PREFIX, name);
+					stringOperations.opsForZSet().add(NAME_INDEX_KEY, name, 0d);
+					Set<String> keys = bookkeeping.get(name);
+					sets.add(bookkeepingKeyFor(name), keys.toArray(new String[keys.size()]));
+					stringOperations.opsForValue().increment(getMetricKey(name), total.getValue());
+				}
+				return stringOperations.exec();
+			}
+		});
+	}
+
+	private static void mergeBucket(Map<String, Map<String, Long>> buckets, String key, String field, long amount) {
+		buckets.computeIfAbsent(key, k -> new LinkedHashMap<>()).merge(field, amount, Long::sum);
+	}
+
 	/**
 	 * Provides the key for a named metric. By default this prepends the name to the metricPrefix value.
 	 *
@@ -141,98 +262,61 @@ public class RedisAggregateCounterRepository implements AggregateCounterReposito
 	}
 
 	/**
-	 * For each query, we need to convert the interval into two variations. One is the start and end points rounded to
-	 * the resolution (used to calculate the number of entries to be returned from the query). The second is the start
-	 * and end buckets we have to retrieve which may contain entries for the interval. For example, when querying
-	 * at day resolution, the number of entries is the number of Joda time days between the start (rounded down to a
-	 * day boundary) and the end plus one day (also rounded down). However, we need load the data from the buckets
-	 * from the month the start day occurs in to the month end day occurs in. These are then concatenated, using the
-	 * start day as the start index into the first array, and writing the total number of entries in sequence from that
-	 * point into the combined result counts array.
+	 * {@inheritDoc}
+	 * @see AggregateCountsQuery
 	 */
 	@Override
 	public AggregateCounter getCounts(String name, Interval interval, AggregateCounterResolution resolution) {
-
-		DateTime end = interval.getEnd();
-		Chronology c = interval.getChronology();
-
-		long[] counts;
-
-		if (resolution == AggregateCounterResolution.minute) {
-			// Iterate through each hour in the interval and load the minutes for it
-			MutableDateTime dt = new MutableDateTime(interval.getStart());
-			dt.setRounding(c.hourOfDay());
-			Duration step = Duration.standardHours(1);
-			List<long[]> hours = new ArrayList<long[]>();
-			while (dt.isBefore(end) || dt.isEqual(end)) {
-				hours.add(getMinCountsForHour(name, dt));
-				dt.add(step);
-			}
-			counts = MetricUtils.concatArrays(hours, interval.getStart().getMinuteOfHour(),
-					interval.toPeriod().toStandardMinutes().getMinutes() + 1);
-
+		AggregateCountsQuery query = new AggregateCountsQuery(AGGREGATE_COUNTER_KEY_PREFIX, name, interval, resolution);
+		List<Map<String, Long>> entries = new ArrayList<>(query.getKeys().size());
+		for (String key : query.getKeys()) {
+			entries.add(getEntries(key));
 		}
-		else if (resolution == AggregateCounterResolution.hour) {
-			DateTime cursor = new DateTime(c.dayOfMonth().roundFloor(interval.getStart().getMillis()));
-			List<long[]> days = new ArrayList<long[]>();
-			Duration step = Duration.standardHours(24);
-			while (cursor.isBefore(end)) {
-				days.add(getHourCountsForDay(name, cursor));
-				cursor = cursor.plus(step);
-			}
-
-			counts = MetricUtils.concatArrays(days, interval.getStart().getHourOfDay(),
-					interval.toPeriod().toStandardHours().getHours() + 1);
-
-		}
-		else if (resolution == AggregateCounterResolution.day) {
-			DateTime startDay = new DateTime(c.dayOfYear().roundFloor(interval.getStart().getMillis()));
-			DateTime endDay = new DateTime(c.dayOfYear().roundFloor(end.plusDays(1).getMillis()));
-			int nDays = Days.daysBetween(startDay, endDay).getDays();
-			DateTime cursor = new DateTime(c.monthOfYear().roundFloor(interval.getStart().getMillis()));
-			List<long[]> months = new ArrayList<long[]>();
-			DateTime endMonth = new DateTime(c.monthOfYear().roundCeiling(interval.getEnd().plusMonths(1).getMillis()));
-			while (cursor.isBefore(endMonth)) {
-				months.add(getDayCountsForMonth(name, cursor));
-				cursor = cursor.plusMonths(1);
-			}
+		return query.assemble(entries);
+	}
 
-			counts = MetricUtils.concatArrays(months, interval.getStart().getDayOfMonth() - 1, nDays);
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The hashes of all counters are read in a single pipeline.
+	 * </p>
+	 */
+	@Override
+	public List<AggregateCounter> getCounts(List<String> names, Interval interval,
+			AggregateCounterResolution resolution) {
+		Assert.notNull(names, "names must not be null");
+		if (names.isEmpty()) {
+			return Collections.emptyList();
 		}
-		else if (resolution == AggregateCounterResolution.month) {
-			DateTime startMonth = new DateTime(c.monthOfYear().roundFloor(interval.getStartMillis()));
-			DateTime endMonth = new DateTime(c.monthOfYear().roundFloor(end.plusMonths(1).getMillis()));
-			int nMonths = Months.monthsBetween(startMonth, endMonth).getMonths();
-			DateTime cursor = new DateTime(c.year().roundFloor(interval.getStartMillis()));
-			List<long[]> years = new ArrayList<long[]>();
-			DateTime endYear = new DateTime(c.year().roundCeiling(interval.getEnd().plusYears(1).getMillis()));
-			while (cursor.isBefore(endYear)) {
-				years.add(getMonthCountsForYear(name, cursor));
-				cursor = cursor.plusYears(1);
-			}
-
-			counts = MetricUtils.concatArrays(years, interval.getStart().getMonthOfYear() - 1, nMonths);
+		final List<AggregateCountsQuery> queries = new ArrayList<>(names.size());
+		for (String name : names) {
+			queries.add(new AggregateCountsQuery(AGGREGATE_COUNTER_KEY_PREFIX, name, interval, resolution));
 		}
-		else if (resolution == AggregateCounterResolution.year) {
-			DateTime startYear = new DateTime(interval.getStart().getYear(), 1, 1, 0, 0);
-			DateTime endYear = new DateTime(end.getYear() + 1, 1, 1, 0, 0);
-			int nYears = Years.yearsBetween(startYear, endYear).getYears();
-			Map<String, Long> yearCounts = getYearCounts(name);
-			counts = new long[nYears];
-
-			for (int i = 0; i < nYears; i++) {
-				int year = startYear.plusYears(i).getYear();
-				Long count = yearCounts.get(Integer.toString(year));
-				if (count == null) {
-					count = 0L;
+		List<Object> entries = redisTemplate.executePipelined(new SessionCallback<Object>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <K, V> Object execute(RedisOperations<K, V> operations) {
+				HashOperations<String, String, Long> hashes = ((RedisOperations<String, String>) operations)
+						.opsForHash();
+				for (AggregateCountsQuery query : queries) {
+					for (String key : query.getKeys()) {
+						hashes.entries(key);
+					}
 				}
-				counts[i] = count;
+				return null;
 			}
+		});
+		List<AggregateCounter> result = new ArrayList<>(queries.size());
+		int from = 0;
+		for (AggregateCountsQuery query : queries) {
+			int to = from + query.getKeys().size();
+			@SuppressWarnings("unchecked")
+			List<Map<String, Long>> queryEntries = (List<Map<String, Long>>) (List<?>) entries.subList(from, to);
+			result.add(query.assemble(queryEntries));
+			from = to;
 		}
-		else {
-			throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + resolution);
-		}
-		return new AggregateCounter(name, interval, counts, resolution);
+		return result;
 	}
 
 	@Override
@@ -246,45 +330,99 @@ public class RedisAggregateCounterRepository implements AggregateCounterReposito
 		return list;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Names are read from a sorted set with {@code ZRANGEBYLEX}, so that only the requested page is transferred.
+	 * </p>
+	 */
 	@Override
-	public AggregateCounter findOne(String name) {
-		return getCounts(name, 1000, new DateTime(), AggregateCounterResolution.minute);
+	public List<String> list(String prefix, long offset, int limit) {
+		Assert.isTrue(offset >= 0, "offset must not be negative");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		if (limit == 0) {
+			return Collections.emptyList();
+		}
+		checkNameIndex();
+		Set<String> names = zSetOperations.rangeByLex(NAME_INDEX_KEY, NameIndexes.range(prefix),
+				RedisZSetCommands.Limit.limit().offset(toIntExact(offset)).count(limit));
+		return names == null ? Collections.<String>emptyList() : new ArrayList<>(names);
 	}
 
-	private Map<String, Long> getYearCounts(String name) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(
-				AGGREGATE_COUNTER_KEY_PREFIX, name, new DateTime());
-		return getEntries(akg.getYearsKey());
+	@Override
+	public long count(String prefix) {
+		checkNameIndex();
+		Long count;
+		if (!StringUtils.hasLength(prefix)) {
+			count = zSetOperations.zCard(NAME_INDEX_KEY);
+		}
+		else {
+			count = (Long) redisTemplate.execute(NameIndexes.COUNT_SCRIPT, Collections.singletonList(NAME_INDEX_KEY),
+					NameIndexes.min(prefix), NameIndexes.max(prefix));
+		}
+		return count == null ? 0L : count;
 	}
 
-	private long[] getMonthCountsForYear(String name, DateTime year) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(
-				AGGREGATE_COUNTER_KEY_PREFIX, name, year);
-		return convertToArray(getEntries(akg.getYearKey()), year.monthOfYear().getMaximumValue(), true); // Months in this year
+	/**
+	 * Add all the counters of the registry to the sorted name index, which is only maintained for counters written
+	 * since it was introduced. This is done automatically the first time a repository reads the index, unless a
+	 * rebuild has already been recorded in Redis, but may be needed again if older versions keep creating counters.
+	 * Names are added in batches, with one {@code ZADD} per batch.
+	 */
+	public void rebuildNameIndex() {
+		Set<ZSetOperations.TypedTuple<String>> batch = new HashSet<>();
+		try (Cursor<String> names = setOperations.scan(AGGREGATE_COUNTER_KEY_PREFIX,
+				ScanOptions.scanOptions().count(NameIndexes.REBUILD_BATCH_SIZE).build())) {
+			while (names.hasNext()) {
+				batch.add(new DefaultTypedTuple<>(names.next(), 0d));
+				if (batch.size() >= NameIndexes.REBUILD_BATCH_SIZE) {
+					zSetOperations.add(NAME_INDEX_KEY, batch);
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				zSetOperations.add(NAME_INDEX_KEY, batch);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Could not close cursor over " + AGGREGATE_COUNTER_KEY_PREFIX, e);
+		}
+		redisTemplate.opsForValue().set(NAME_INDEX_REBUILT_KEY, String.valueOf(System.currentTimeMillis()));
 	}
 
-	private long[] getDayCountsForMonth(String name, DateTime month) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(
-				AGGREGATE_COUNTER_KEY_PREFIX, name, month.withTimeAtStartOfDay());
-		return convertToArray(getEntries(akg.getMonthKey()), month.dayOfMonth().getMaximumValue(), true); // Days in this month
+	/**
+	 * Rebuild the name index unless that has been recorded already, which is only checked once per repository.
+	 */
+	private void checkNameIndex() {
+		if (nameIndexChecked) {
+			return;
+		}
+		if (!Boolean.TRUE.equals(redisTemplate.hasKey(NAME_INDEX_REBUILT_KEY))) {
+			rebuildNameIndex();
+		}
+		nameIndexChecked = true;
 	}
 
-	private long[] getHourCountsForDay(String name, DateTime day) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(
-				AGGREGATE_COUNTER_KEY_PREFIX, name, day.withTimeAtStartOfDay());
-		return convertToArray(getEntries(akg.getDayKey()), 24, false);
+	@Override
+	public AggregateCounter findOne(String name) {
+		return getCounts(name, 1000, new DateTime(), AggregateCounterResolution.minute);
 	}
 
-	private long[] getMinCountsForHour(String name, ReadableDateTime dateTime) {
-		return getMinCountsForHour(name, dateTime.getYear(), dateTime.getMonthOfYear(), dateTime.getDayOfMonth(),
-				dateTime.getHourOfDay());
+	@Override
+	public boolean exists(String name) {
+		return Boolean.TRUE.equals(this.setOperations.isMember(AGGREGATE_COUNTER_KEY_PREFIX, name));
 	}
 
-	private long[] getMinCountsForHour(String name, int year, int month, int day, int hour) {
-		DateTime dt = new DateTime().withYear(year).withMonthOfYear(month).withDayOfMonth(day).withHourOfDay(hour);
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(
-				AGGREGATE_COUNTER_KEY_PREFIX, name, dt);
-		return convertToArray(getEntries(akg.getHourKey()), 60, false);
+	/**
+	 * Return a non blocking view of the counters of this repository, reading them over the given connection factory.
+	 * The view reads the same keys as this repository, but without retrying failed operations.
+	 *
+	 * @param connectionFactory the reactive connection factory to read counters with
+	 * @return a reader of the counters of this repository
+	 */
+	public ReactiveAggregateCounterReader reactiveReader(ReactiveRedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		return new ReactiveReader(new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.string()));
 	}
 
 	private Map<String, Long> getEntries(String key) {
@@ -292,29 +430,175 @@ public class RedisAggregateCounterRepository implements AggregateCounterReposito
 	}
 
 	/**
-	 * Will convert a (possibly sparse) map whose keys are String versions of numbers between 0 and size, to an array.
+	 * {@inheritDoc}
+	 * <p>
+	 * The counter is first removed from the registry, so that it immediately stops being listed. The keys recorded in
+	 * its bookkeeping set are then iterated with {@code SSCAN} and released in batches of
+	 * {@link #setResetBatchSize(int) resetBatchSize} keys with {@code UNLINK}, which reclaims memory in the background.
+	 * Resetting a counter that has been around for years thus never blocks Redis for long.
+	 * </p>
 	 */
-	private long[] convertToArray(Map<String, Long> map, int size, boolean unitOffset) {
-		long[] values = new long[size];
-		// Some joda fields (e.g. days of month are unit offset)
-		int arrayOffset = unitOffset ? -1 : 0;
-		for (Map.Entry<String, Long> cursor : map.entrySet()) {
-			int offset = Integer.parseInt(cursor.getKey()) + arrayOffset;
-			values[offset] = cursor.getValue();
+	@Override
+	public void reset(String id) {
+		this.setOperations.remove(AGGREGATE_COUNTER_KEY_PREFIX, id);
+		this.zSetOperations.remove(NAME_INDEX_KEY, id);
+		String metricMetaKey = bookkeepingKeyFor(id);
+		List<String> batch = new ArrayList<>(resetBatchSize);
+		batch.add(getMetricKey(id));
+		try (Cursor<String> keys = setOperations.scan(metricMetaKey,
+				ScanOptions.scanOptions().count(resetBatchSize).build())) {
+			while (keys.hasNext()) {
+				batch.add(keys.next());
+				if (batch.size() >= resetBatchSize) {
+					unlink(metricMetaKey, batch);
+					batch.clear();
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Could not close cursor over " + metricMetaKey, e);
 		}
-		return values;
+		unlink(metricMetaKey, batch);
+		unlink(null, Collections.singletonList(metricMetaKey));
+	}
+
+	/**
+	 * Reset the given counter in the background, as per {@link #reset(String)}.
+	 *
+	 * @param id the name of the counter
+	 * @return a future completed once all the keys of the counter have been released
+	 * @throws org.springframework.core.task.TaskRejectedException if the default executor has too many resets pending
+	 */
+	public CompletableFuture<Void> resetAsync(final String id) {
+		return CompletableFuture.runAsync(new Runnable() {
+
+			@Override
+			public void run() {
+				reset(id);
+			}
+		}, resetExecutor());
+	}
+
+	/**
+	 * Set the maximum number of keys released at once when resetting a counter. Defaults to 500.
+	 *
+	 * @param resetBatchSize the number of keys per {@code UNLINK}
+	 */
+	public void setResetBatchSize(int resetBatchSize) {
+		Assert.isTrue(resetBatchSize > 0, "resetBatchSize must be positive");
+		this.resetBatchSize = resetBatchSize;
+	}
+
+	/**
+	 * Set the executor that runs {@link #resetAsync(String)}. Defaults to a single thread, created on first use, with
+	 * at most 100 pending resets.
+	 *
+	 * @param resetExecutor the executor to use
+	 */
+	public synchronized void setResetExecutor(Executor resetExecutor) {
+		Assert.notNull(resetExecutor, "resetExecutor must not be null");
+		this.resetExecutor = resetExecutor;
 	}
 
 	@Override
-	public void reset(String id) {
-		redisTemplate.delete(getMetricKey(id));
-		String metricMetaKey = bookkeepingKeyFor(id);
-		Set<String> otherKeys = setOperations.members(metricMetaKey);
-		otherKeys.add(metricMetaKey);
-		redisTemplate.delete(otherKeys);
-		Set<String> members = this.setOperations.members(AGGREGATE_COUNTER_KEY_PREFIX);
-		if (members.contains(id)) {
-			this.setOperations.remove(AGGREGATE_COUNTER_KEY_PREFIX, id);
+	public synchronized void destroy() {
+		if (defaultResetExecutor != null) {
+			defaultResetExecutor.shutdown();
+			defaultResetExecutor = null;
+			resetExecutor = null;
+		}
+	}
+
+	private synchronized Executor resetExecutor() {
+		if (resetExecutor == null) {
+			ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+			executor.setThreadNamePrefix("aggregate-counter-reset-");
+			executor.setCorePoolSize(1);
+			executor.setMaxPoolSize(1);
+			executor.setQueueCapacity(100);
+			// Let pending resets release their keys
+			executor.setWaitForTasksToCompleteOnShutdown(true);
+			executor.initialize();
+			defaultResetExecutor = executor;
+			resetExecutor = executor;
+		}
+		return resetExecutor;
+	}
+
+	/**
+	 * Release the given keys with {@code UNLINK} and, if a bookkeeping set is given, forget them there too, in a single
+	 * round trip.
+	 */
+	private void unlink(final String bookkeepingKey, final List<String> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		final RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+		final byte[][] rawKeys = new byte[keys.size()][];
+		for (int i = 0; i < rawKeys.length; i++) {
+			rawKeys[i] = serializer.serialize(keys.get(i));
+		}
+		redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				connection.execute("UNLINK", rawKeys);
+				if (bookkeepingKey != null) {
+					connection.sRem(serializer.serialize(bookkeepingKey), rawKeys);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Reads the counters of the enclosing repository with a {@link ReactiveRedisTemplate}.
+	 */
+	private class ReactiveReader implements ReactiveAggregateCounterReader {
+
+		private final ReactiveRedisTemplate<String, String> template;
+
+		private ReactiveReader(ReactiveRedisTemplate<String, String> template) {
+			this.template = template;
+		}
+
+		@Override
+		public Mono<Boolean> exists(String name) {
+			return template.opsForSet().isMember(AGGREGATE_COUNTER_KEY_PREFIX, name);
+		}
+
+		@Override
+		public Mono<AggregateCounter> getCounts(String name, Interval interval, AggregateCounterResolution resolution) {
+			final AggregateCountsQuery query = new AggregateCountsQuery(AGGREGATE_COUNTER_KEY_PREFIX, name, interval,
+					resolution);
+			final ReactiveHashOperations<String, String, String> hashOperations = template.opsForHash();
+			return Flux.fromIterable(query.getKeys())
+					.flatMapSequential(key -> hashOperations.entries(key)
+							.collectMap(Map.Entry::getKey, entry -> Long.valueOf(entry.getValue())))
+					.collectList()
+					.map(query::assemble);
+		}
+
+		@Override
+		public Flux<String> list(String prefix, long offset, int limit) {
+			Assert.isTrue(offset >= 0, "offset must not be negative");
+			Assert.isTrue(limit >= 0, "limit must not be negative");
+			if (limit == 0) {
+				return Flux.empty();
+			}
+			return NameIndexes.afterCheck(nameIndexChecked, RedisAggregateCounterRepository.this::checkNameIndex,
+					NameIndexes.range(template, NAME_INDEX_KEY, prefix, offset, limit));
+		}
+
+		@Override
+		public Mono<Long> count(String prefix) {
+			Mono<Long> count = !StringUtils.hasLength(prefix)
+					? template.opsForZSet().size(NAME_INDEX_KEY)
+					: template.execute(NameIndexes.COUNT_SCRIPT, Collections.singletonList(NAME_INDEX_KEY),
+							Arrays.asList(NameIndexes.min(prefix), NameIndexes.max(prefix))).next();
+			return NameIndexes.afterCheck(nameIndexChecked, RedisAggregateCounterRepository.this::checkNameIndex,
+					count);
 		}
 	}
+
 }
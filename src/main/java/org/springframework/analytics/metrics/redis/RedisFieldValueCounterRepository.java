@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2018 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,28 +15,194 @@
  */
 package org.springframework.analytics.metrics.redis;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.Duration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.FieldValueCounterPruningPolicy;
 import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.ForwardDecay;
+import org.springframework.analytics.metrics.RankedFieldValue;
+import org.springframework.analytics.metrics.ReactiveFieldValueCounterReader;
 import org.springframework.analytics.retry.StringRedisRetryTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.DefaultStringTuple;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection.StringTuple;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.retry.RetryOperations;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import static java.lang.Math.toIntExact;
+
+/**
+ * Redis implementation of {@link FieldValueCounterRepository}, storing each counter as a sorted set.
+ *
+ * <p>
+ * When a {@link ForwardDecay} is set, increments are weighted relative to a per counter landmark kept in a separate
+ * hash, by a script that also renormalizes the sorted set in place when weights grow too large. Ranking by stored
+ * score is unaffected by decay, and decayed values are only computed when reading.
+ * </p>
+ *
+ * <p>
+ * Pruning policies are enforced every {@link #setPruningInterval(int) so many} writes to a counter (as counted by this
+ * instance), using {@code ZREMRANGEBYSCORE} and {@code ZREMRANGEBYRANK}. By default the write that makes a counter due
+ * prunes it, and thus pays for a pass over the sorted set. With a {@link #setPruningSweepInterval(Duration) sweep}
+ * configured, due counters are pruned in the background instead.
+ * </p>
+ *
+ * <p>
+ * Counter names are kept in a separate sorted set, all with the same score, so that they can be listed by
+ * lexicographic range without scanning the keyspace. Counters written before that index existed are added to it
+ * with {@link #rebuildNameIndex()}, the first time the index is read.
+ * </p>
+ */
+public class RedisFieldValueCounterRepository implements FieldValueCounterRepository, DisposableBean {
 
-public class RedisFieldValueCounterRepository implements FieldValueCounterRepository {
+	private static final RedisScript<String> DECAYING_INCREMENT_SCRIPT = new DefaultRedisScript<>(
+			// KEYS: counter, landmarks, names ARGV: name, field, score, now, lambda, max exponent
+			"local now = tonumber(ARGV[4])\n" +
+			"local landmark = tonumber(redis.call('HGET', KEYS[2], ARGV[1]))\n" +
+			"if not landmark then\n" +
+			"  landmark = now\n" +
+			"  redis.call('HSET', KEYS[2], ARGV[1], ARGV[4])\n" +
+			"end\n" +
+			"local exponent = tonumber(ARGV[5]) * (now - landmark)\n" +
+			"if exponent > tonumber(ARGV[6]) then\n" +
+			"  redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', string.format('%.17g', math.exp(-exponent)))\n" +
+			"  redis.call('HSET', KEYS[2], ARGV[1], ARGV[4])\n" +
+			"  exponent = 0\n" +
+			"end\n" +
+			"redis.call('ZADD', KEYS[3], 0, ARGV[1])\n" +
+			"return redis.call('ZINCRBY', KEYS[1], string.format('%.17g', tonumber(ARGV[3]) * math.exp(exponent)), ARGV[2])",
+			String.class);
+
+	/**
+	 * Reads a range of the fields of a counter by rank, along with its landmark, so that scores are never scaled by
+	 * the landmark of another renormalization. KEYS: counter, landmarks ARGV: name, start, stop, ZRANGE or ZREVRANGE
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> RANGE_SCRIPT = new DefaultRedisScript<>(
+			"local result = redis.call(ARGV[4], KEYS[1], ARGV[2], ARGV[3], 'WITHSCORES')\n" +
+			"table.insert(result, 1, redis.call('HGET', KEYS[2], ARGV[1]) or '')\n" +
+			"return result",
+			List.class);
+
+	/**
+	 * Reads the scores of some fields of a counter ({@literal ''} for missing fields), along with its landmark.
+	 * KEYS: counter, landmarks ARGV: name, fields...
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> SCORES_SCRIPT = new DefaultRedisScript<>(
+			"local result = {redis.call('HGET', KEYS[2], ARGV[1]) or ''}\n" +
+			"for i = 2, #ARGV do\n" +
+			"  result[i] = redis.call('ZSCORE', KEYS[1], ARGV[i]) or ''\n" +
+			"end\n" +
+			"return result",
+			List.class);
+
+	/**
+	 * Reads the landmark of a counter, the reverse rank of one of its fields and its score ({@literal ''} when missing).
+	 * KEYS: counter, landmarks ARGV: name, field
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> RANK_AND_SCORE_SCRIPT = new DefaultRedisScript<>(
+			"local rank = redis.call('ZREVRANK', KEYS[1], ARGV[2])\n" +
+			"if not rank then\n" +
+			"  return {}\n" +
+			"end\n" +
+			"return {redis.call('HGET', KEYS[2], ARGV[1]) or '', tostring(rank), redis.call('ZSCORE', KEYS[1], ARGV[2])}",
+			List.class);
+
+	/**
+	 * Enforces a pruning policy, translating the minimum score to the landmark of the counter at the time of pruning.
+	 * KEYS: counter, landmarks ARGV: name, min score or '', stop rank or '', now, lambda or ''
+	 */
+	private static final RedisScript<Long> PRUNE_SCRIPT = new DefaultRedisScript<>(
+			"local removed = 0\n" +
+			"if ARGV[2] ~= '' then\n" +
+			"  local threshold = tonumber(ARGV[2])\n" +
+			"  local landmark = tonumber(redis.call('HGET', KEYS[2], ARGV[1]))\n" +
+			"  if landmark and ARGV[5] ~= '' then\n" +
+			"    threshold = threshold * math.exp(tonumber(ARGV[5]) * (tonumber(ARGV[4]) - landmark))\n" +
+			"  end\n" +
+			"  local max = '(' .. string.format('%.17g', threshold)\n" +
+			"  removed = removed + redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', max)\n" +
+			"end\n" +
+			"if ARGV[3] ~= '' then\n" +
+			"  removed = removed + redis.call('ZREMRANGEBYRANK', KEYS[1], 0, ARGV[3])\n" +
+			"end\n" +
+			"return removed",
+			Long.class);
 
 	private final String metricPrefix;
 
+	private final String landmarksKey;
+
+	private final String namesKey;
+
+	private final String namesRebuiltKey;
+
 	private final StringRedisRetryTemplate redisTemplate;
 
+	private final Map<String, FieldValueCounterPruningPolicy> pruningPolicies = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> writesSincePruning = new ConcurrentHashMap<>();
+
+	private final AtomicLong prunedFieldCount = new AtomicLong();
+
+	/**
+	 * Counters due for pruning, when a sweep prunes them.
+	 */
+	private final Set<String> duePruning = ConcurrentHashMap.newKeySet();
+
+	private volatile ForwardDecay decay;
+
+	private volatile FieldValueCounterPruningPolicy defaultPruningPolicy = FieldValueCounterPruningPolicy.NONE;
+
+	private volatile int pruningInterval = 1000;
+
+	private volatile boolean nameIndexChecked;
+
+	private ScheduledExecutorService sweeper;
+
+	private volatile ScheduledFuture<?> sweep;
+
 	public RedisFieldValueCounterRepository(RedisConnectionFactory connectionFactory, RetryOperations retryOperations) {
 		this(connectionFactory, "fieldvaluecounters.", retryOperations);
 	}
@@ -46,54 +212,521 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		Assert.notNull(connectionFactory);
 		Assert.hasText(metricPrefix, "metric prefix cannot be empty");
 		this.metricPrefix = metricPrefix;
+		this.landmarksKey = "metric_meta." + metricPrefix + "landmarks";
+		this.namesKey = "metric_meta." + metricPrefix + "names";
+		this.namesRebuiltKey = namesKey + ".rebuilt";
 		redisTemplate = new StringRedisRetryTemplate(connectionFactory, retryOperations);
 		// avoids proxy
 		redisTemplate.setExposeConnection(true);
 		redisTemplate.afterPropertiesSet();
 	}
 
+	/**
+	 * Make this repository decay scores exponentially over time. Should be set before any counter is written to, and
+	 * consistently across all repositories sharing the same keys.
+	 *
+	 * @param decay the decay to apply, or {@literal null} to keep all-time totals
+	 */
+	public void setDecay(ForwardDecay decay) {
+		this.decay = decay;
+	}
+
+	/**
+	 * Set the pruning policy of counters that don't have one of their own.
+	 *
+	 * @param policy the policy to apply
+	 */
+	public void setDefaultPruningPolicy(FieldValueCounterPruningPolicy policy) {
+		Assert.notNull(policy, "policy must not be null");
+		this.defaultPruningPolicy = policy;
+	}
+
+	/**
+	 * Set the pruning policy of a given counter.
+	 *
+	 * @param name the name of the counter
+	 * @param policy the policy to apply, or {@literal null} to revert to the default policy
+	 */
+	public void setPruningPolicy(String name, FieldValueCounterPruningPolicy policy) {
+		if (policy == null) {
+			pruningPolicies.remove(name);
+		}
+		else {
+			pruningPolicies.put(name, policy);
+		}
+	}
+
+	/**
+	 * Set the number of writes to a counter after which its pruning policy is enforced. Defaults to 1000.
+	 *
+	 * @param pruningInterval the number of writes between two prunings
+	 */
+	public void setPruningInterval(int pruningInterval) {
+		Assert.isTrue(pruningInterval > 0, "pruningInterval must be positive");
+		this.pruningInterval = pruningInterval;
+	}
+
+	/**
+	 * Prune counters that are due in the background, rather than on the thread of the write that makes them due.
+	 *
+	 * @param interval the time between two sweeps, or {@literal null} to prune due counters as they are written to
+	 */
+	public synchronized void setPruningSweepInterval(Duration interval) {
+		if (sweep != null) {
+			sweep.cancel(false);
+			sweep = null;
+		}
+		if (interval != null) {
+			if (sweeper == null) {
+				sweeper = Executors.newSingleThreadScheduledExecutor(
+						new CustomizableThreadFactory("field-value-counter-pruning-"));
+			}
+			sweep = sweeper.scheduleWithFixedDelay(this::pruneDue, interval.getMillis(), interval.getMillis(),
+					TimeUnit.MILLISECONDS);
+		}
+		else {
+			pruneDue();
+		}
+	}
+
+	/**
+	 * Enforce the pruning policy of every counter that has been written to enough times since it was last pruned.
+	 */
+	public void pruneDue() {
+		for (Iterator<String> it = duePruning.iterator(); it.hasNext();) {
+			String counterName = it.next();
+			it.remove();
+			prune(counterName);
+		}
+	}
+
+	/**
+	 * @return the total number of fields discarded by pruning through this repository
+	 */
+	public long getPrunedFieldCount() {
+		return prunedFieldCount.get();
+	}
+
+	/**
+	 * Enforce the pruning policy of a given counter right away.
+	 *
+	 * @param counterName the name of the counter
+	 */
+	public void prune(String counterName) {
+		final FieldValueCounterPruningPolicy policy = pruningPolicyFor(counterName);
+		if (!policy.isPruning()) {
+			return;
+		}
+		ForwardDecay decay = this.decay;
+		Long removed = redisTemplate.execute(PRUNE_SCRIPT, Arrays.asList(getMetricKey(counterName), landmarksKey),
+				counterName,
+				policy.hasMinScore() ? String.valueOf(policy.getMinScore()) : "",
+				policy.hasMaxCardinality() ? String.valueOf(-policy.getMaxCardinality() - 1) : "",
+				String.valueOf(System.currentTimeMillis()),
+				decay == null ? "" : String.valueOf(decay.getLambda()));
+		if (removed != null) {
+			prunedFieldCount.addAndGet(removed);
+		}
+	}
+
 	@Override
 	public FieldValueCounter findOne(String name) {
 		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
-		String metricKey = getMetricKey(name);
-		if (redisTemplate.hasKey(metricKey)) {
-			Map<String, Double> values = getZSetData(metricKey);
-			FieldValueCounter c = new FieldValueCounter(name, values);
-			return c;
+		List<?> result = redisTemplate.execute(RANGE_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+				name, "0", "-1", "ZRANGE");
+		Map<String, Double> values = decodeRange(result, this.decay, new HashMap<>());
+		return values.isEmpty() ? null : new FieldValueCounter(name, values);
+	}
+
+	@Override
+	public Double findScore(String name, String fieldName) {
+		Assert.notNull(fieldName, "The name of the field must not be null");
+		return findScores(name, Collections.singleton(fieldName)).get(fieldName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Issues one {@code ZSCORE} per field, along with a lookup of the counter landmark, all in a single script.
+	 * </p>
+	 */
+	@Override
+	public Map<String, Double> findScores(String name, Collection<String> fieldNames) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.notNull(fieldNames, "fieldNames must not be null");
+		if (fieldNames.isEmpty()) {
+			return Collections.emptyMap();
 		}
-		else {
-			return null;
+		List<String> fields = new ArrayList<>(fieldNames);
+		List<String> args = new ArrayList<>(fields.size() + 1);
+		args.add(name);
+		args.addAll(fields);
+		List<?> result = redisTemplate.execute(SCORES_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+				args.toArray());
+		return decodeScores(fields, result, this.decay);
+	}
+
+	@Override
+	public FieldValueCounter findRange(String name, long offset, int limit) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.isTrue(offset >= 0, "offset must not be negative");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		Map<String, Double> values = new LinkedHashMap<>(limit * 2);
+		if (limit == 0) {
+			return new FieldValueCounter(name, values);
 		}
+		List<?> result = redisTemplate.execute(RANGE_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+				name, String.valueOf(offset), String.valueOf(offset + limit - 1), "ZREVRANGE");
+		return new FieldValueCounter(name, decodeRange(result, this.decay, values));
+	}
+
+	@Override
+	public Long findRank(String name, String fieldName) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.notNull(fieldName, "The name of the field must not be null");
+		return redisTemplate.opsForZSet().reverseRank(getMetricKey(name), fieldName);
+	}
+
+	@Override
+	public RankedFieldValue findRankAndScore(String name, String fieldName) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.notNull(fieldName, "The name of the field must not be null");
+		List<?> result = redisTemplate.execute(RANK_AND_SCORE_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+				name, fieldName);
+		return decodeRankAndScore(fieldName, result, this.decay);
+	}
+
+	@Override
+	public long countFields(String name) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Long count = redisTemplate.opsForZSet().zCard(getMetricKey(name));
+		return count == null ? 0L : count;
+	}
+
+	@Override
+	public boolean exists(String name) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		return Boolean.TRUE.equals(redisTemplate.hasKey(getMetricKey(name)));
 	}
 
 	@Override
 	public Collection<String> list() {
-		Set<String> keys = redisTemplate.keys(getMetricKey("*"));
-		if (keys != null && !keys.isEmpty()) {
-			Set<String> names = new HashSet<>(keys.size());
-			for (String key : keys) {
-				names.add(getCounterName(key));
+		checkNameIndex();
+		Set<String> names = redisTemplate.opsForZSet().range(namesKey, 0, -1);
+		return names == null ? Collections.<String>emptySet() : names;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Names are read from a sorted set with {@code ZRANGEBYLEX}, so that only the requested page is transferred.
+	 * </p>
+	 */
+	@Override
+	public List<String> list(String prefix, long offset, int limit) {
+		Assert.isTrue(offset >= 0, "offset must not be negative");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		if (limit == 0) {
+			return Collections.emptyList();
+		}
+		checkNameIndex();
+		Set<String> names = redisTemplate.opsForZSet().rangeByLex(namesKey, NameIndexes.range(prefix),
+				RedisZSetCommands.Limit.limit().offset(toIntExact(offset)).count(limit));
+		return names == null ? Collections.<String>emptyList() : new ArrayList<>(names);
+	}
+
+	@Override
+	public long count(String prefix) {
+		checkNameIndex();
+		Long count;
+		if (!StringUtils.hasLength(prefix)) {
+			count = redisTemplate.opsForZSet().zCard(namesKey);
+		}
+		else {
+			count = redisTemplate.execute(NameIndexes.COUNT_SCRIPT, Collections.singletonList(namesKey),
+					NameIndexes.min(prefix), NameIndexes.max(prefix));
+		}
+		return count == null ? 0L : count;
+	}
+
+	/**
+	 * Add all the counters stored under this repository prefix to the sorted name index, which is only maintained for
+	 * counters written since it was introduced. This scans the keyspace, and is done automatically the first time the
+	 * index is read by any repository sharing the same keys. It may be needed again if older versions keep writing
+	 * new counters. Names are added in batches, with one {@code ZADD} per batch.
+	 */
+	public void rebuildNameIndex() {
+		redisTemplate.execute(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+				Set<StringTuple> batch = new HashSet<>();
+				try (Cursor<byte[]> keys = connection.scan(ScanOptions.scanOptions().match(getMetricKey("*"))
+						.count(NameIndexes.REBUILD_BATCH_SIZE).build())) {
+					while (keys.hasNext()) {
+						String name = getCounterName(serializer.deserialize(keys.next()));
+						batch.add(new DefaultStringTuple(serializer.serialize(name), name, 0d));
+						if (batch.size() >= NameIndexes.REBUILD_BATCH_SIZE) {
+							stringConnection.zAdd(namesKey, batch);
+							batch.clear();
+						}
+					}
+					if (!batch.isEmpty()) {
+						stringConnection.zAdd(namesKey, batch);
+					}
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Could not close cursor over " + metricPrefix + "*", e);
+				}
+				return null;
 			}
-			return names;
+		});
+		redisTemplate.opsForValue().set(namesRebuiltKey, String.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Rebuild the name index unless some repository has done it already, which is only checked once per repository.
+	 */
+	private void checkNameIndex() {
+		if (nameIndexChecked) {
+			return;
+		}
+		if (!Boolean.TRUE.equals(redisTemplate.hasKey(namesRebuiltKey))) {
+			rebuildNameIndex();
 		}
-		return Collections.EMPTY_SET;
+		nameIndexChecked = true;
 	}
 
 	@Override
 	public void increment(String counterName, String fieldName, double score) {
-		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, score);
+		doIncrement(counterName, fieldName, score);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Unless scores decay, all fields are incremented in a single pipeline.
+	 * </p>
+	 */
+	@Override
+	public void increment(final String counterName, final Map<String, Double> scores) {
+		Assert.notNull(counterName, "The name of the FieldValueCounter must not be null");
+		Assert.notNull(scores, "scores must not be null");
+		if (scores.isEmpty()) {
+			return;
+		}
+		if (decay != null) {
+			// The decaying script reads and may renormalize the whole counter, one field at a time
+			for (Map.Entry<String, Double> entry : scores.entrySet()) {
+				doIncrement(counterName, entry.getKey(), entry.getValue());
+			}
+			return;
+		}
+		final String metricKey = getMetricKey(counterName);
+		redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				for (Map.Entry<String, Double> entry : scores.entrySet()) {
+					stringConnection.zIncrBy(metricKey, entry.getValue(), entry.getKey());
+				}
+				stringConnection.zAdd(namesKey, 0d, counterName);
+				return null;
+			}
+		});
+		countWrites(counterName, scores.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Unless scores decay, all counters are incremented in a single pipeline.
+	 * </p>
+	 */
+	@Override
+	public void increment(final Map<String, Map<String, Double>> scores) {
+		Assert.notNull(scores, "scores must not be null");
+		for (Map.Entry<String, Map<String, Double>> entry : scores.entrySet()) {
+			Assert.notNull(entry.getKey(), "The name of the FieldValueCounter must not be null");
+			Assert.notNull(entry.getValue(), "scores must not be null");
+		}
+		if (decay != null) {
+			for (Map.Entry<String, Map<String, Double>> entry : scores.entrySet()) {
+				increment(entry.getKey(), entry.getValue());
+			}
+			return;
+		}
+		redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				for (Map.Entry<String, Map<String, Double>> counter : scores.entrySet()) {
+					if (counter.getValue().isEmpty()) {
+						continue;
+					}
+					String metricKey = getMetricKey(counter.getKey());
+					for (Map.Entry<String, Double> entry : counter.getValue().entrySet()) {
+						stringConnection.zIncrBy(metricKey, entry.getValue(), entry.getKey());
+					}
+					stringConnection.zAdd(namesKey, 0d, counter.getKey());
+				}
+				return null;
+			}
+		});
+		for (Map.Entry<String, Map<String, Double>> entry : scores.entrySet()) {
+			if (!entry.getValue().isEmpty()) {
+				countWrites(entry.getKey(), entry.getValue().size());
+			}
+		}
 	}
 
 	@Override
 	public void decrement(String counterName, String fieldName, double score) {
-		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, -score);
+		doIncrement(counterName, fieldName, -score);
 	}
 
 	@Override
 	public void reset(String counterName) {
+		writesSincePruning.remove(counterName);
+		duePruning.remove(counterName);
 		redisTemplate.delete(getMetricKey(counterName));
+		redisTemplate.opsForZSet().remove(namesKey, counterName);
+		if (decay != null) {
+			redisTemplate.opsForHash().delete(landmarksKey, counterName);
+		}
 	}
 
+	@Override
+	public synchronized void destroy() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+			sweeper = null;
+			sweep = null;
+		}
+	}
+
+	private void doIncrement(final String counterName, final String fieldName, final double score) {
+		ForwardDecay decay = this.decay;
+		if (decay == null) {
+			final String metricKey = getMetricKey(counterName);
+			redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+				@Override
+				public Object doInRedis(RedisConnection connection) {
+					StringRedisConnection stringConnection = (StringRedisConnection) connection;
+					stringConnection.zIncrBy(metricKey, score, fieldName);
+					stringConnection.zAdd(namesKey, 0d, counterName);
+					return null;
+				}
+			});
+		}
+		else {
+			redisTemplate.execute(DECAYING_INCREMENT_SCRIPT,
+					Arrays.asList(getMetricKey(counterName), landmarksKey, namesKey),
+					counterName, fieldName, String.valueOf(score), String.valueOf(System.currentTimeMillis()),
+					String.valueOf(decay.getLambda()), String.valueOf(ForwardDecay.MAX_EXPONENT));
+		}
+		countWrites(counterName, 1);
+	}
+
+	/**
+	 * Account for writes to a counter, pruning it when due.
+	 */
+	private void countWrites(String counterName, int count) {
+		if (pruningPolicyFor(counterName).isPruning()) {
+			AtomicInteger writes = writesSincePruning.computeIfAbsent(counterName, n -> new AtomicInteger());
+			if (writes.addAndGet(count) >= pruningInterval) {
+				writes.set(0);
+				if (sweep != null) {
+					duePruning.add(counterName);
+				}
+				else {
+					prune(counterName);
+				}
+			}
+		}
+	}
+
+	private FieldValueCounterPruningPolicy pruningPolicyFor(String name) {
+		FieldValueCounterPruningPolicy policy = pruningPolicies.get(name);
+		return policy == null ? defaultPruningPolicy : policy;
+	}
+
+	/**
+	 * Return a non blocking view of the counters of this repository, reading them over the given connection factory.
+	 * Scores read through the view are decayed as per {@link #setDecay(ForwardDecay)}, but failed operations are not
+	 * retried.
+	 *
+	 * @param connectionFactory the reactive connection factory to read counters with
+	 * @return a reader of the counters of this repository
+	 */
+	public ReactiveFieldValueCounterReader reactiveReader(ReactiveRedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		return new ReactiveReader(new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.string()));
+	}
+
+	/**
+	 * Decode the result of {@link #RANGE_SCRIPT} into the given map, scaling scores by the decay factor of the landmark
+	 * read along with them.
+	 */
+	private static Map<String, Double> decodeRange(List<?> result, ForwardDecay decay, Map<String, Double> values) {
+		if (result == null || result.isEmpty()) {
+			return values;
+		}
+		double factor = decayFactor(result.get(0), decay);
+		for (int i = 1; i + 1 < result.size(); i += 2) {
+			values.put(String.valueOf(result.get(i)), Double.parseDouble(String.valueOf(result.get(i + 1))) * factor);
+		}
+		return values;
+	}
+
+	/**
+	 * Decode the result of {@link #SCORES_SCRIPT} for the given fields, scaling scores by the decay factor of the
+	 * landmark read along with them.
+	 */
+	private static Map<String, Double> decodeScores(List<String> fields, List<?> result, ForwardDecay decay) {
+		Map<String, Double> values = new HashMap<>(fields.size() * 2);
+		if (result == null || result.isEmpty()) {
+			return values;
+		}
+		double factor = decayFactor(result.get(0), decay);
+		for (int i = 0; i < fields.size() && i + 1 < result.size(); i++) {
+			String score = String.valueOf(result.get(i + 1));
+			if (!score.isEmpty()) {
+				values.put(fields.get(i), Double.parseDouble(score) * factor);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Decode the result of {@link #RANK_AND_SCORE_SCRIPT}, scaling the score by the decay factor of the landmark read
+	 * along with it.
+	 */
+	private static RankedFieldValue decodeRankAndScore(String field, List<?> result, ForwardDecay decay) {
+		if (result == null || result.size() < 3) {
+			return null;
+		}
+		return new RankedFieldValue(field,
+				Double.parseDouble(String.valueOf(result.get(2))) * decayFactor(result.get(0), decay),
+				Long.parseLong(String.valueOf(result.get(1))));
+	}
+
+	/**
+	 * Return the factor by which stored scores should be multiplied to get their decayed value as of now, given the
+	 * landmark of their counter ({@literal ''} if it has none).
+	 */
+	private static double decayFactor(Object landmark, ForwardDecay decay) {
+		String value = String.valueOf(landmark);
+		if (decay == null || value.isEmpty()) {
+			return 1d;
+		}
+		return decay.decayFactor(System.currentTimeMillis(), Long.parseLong(value));
+	}
 
 	/**
 	 * Provides the key for a named metric. By default this prepends the name to the metricPrefix value.
@@ -125,4 +758,115 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		return values;
 	}
 
+	/**
+	 * Reads the counters of the enclosing repository with a {@link ReactiveRedisTemplate}.
+	 */
+	private class ReactiveReader implements ReactiveFieldValueCounterReader {
+
+		private final ReactiveRedisTemplate<String, String> template;
+
+		private ReactiveReader(ReactiveRedisTemplate<String, String> template) {
+			this.template = template;
+		}
+
+		@Override
+		public Mono<FieldValueCounter> findOne(String name) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			ForwardDecay decay = RedisFieldValueCounterRepository.this.decay;
+			return template.execute(RANGE_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+					Arrays.asList(name, "0", "-1", "ZRANGE")).next()
+					.map(result -> decodeRange(result, decay, new HashMap<>()))
+					.filter(values -> !values.isEmpty())
+					.map(values -> new FieldValueCounter(name, values));
+		}
+
+		@Override
+		public Mono<Double> findScore(String name, String fieldName) {
+			Assert.notNull(fieldName, "The name of the field must not be null");
+			return findScores(name, Collections.singletonList(fieldName))
+					.flatMap(scores -> Mono.justOrEmpty(scores.get(fieldName)));
+		}
+
+		@Override
+		public Mono<Map<String, Double>> findScores(String name, Collection<String> fieldNames) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			Assert.notNull(fieldNames, "fieldNames must not be null");
+			if (fieldNames.isEmpty()) {
+				return Mono.just(Collections.emptyMap());
+			}
+			ForwardDecay decay = RedisFieldValueCounterRepository.this.decay;
+			List<String> fields = new ArrayList<>(fieldNames);
+			List<String> args = new ArrayList<>(fields.size() + 1);
+			args.add(name);
+			args.addAll(fields);
+			return template.execute(SCORES_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey), args).next()
+					.map(result -> decodeScores(fields, result, decay));
+		}
+
+		@Override
+		public Mono<FieldValueCounter> findRange(String name, long offset, int limit) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			Assert.isTrue(offset >= 0, "offset must not be negative");
+			Assert.isTrue(limit >= 0, "limit must not be negative");
+			if (limit == 0) {
+				return Mono.just(new FieldValueCounter(name, new LinkedHashMap<>()));
+			}
+			ForwardDecay decay = RedisFieldValueCounterRepository.this.decay;
+			return template.execute(RANGE_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+					Arrays.asList(name, String.valueOf(offset), String.valueOf(offset + limit - 1), "ZREVRANGE")).next()
+					.map(result -> new FieldValueCounter(name,
+							decodeRange(result, decay, new LinkedHashMap<>(limit * 2))));
+		}
+
+		@Override
+		public Mono<Long> findRank(String name, String fieldName) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			Assert.notNull(fieldName, "The name of the field must not be null");
+			return template.opsForZSet().reverseRank(getMetricKey(name), fieldName);
+		}
+
+		@Override
+		public Mono<RankedFieldValue> findRankAndScore(String name, String fieldName) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			Assert.notNull(fieldName, "The name of the field must not be null");
+			ForwardDecay decay = RedisFieldValueCounterRepository.this.decay;
+			return template.execute(RANK_AND_SCORE_SCRIPT, Arrays.asList(getMetricKey(name), landmarksKey),
+					Arrays.asList(name, fieldName)).next()
+					.flatMap(result -> Mono.justOrEmpty(decodeRankAndScore(fieldName, result, decay)));
+		}
+
+		@Override
+		public Mono<Long> countFields(String name) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			return template.opsForZSet().size(getMetricKey(name)).defaultIfEmpty(0L);
+		}
+
+		@Override
+		public Mono<Boolean> exists(String name) {
+			Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+			return template.hasKey(getMetricKey(name));
+		}
+
+		@Override
+		public Flux<String> list(String prefix, long offset, int limit) {
+			Assert.isTrue(offset >= 0, "offset must not be negative");
+			Assert.isTrue(limit >= 0, "limit must not be negative");
+			if (limit == 0) {
+				return Flux.empty();
+			}
+			return NameIndexes.afterCheck(nameIndexChecked, RedisFieldValueCounterRepository.this::checkNameIndex,
+					NameIndexes.range(template, namesKey, prefix, offset, limit));
+		}
+
+		@Override
+		public Mono<Long> count(String prefix) {
+			Mono<Long> count = !StringUtils.hasLength(prefix)
+					? template.opsForZSet().size(namesKey)
+					: template.execute(NameIndexes.COUNT_SCRIPT, Collections.singletonList(namesKey),
+							Arrays.asList(NameIndexes.min(prefix), NameIndexes.max(prefix))).next();
+			return NameIndexes.afterCheck(nameIndexChecked, RedisFieldValueCounterRepository.this::checkNameIndex,
+					count);
+		}
+	}
+
 }
@@ -16,30 +16,125 @@
 
 package org.springframework.analytics.metrics.redis;
 
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.metrics.ReactiveMetricReader;
 import org.springframework.analytics.rest.domain.Delta;
 import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
 import org.springframework.data.redis.core.BoundZSetOperations;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.util.Assert;
 
+import java.io.IOException;
 import java.util.*;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 /**
  * Redis implementation of metric information. Metric values are stored
  * as zset values plus a regular hash value for the timestamp, both against a key composed
  * of the metric name prefixed with a constant (default "spring.metrics."). If you have
  * multiple metrics repositories all point at the same instance of Redis, it may be useful
  * to change the prefix to be unique (but not if you want them to contribute to the same
- * metrics).
+ * metrics). Other layouts can be chosen with {@link #setStorage(Storage)}.
+ *
+ * <p>
+ * Writes update the value and the timestamp of a metric atomically, with a single server side script, and
+ * {@link #findOne(String)} reads both in a single call.
+ * </p>
+ *
+ * <p>
+ * Metrics are also indexed by type (the part of their name before the first dot, <i>e.g.</i> {@code counter}) in
+ * lexicographically ordered zsets, so that metrics of a given type can be paged through with
+ * {@link #findAll(String, long, int)} at a cost proportional to the page size. Metrics written by earlier versions
+ * are added to these indexes with {@link #rebuildTypeIndex()}, the first time one of them is read.
+ * </p>
  *
  * @author Dave Syer
  */
-public class RedisMetricRepository {
+public class RedisMetricRepository implements MetricRepository {
+
+	// KEYS: index, metric key, values, [type index]. ARGV: delta, timestamp
+	private static final RedisScript<String> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+			"local value = redis.call('ZINCRBY', KEYS[1], ARGV[1], KEYS[2])\n" +
+			"redis.call('SET', KEYS[2], ARGV[2])\n" +
+			"if #KEYS > 3 then redis.call('ZADD', KEYS[4], 0, KEYS[2]) end\n" +
+			"return value", String.class);
+
+	// KEYS: index, metric key, values, [type index]. ARGV: value, timestamp
+	private static final RedisScript<Long> SET_SCRIPT = new DefaultRedisScript<>(
+			"redis.call('ZADD', KEYS[1], ARGV[1], KEYS[2])\n" +
+			"redis.call('SET', KEYS[2], ARGV[2])\n" +
+			"if #KEYS > 3 then redis.call('ZADD', KEYS[4], 0, KEYS[2]) end\n" +
+			"return 1", Long.class);
+
+	// KEYS: index, metric key, values, [type index]. ARGV: delta, timestamp
+	private static final RedisScript<Long> INCREMENT_INTEGER_SCRIPT = new DefaultRedisScript<>(
+			"redis.call('ZADD', KEYS[1], 0, KEYS[2])\n" +
+			"redis.call('SET', KEYS[2], ARGV[2])\n" +
+			"if #KEYS > 3 then redis.call('ZADD', KEYS[4], 0, KEYS[2]) end\n" +
+			"return redis.call('HINCRBY', KEYS[3], KEYS[2], ARGV[1])", Long.class);
+
+	// KEYS: index, metric key, values, [type index]. ARGV: value, timestamp
+	private static final RedisScript<Long> SET_INTEGER_SCRIPT = new DefaultRedisScript<>(
+			"redis.call('ZADD', KEYS[1], 0, KEYS[2])\n" +
+			"redis.call('SET', KEYS[2], ARGV[2])\n" +
+			"if #KEYS > 3 then redis.call('ZADD', KEYS[4], 0, KEYS[2]) end\n" +
+			"redis.call('HSET', KEYS[3], KEYS[2], ARGV[1])\n" +
+			"return 1", Long.class);
+
+	// KEYS: index, metric key, values, [type index]. ARGV: delta, timestamp
+	private static final RedisScript<Long> INCREMENT_HASH_SCRIPT = new DefaultRedisScript<>(
+			"local value = tonumber(ARGV[1])\n" +
+			"local current = redis.call('HGET', KEYS[3], KEYS[2])\n" +
+			"if current then\n" +
+			"  value = value + tonumber(string.sub(current, 1, string.find(current, ':', 1, true) - 1))\n" +
+			"end\n" +
+			"redis.call('HSET', KEYS[3], KEYS[2], string.format('%.17g', value) .. ':' .. ARGV[2])\n" +
+			"if #KEYS > 3 then redis.call('ZADD', KEYS[4], 0, KEYS[2]) end\n" +
+			"return 1", Long.class);
+
+	// KEYS: index, metric key, values, [type index]. ARGV: value, timestamp
+	private static final RedisScript<Long> SET_HASH_SCRIPT = new DefaultRedisScript<>(
+			"redis.call('HSET', KEYS[3], KEYS[2], ARGV[1] .. ':' .. ARGV[2])\n" +
+			"if #KEYS > 3 then redis.call('ZADD', KEYS[4], 0, KEYS[2]) end\n" +
+			"return 1", Long.class);
+
+	// KEYS: index, metric key, values, [type index]
+	private static final RedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+			"local removed = redis.call('ZREM', KEYS[1], KEYS[2])\n" +
+			"redis.call('DEL', KEYS[2])\n" +
+			"redis.call('HDEL', KEYS[3], KEYS[2])\n" +
+			"if #KEYS > 3 then redis.call('ZREM', KEYS[4], KEYS[2]) end\n" +
+			"return removed", Long.class);
+
+	// KEYS: index, metric key
+	private static final RedisScript<List> FIND_ONE_SCRIPT = new DefaultRedisScript<>(
+			"return {redis.call('GET', KEYS[2]), redis.call('ZSCORE', KEYS[1], KEYS[2])}", List.class);
+
+	// KEYS: values, metric key
+	private static final RedisScript<List> FIND_ONE_INTEGER_SCRIPT = new DefaultRedisScript<>(
+			"return {redis.call('GET', KEYS[2]), redis.call('HGET', KEYS[1], KEYS[2])}", List.class);
 
 	private static final String DEFAULT_METRICS_PREFIX = "spring.metrics.";
 
@@ -49,6 +144,14 @@ public class RedisMetricRepository {
 
 	private String key = DEFAULT_KEY;
 
+	private String valuesKey;
+
+	private String typeIndexRebuiltKey;
+
+	private volatile boolean typeIndexChecked;
+
+	private volatile Storage storage = Storage.ZSET;
+
 	private BoundZSetOperations<String, String> zSetOperations;
 
 	private final RedisOperations<String, String> redisOperations;
@@ -106,9 +209,21 @@ public class RedisMetricRepository {
 			key = key.substring(0, key.length() - 1);
 		}
 		this.key = key;
+		this.valuesKey = "metric_values." + key;
+		this.typeIndexRebuiltKey = "metric_meta." + key + ".types.rebuilt";
 		this.zSetOperations = this.redisOperations.boundZSetOps(this.key);
 	}
 
+	/**
+	 * Set how metric values are stored. Defaults to {@link Storage#ZSET}. Should be set before any metric is written
+	 * to, as existing values are not migrated.
+	 * @param storage the storage to use
+	 */
+	public void setStorage(Storage storage) {
+		Assert.notNull(storage, "storage must not be null");
+		this.storage = storage;
+	}
+
 	static <K, V> RedisTemplate<K, V> createRedisTemplate(
 			RedisConnectionFactory connectionFactory, Class<V> valueClass) {
 		RedisTemplate<K, V> redisTemplate = new RedisTemplate<K, V>();
@@ -128,23 +243,62 @@ public class RedisMetricRepository {
 		return new StringRedisTemplate(redisConnectionFactory);
 	}
 
+	@Override
 	public Metric<?> findOne(String metricName) {
 		String redisKey = keyFor(metricName);
-		String raw = this.redisOperations.opsForValue().get(redisKey);
-		return deserialize(redisKey, raw, this.zSetOperations.score(redisKey));
+		if (this.storage == Storage.HASH) {
+			Object entry = this.redisOperations.opsForHash().get(this.valuesKey, redisKey);
+			return entry == null ? null : decode(redisKey, (String) entry);
+		}
+		List<?> result = this.storage == Storage.INTEGER_HASH
+				? this.redisOperations.execute(FIND_ONE_INTEGER_SCRIPT, Arrays.asList(this.valuesKey, redisKey))
+				: this.redisOperations.execute(FIND_ONE_SCRIPT, Arrays.asList(this.key, redisKey));
+		if (result == null || result.size() < 2 || result.get(1) == null) {
+			return null;
+		}
+		return deserialize(redisKey, (String) result.get(0), parseValue((String) result.get(1)));
 	}
 
+	/**
+	 * Return all metrics, by increasing value (or by name with {@link Storage#INTEGER_HASH} and
+	 * {@link Storage#HASH}). Metrics are read with a constant number of round trips, whatever their number.
+	 * @return all metrics
+	 */
+	@Override
 	public Iterable<Metric<?>> findAll() {
+		if (this.storage == Storage.HASH) {
+			Map<Object, Object> entries = new TreeMap<>(this.redisOperations.opsForHash().entries(this.valuesKey));
+			List<Metric<?>> result = new ArrayList<Metric<?>>(entries.size());
+			for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+				Metric<?> metric = decode((String) entry.getKey(), (String) entry.getValue());
+				if (metric != null) {
+					result.add(metric);
+				}
+			}
+			return result;
+		}
+		if (this.storage == Storage.INTEGER_HASH) {
+			Set<String> keys = this.zSetOperations.range(0, -1);
+			if (keys == null || keys.isEmpty()) {
+				return Collections.emptyList();
+			}
+			return readMetrics(keys.toArray(new String[keys.size()]));
+		}
 
 		// This set is sorted
-		Set<String> keys = this.zSetOperations.range(0, -1);
-		Iterator<String> keysIt = keys.iterator();
+		Set<ZSetOperations.TypedTuple<String>> entries = this.zSetOperations.rangeWithScores(0, -1);
+		if (entries == null || entries.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> keys = new ArrayList<String>(entries.size());
+		for (ZSetOperations.TypedTuple<String> entry : entries) {
+			keys.add(entry.getValue());
+		}
 
 		List<Metric<?>> result = new ArrayList<Metric<?>>(keys.size());
-		List<String> values = this.redisOperations.opsForValue().multiGet(keys);
-		for (String v : values) {
-			String key = keysIt.next();
-			Metric<?> value = deserialize(key, v, this.zSetOperations.score(key));
+		Iterator<String> values = this.redisOperations.opsForValue().multiGet(keys).iterator();
+		for (ZSetOperations.TypedTuple<String> entry : entries) {
+			Metric<?> value = deserialize(entry.getValue(), values.next(), entry.getScore());
 			if (value != null) {
 				result.add(value);
 			}
@@ -153,42 +307,299 @@ public class RedisMetricRepository {
 
 	}
 
+	@Override
+	public List<Metric<?>> findAll(String type, long offset, int limit) {
+		Assert.hasText(type, "type must not be empty");
+		Assert.isTrue(offset >= 0 && offset <= Integer.MAX_VALUE, "offset must be a non negative int");
+		Assert.isTrue(limit >= 0, "limit must not be negative");
+		if (limit == 0) {
+			return Collections.emptyList();
+		}
+		checkTypeIndex();
+		Set<String> names = this.redisOperations.opsForZSet().rangeByLex(typeIndexKey(type),
+				RedisZSetCommands.Range.unbounded(),
+				RedisZSetCommands.Limit.limit().offset((int) offset).count(limit));
+		if (names == null || names.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return readMetrics(names.toArray(new String[names.size()]));
+	}
+
+	/**
+	 * Read the timestamps and values of the given metrics in a single pipeline.
+	 */
+	private List<Metric<?>> readMetrics(final String[] keys) {
+		final Storage storage = this.storage;
+		if (storage == Storage.HASH) {
+			List<Object> entries = this.redisOperations.opsForHash().multiGet(this.valuesKey,
+					Arrays.<Object>asList((Object[]) keys));
+			List<Metric<?>> result = new ArrayList<Metric<?>>(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				Metric<?> metric = entries.get(i) == null ? null : decode(keys[i], (String) entries.get(i));
+				if (metric != null) {
+					result.add(metric);
+				}
+			}
+			return result;
+		}
+		List<Object> results = this.redisOperations.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				stringConnection.mGet(keys);
+				if (storage == Storage.INTEGER_HASH) {
+					stringConnection.hMGet(valuesKey, keys);
+				}
+				else {
+					for (String key : keys) {
+						stringConnection.zScore(RedisMetricRepository.this.key, key);
+					}
+				}
+				return null;
+			}
+		});
+
+		@SuppressWarnings("unchecked")
+		Iterator<String> timestamps = ((List<String>) results.get(0)).iterator();
+		Iterator<?> values = storage == Storage.INTEGER_HASH
+				? ((List<?>) results.get(1)).iterator()
+				: results.subList(1, results.size()).iterator();
+		List<Metric<?>> result = new ArrayList<Metric<?>>(keys.length);
+		for (String key : keys) {
+			String timestamp = timestamps.next();
+			Object value = values.next();
+			if (value != null) {
+				Metric<?> metric = deserialize(key, timestamp,
+						value instanceof String ? parseValue((String) value) : (Number) value);
+				if (metric != null) {
+					result.add(metric);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
 	public long count() {
+		if (this.storage == Storage.HASH) {
+			return this.redisOperations.opsForHash().size(this.valuesKey);
+		}
 		return this.zSetOperations.size();
 	}
 
+	@Override
+	public long count(String type) {
+		Assert.hasText(type, "type must not be empty");
+		checkTypeIndex();
+		Long count = this.redisOperations.opsForZSet().zCard(typeIndexKey(type));
+		return count == null ? 0L : count;
+	}
+
+	/**
+	 * Add all the metrics of this repository to the index of their type, which is only maintained for metrics written
+	 * since it was introduced. Metrics are enumerated by scanning the index of all metrics (or the hash of values with
+	 * {@link Storage#HASH}). This is done automatically the first time a type index is read by any repository sharing
+	 * the same keys, but may be needed again if older versions keep writing new metrics. Metrics are added in batches,
+	 * with one {@code ZADD} per type and batch.
+	 */
+	public void rebuildTypeIndex() {
+		ScanOptions options = ScanOptions.scanOptions().count(NameIndexes.REBUILD_BATCH_SIZE).build();
+		TypeIndexBatch batch = new TypeIndexBatch();
+		if (this.storage == Storage.HASH) {
+			try (Cursor<Map.Entry<Object, Object>> entries = this.redisOperations.opsForHash().scan(this.valuesKey,
+					options)) {
+				while (entries.hasNext()) {
+					batch.add((String) entries.next().getKey());
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Could not close cursor over " + this.valuesKey, e);
+			}
+		}
+		else {
+			try (Cursor<ZSetOperations.TypedTuple<String>> entries = this.zSetOperations.scan(options)) {
+				while (entries.hasNext()) {
+					batch.add(entries.next().getValue());
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Could not close cursor over " + this.key, e);
+			}
+		}
+		batch.flush();
+		this.redisOperations.opsForValue().set(this.typeIndexRebuiltKey, String.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Rebuild the type indexes unless some repository has done it already, which is only checked once per repository.
+	 */
+	private void checkTypeIndex() {
+		if (this.typeIndexChecked) {
+			return;
+		}
+		if (!Boolean.TRUE.equals(this.redisOperations.hasKey(this.typeIndexRebuiltKey))) {
+			rebuildTypeIndex();
+		}
+		this.typeIndexChecked = true;
+	}
+
+	@Override
 	public void increment(Delta<?> delta) {
-		String name = delta.getName();
-		String key = keyFor(name);
-		trackMembership(key);
-		double value = this.zSetOperations.incrementScore(key,
-				delta.getValue().doubleValue());
-		String raw = serialize(new Metric<Double>(name, value, delta.getTimestamp()));
-		this.redisOperations.opsForValue().set(key, raw);
+		this.redisOperations.execute(incrementScript(), scriptKeys(delta.getName()), encodeValue(delta.getValue()),
+				serialize(delta));
 	}
 
+	/**
+	 * Apply several deltas at once, in a single transaction sent without waiting for replies.
+	 * @param deltas the deltas to apply
+	 */
+	@Override
+	public void increment(Collection<? extends Delta<?>> deltas) {
+		executeBatch(deltas, Collections.<Metric<?>>emptyList());
+	}
+
+	@Override
 	public void set(Metric<?> value) {
-		String name = value.getName();
-		String key = keyFor(name);
-		trackMembership(key);
-		this.zSetOperations.add(key, value.getValue().doubleValue());
-		String raw = serialize(value);
-		this.redisOperations.opsForValue().set(key, raw);
+		this.redisOperations.execute(setScript(), scriptKeys(value.getName()), encodeValue(value.getValue()),
+				serialize(value));
 	}
 
+	/**
+	 * Set several metrics at once, in a single transaction sent without waiting for replies.
+	 * @param values the metrics to set
+	 */
+	@Override
+	public void set(Collection<? extends Metric<?>> values) {
+		executeBatch(Collections.<Delta<?>>emptyList(), values);
+	}
+
+	/**
+	 * Apply several deltas and set several metrics at once, in a single transaction sent without waiting for replies.
+	 * @param deltas the deltas to apply
+	 * @param values the metrics to set
+	 */
+	@Override
+	public void write(Collection<? extends Delta<?>> deltas, Collection<? extends Metric<?>> values) {
+		executeBatch(deltas, values);
+	}
+
+	@Override
 	public void reset(String metricName) {
-		String key = keyFor(metricName);
-		if (this.zSetOperations.remove(key) == 1) {
-			this.redisOperations.delete(key);
+		this.redisOperations.execute(RESET_SCRIPT, scriptKeys(metricName));
+	}
+
+	/**
+	 * Return a non blocking view of the metrics of this repository, reading them over the given connection factory,
+	 * with the {@link #setStorage(Storage) storage} of this repository.
+	 * <p>
+	 * Unlike {@link #findOne(String)}, the view reads the value and the timestamp of a metric with two separate
+	 * commands, so a metric written to concurrently may be read with the timestamp of a neighbouring write.
+	 * </p>
+	 * @param connectionFactory the reactive connection factory to read metrics with
+	 * @return a reader of the metrics of this repository
+	 */
+	public ReactiveMetricReader reactiveReader(ReactiveRedisConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		return new ReactiveReader(new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.string()));
+	}
+
+	/**
+	 * Run the increment script once per delta and the set script once per value, all in a single {@code MULTI}/
+	 * {@code EXEC} transaction, whose commands are sent without waiting for replies. The transaction starts by loading
+	 * the scripts it uses, then refers to them by their SHA1 digest: as the script cache cannot change while the
+	 * transaction executes, {@code EVALSHA} never finds a script missing, even if the server lost its scripts since
+	 * the last batch (e.g. after a restart or a {@code SCRIPT FLUSH}).
+	 */
+	private void executeBatch(final Collection<? extends Delta<?>> deltas, final Collection<? extends Metric<?>> values) {
+		if (deltas.isEmpty() && values.isEmpty()) {
+			return;
+		}
+		final RedisScript<?> incrementScript = incrementScript();
+		final RedisScript<?> setScript = setScript();
+		this.redisOperations.execute(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				stringConnection.multi();
+				queue(stringConnection, incrementScript, deltas);
+				queue(stringConnection, setScript, values);
+				return stringConnection.exec();
+			}
+		});
+	}
+
+	private void queue(StringRedisConnection connection, RedisScript<?> script, Collection<? extends Metric<?>> metrics) {
+		if (metrics.isEmpty()) {
+			return;
+		}
+		connection.scriptLoad(script.getScriptAsString());
+		ReturnType returnType = ReturnType.fromJavaType(script.getResultType());
+		for (Metric<?> metric : metrics) {
+			List<String> keys = scriptKeys(metric.getName());
+			List<String> keysAndArgs = new ArrayList<String>(keys.size() + 2);
+			keysAndArgs.addAll(keys);
+			keysAndArgs.add(encodeValue(metric.getValue()));
+			keysAndArgs.add(serialize(metric));
+			connection.evalSha(script.getSha1(), returnType, keys.size(),
+					keysAndArgs.toArray(new String[keysAndArgs.size()]));
+		}
+	}
+
+	private RedisScript<?> incrementScript() {
+		switch (this.storage) {
+			case HASH:
+				return INCREMENT_HASH_SCRIPT;
+			case INTEGER_HASH:
+				return INCREMENT_INTEGER_SCRIPT;
+			default:
+				return INCREMENT_SCRIPT;
 		}
 	}
 
-	private Metric<?> deserialize(String redisKey, String v, Double value) {
+	private RedisScript<?> setScript() {
+		switch (this.storage) {
+			case HASH:
+				return SET_HASH_SCRIPT;
+			case INTEGER_HASH:
+				return SET_INTEGER_SCRIPT;
+			default:
+				return SET_SCRIPT;
+		}
+	}
+
+	private String encodeValue(Number value) {
+		return this.storage == Storage.INTEGER_HASH ? String.valueOf(toLong(value)) : String.valueOf(value.doubleValue());
+	}
+
+	private Metric<?> deserialize(String redisKey, String v, Number value) {
 		if (redisKey == null || v == null || !redisKey.startsWith(this.prefix)) {
 			return null;
 		}
 		Date timestamp = new Date(Long.valueOf(v));
-		return new Metric<Double>(nameFor(redisKey), value, timestamp);
+		return new Metric<Number>(nameFor(redisKey), value, timestamp);
+	}
+
+	/**
+	 * Decode a {@code value:timestamp} entry of the {@link Storage#HASH} storage.
+	 */
+	private Metric<?> decode(String redisKey, String entry) {
+		int colon = entry.indexOf(':');
+		return deserialize(redisKey, entry.substring(colon + 1), Double.valueOf(entry.substring(0, colon)));
+	}
+
+	private Number parseValue(String value) {
+		return this.storage == Storage.INTEGER_HASH ? (Number) Long.valueOf(value) : (Number) Double.valueOf(value);
+	}
+
+	private static long toLong(Number value) {
+		if (value instanceof Double || value instanceof Float) {
+			double d = value.doubleValue();
+			Assert.isTrue(d == Math.rint(d) && Math.abs(d) <= Long.MAX_VALUE,
+					"Only integer values can be stored with INTEGER_HASH storage, got " + value);
+		}
+		return value.longValue();
 	}
 
 	private String serialize(Metric<?> entity) {
@@ -203,8 +614,136 @@ public class RedisMetricRepository {
 		return redisKey.substring(this.prefix.length());
 	}
 
-	private void trackMembership(String redisKey) {
-		this.zSetOperations.incrementScore(redisKey, 0.0D);
+	/**
+	 * Return the key of the index of metrics of the given type.
+	 */
+	private String typeIndexKey(String type) {
+		return this.key + "." + type;
+	}
+
+	/**
+	 * Return the keys touched when writing to a metric: the global index, the metric itself, the hash of values
+	 * and, if the metric has a type, the index of its type.
+	 */
+	private List<String> scriptKeys(String metricName) {
+		int dot = metricName.indexOf('.');
+		if (dot > 0) {
+			return Arrays.asList(this.key, keyFor(metricName), this.valuesKey,
+					typeIndexKey(metricName.substring(0, dot)));
+		}
+		return Arrays.asList(this.key, keyFor(metricName), this.valuesKey);
+	}
+
+	/**
+	 * Collects metrics to add to the index of their type, issuing one {@code ZADD} per type every
+	 * {@link NameIndexes#REBUILD_BATCH_SIZE} metrics.
+	 */
+	private class TypeIndexBatch {
+
+		private final Map<String, Set<ZSetOperations.TypedTuple<String>>> byIndex = new HashMap<>();
+
+		private int size;
+
+		/**
+		 * Add the metric stored under the given key to the batch, if it has a type.
+		 */
+		void add(String redisKey) {
+			if (!redisKey.startsWith(RedisMetricRepository.this.prefix)) {
+				return;
+			}
+			List<String> keys = scriptKeys(nameFor(redisKey));
+			if (keys.size() > 3) {
+				this.byIndex.computeIfAbsent(keys.get(3), k -> new HashSet<>())
+						.add(new DefaultTypedTuple<>(redisKey, 0d));
+				if (++this.size >= NameIndexes.REBUILD_BATCH_SIZE) {
+					flush();
+				}
+			}
+		}
+
+		void flush() {
+			for (Map.Entry<String, Set<ZSetOperations.TypedTuple<String>>> entry : this.byIndex.entrySet()) {
+				RedisMetricRepository.this.redisOperations.opsForZSet().add(entry.getKey(), entry.getValue());
+			}
+			this.byIndex.clear();
+			this.size = 0;
+		}
+	}
+
+	/**
+	 * Reads the metrics of the enclosing repository with a {@link ReactiveRedisTemplate}.
+	 */
+	private class ReactiveReader implements ReactiveMetricReader {
+
+		private final ReactiveRedisTemplate<String, String> template;
+
+		private ReactiveReader(ReactiveRedisTemplate<String, String> template) {
+			this.template = template;
+		}
+
+		@Override
+		public Mono<Metric<?>> findOne(String metricName) {
+			String redisKey = keyFor(metricName);
+			ReactiveHashOperations<String, String, String> hashOperations = template.opsForHash();
+			if (storage == Storage.HASH) {
+				return hashOperations.get(valuesKey, redisKey)
+						.flatMap(entry -> Mono.justOrEmpty(decode(redisKey, entry)));
+			}
+			Mono<Number> value = storage == Storage.INTEGER_HASH
+					? hashOperations.get(valuesKey, redisKey).map(RedisMetricRepository.this::parseValue)
+					: template.opsForZSet().score(key, redisKey).cast(Number.class);
+			return value.zipWith(template.opsForValue().get(redisKey))
+					.flatMap(tuple -> Mono.justOrEmpty(deserialize(redisKey, tuple.getT2(), tuple.getT1())));
+		}
+
+		@Override
+		public Flux<Metric<?>> findAll(String type, long offset, int limit) {
+			Assert.hasText(type, "type must not be empty");
+			Assert.isTrue(offset >= 0 && offset <= Integer.MAX_VALUE, "offset must be a non negative int");
+			Assert.isTrue(limit >= 0, "limit must not be negative");
+			if (limit == 0) {
+				return Flux.empty();
+			}
+			return NameIndexes.afterCheck(typeIndexChecked, RedisMetricRepository.this::checkTypeIndex,
+					NameIndexes.range(template, typeIndexKey(type), null, offset, limit))
+					.flatMapSequential(this::findOneByKey);
+		}
+
+		@Override
+		public Mono<Long> count(String type) {
+			Assert.hasText(type, "type must not be empty");
+			return NameIndexes.afterCheck(typeIndexChecked, RedisMetricRepository.this::checkTypeIndex,
+					template.opsForZSet().size(typeIndexKey(type)));
+		}
+
+		private Mono<Metric<?>> findOneByKey(String redisKey) {
+			return redisKey.startsWith(prefix) ? findOne(nameFor(redisKey)) : Mono.empty();
+		}
+	}
+
+	/**
+	 * The ways metric values can be stored.
+	 */
+	public enum Storage {
+
+		/**
+		 * Values are stored as the scores of the index zset, thus as doubles.
+		 */
+		ZSET,
+
+		/**
+		 * Values are stored as integers in a single hash and updated with {@code HINCRBY}, so that they are exact
+		 * over the whole range of longs and cheap to update. The index zset is only used to enumerate metric names.
+		 * Only integer values can be written, and values are read back as {@link Long}s.
+		 */
+		INTEGER_HASH,
+
+		/**
+		 * Each metric is a single entry of a hash, holding both its value (a double) and its timestamp, so that a
+		 * metric costs neither an index entry nor a key of its own. {@link #findOne(String)} is a single
+		 * {@code HGET} and {@link #findAll()} a single {@code HGETALL}. Metrics are still indexed by type.
+		 */
+		HASH
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.WindowedFieldValueCounterRepository;
+import org.springframework.analytics.retry.StringRedisRetryTemplate;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.retry.RetryOperations;
+import org.springframework.util.Assert;
+
+/**
+ * Redis implementation of {@link WindowedFieldValueCounterRepository}.
+ *
+ * <p>
+ * Each time bucket of a counter is stored as a sorted set, set to expire once it falls out of the retention period.
+ * Top-N queries are answered server side: the closed buckets of the window (all but the last one) are merged with
+ * {@code ZUNIONSTORE} into a cache entry that lives for one bucket, and that entry is then merged with the current
+ * bucket. Repeated queries for the same window thus only ever merge two sets.
+ * </p>
+ *
+ * <p>
+ * Note that increments targeting an already closed bucket become visible in cached merges only once they expire.
+ * </p>
+ */
+public class RedisWindowedFieldValueCounterRepository implements WindowedFieldValueCounterRepository {
+
+	private static final RedisScript<List> FIND_TOP_SCRIPT = new DefaultRedisScript<>(
+			// KEYS: merged, open, tmp, bookkeeping, closed buckets... ARGV: merged ttl (ms), n
+			"if #KEYS > 4 and redis.call('EXISTS', KEYS[1]) == 0 then\n" +
+			"  redis.call('ZUNIONSTORE', KEYS[1], #KEYS - 4, unpack(KEYS, 5))\n" +
+			"  redis.call('PEXPIRE', KEYS[1], ARGV[1])\n" +
+			"  redis.call('SADD', KEYS[4], KEYS[1])\n" +
+			"  redis.call('PEXPIRE', KEYS[4], ARGV[1])\n" +
+			"end\n" +
+			"redis.call('ZUNIONSTORE', KEYS[3], 2, KEYS[1], KEYS[2])\n" +
+			"local result = redis.call('ZREVRANGE', KEYS[3], 0, tonumber(ARGV[2]) - 1, 'WITHSCORES')\n" +
+			"redis.call('DEL', KEYS[3])\n" +
+			"return result", List.class);
+
+	private final String metricPrefix;
+
+	private final String registryKey;
+
+	private final long bucketMillis;
+
+	private final int maxBuckets;
+
+	private final StringRedisRetryTemplate redisTemplate;
+
+	/**
+	 * Create a repository that keeps one day worth of one minute buckets.
+	 *
+	 * @param connectionFactory the redis connection factory
+	 * @param retryOperations retry operations used for every redis interaction
+	 */
+	public RedisWindowedFieldValueCounterRepository(RedisConnectionFactory connectionFactory,
+			RetryOperations retryOperations) {
+		this(connectionFactory, "windowedfieldvaluecounters.", Duration.standardMinutes(1), 60 * 24,
+				retryOperations);
+	}
+
+	/**
+	 * Create a repository with the given key prefix, bucket size and retention.
+	 *
+	 * @param connectionFactory the redis connection factory
+	 * @param metricPrefix the prefix of all keys written by this repository
+	 * @param bucketSize the time span covered by each bucket
+	 * @param maxBuckets the number of buckets to retain, which is also the largest window that can be queried
+	 * @param retryOperations retry operations used for every redis interaction
+	 */
+	public RedisWindowedFieldValueCounterRepository(RedisConnectionFactory connectionFactory, String metricPrefix,
+			Duration bucketSize, int maxBuckets, RetryOperations retryOperations) {
+		Assert.notNull(connectionFactory, "connectionFactory must not be null");
+		Assert.hasText(metricPrefix, "metric prefix cannot be empty");
+		Assert.isTrue(bucketSize.getMillis() > 0, "bucketSize must be positive");
+		Assert.isTrue(maxBuckets > 0, "maxBuckets must be positive");
+		this.metricPrefix = metricPrefix;
+		this.registryKey = metricPrefix.endsWith(".")
+				? metricPrefix.substring(0, metricPrefix.length() - 1)
+				: metricPrefix;
+		this.bucketMillis = bucketSize.getMillis();
+		this.maxBuckets = maxBuckets;
+		redisTemplate = new StringRedisRetryTemplate(connectionFactory, retryOperations);
+		// avoids proxy
+		redisTemplate.setExposeConnection(true);
+		redisTemplate.afterPropertiesSet();
+	}
+
+	@Override
+	public void increment(String name, String fieldName, double score) {
+		increment(name, fieldName, score, new DateTime());
+	}
+
+	@Override
+	public void increment(final String name, final String fieldName, final double score, DateTime dateTime) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		long bucket = dateTime.getMillis() / bucketMillis;
+		long current = currentBucket();
+		// reset() only knows about the buckets of the retention period
+		Assert.isTrue(bucket <= current, "Cannot increment a bucket that starts in the future");
+		if (bucket <= current - maxBuckets) {
+			// Older than the retention period
+			return;
+		}
+		final String key = bucketKey(name, bucket);
+		final long expireAt = (bucket + 1 + maxBuckets) * bucketMillis;
+		redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) {
+				StringRedisConnection stringConnection = (StringRedisConnection) connection;
+				stringConnection.zIncrBy(key, score, fieldName);
+				stringConnection.pExpireAt(key, expireAt);
+				stringConnection.sAdd(registryKey, name);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public void reset(String name) {
+		List<String> keys = new ArrayList<>(maxBuckets + 2);
+		long current = currentBucket();
+		for (long bucket = current - maxBuckets + 1; bucket <= current; bucket++) {
+			keys.add(bucketKey(name, bucket));
+		}
+		String bookkeepingKey = bookkeepingKeyFor(name);
+		Set<String> merged = redisTemplate.opsForSet().members(bookkeepingKey);
+		if (merged != null) {
+			keys.addAll(merged);
+		}
+		keys.add(bookkeepingKey);
+		redisTemplate.delete(keys);
+		redisTemplate.opsForSet().remove(registryKey, name);
+	}
+
+	@Override
+	public FieldValueCounter findTop(String name, int n, Duration window) {
+		return findTop(name, n, window, new DateTime());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public FieldValueCounter findTop(String name, int n, Duration window, DateTime end) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		Assert.notNull(end, "end must not be null");
+		Assert.isTrue(n > 0, "n must be positive");
+		long windowBuckets = (window.getMillis() + bucketMillis - 1) / bucketMillis;
+		Assert.isTrue(windowBuckets > 0 && windowBuckets <= maxBuckets,
+				"window must be positive and at most " + maxBuckets + " buckets long");
+
+		long last = end.getMillis() / bucketMillis;
+		long first = last - windowBuckets + 1;
+		List<String> keys = new ArrayList<>((int) windowBuckets + 3);
+		keys.add(metricPrefix + name + ".merged." + first + "." + (last - 1));
+		keys.add(bucketKey(name, last));
+		keys.add(metricPrefix + name + ".tmp");
+		keys.add(bookkeepingKeyFor(name));
+		for (long bucket = first; bucket < last; bucket++) {
+			keys.add(bucketKey(name, bucket));
+		}
+		List<String> result = redisTemplate.execute(FIND_TOP_SCRIPT, keys, String.valueOf(bucketMillis),
+				String.valueOf(n));
+
+		Map<String, Double> values = new LinkedHashMap<>();
+		if (result != null) {
+			for (Iterator<String> it = result.iterator(); it.hasNext();) {
+				String field = it.next();
+				values.put(field, Double.valueOf(it.next()));
+			}
+		}
+		return new FieldValueCounter(name, values);
+	}
+
+	@Override
+	public Collection<String> list() {
+		Set<String> names = redisTemplate.opsForSet().members(registryKey);
+		return names == null ? Collections.<String>emptySet() : names;
+	}
+
+	private long currentBucket() {
+		return System.currentTimeMillis() / bucketMillis;
+	}
+
+	private String bucketKey(String name, long bucket) {
+		return metricPrefix + name + "." + bucket;
+	}
+
+	/**
+	 * Return the key under which are stored the names of the merged windows cached for the given counter.
+	 */
+	private String bookkeepingKeyFor(String name) {
+		return "metric_meta." + metricPrefix + name;
+	}
+
+}
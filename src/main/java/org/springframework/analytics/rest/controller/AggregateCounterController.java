@@ -16,19 +16,28 @@
 
 package org.springframework.analytics.rest.controller;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.joda.time.Interval;
 import org.joda.time.ReadablePeriod;
 
 import org.springframework.analytics.metrics.AggregateCounter;
 import org.springframework.analytics.metrics.AggregateCounterRepository;
 import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.rest.domain.AggregateCounterQuery;
 import org.springframework.analytics.rest.domain.AggregateCounterResource;
+import org.springframework.analytics.rest.domain.CompactAggregateCounterCodec;
+import org.springframework.analytics.rest.domain.CompactAggregateCounterResource;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -36,18 +45,26 @@ import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.ExposesResourceFor;
 import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resources;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import static java.lang.Math.toIntExact;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 
 /**
  * Allows interaction with Aggregate Counters.
@@ -58,12 +75,119 @@ import static java.lang.Math.toIntExact;
 @RestController
 @RequestMapping("/metrics/aggregate-counters")
 @ExposesResourceFor(AggregateCounterResource.class)
-public class AggregateCounterController {
+public class AggregateCounterController implements DisposableBean {
+
+	/**
+	 * Media type of the {@link CompactAggregateCounterResource compact} representation of counts.
+	 */
+	public static final String COMPACT_JSON_VALUE = "application/vnd.spring-analytics.compact+json";
+
+	/**
+	 * Media type of the {@link CompactAggregateCounterCodec binary} encoding of compact counts.
+	 */
+	public static final String COMPACT_VARINT_VALUE = CompactAggregateCounterCodec.MEDIA_TYPE_VALUE;
+
+	/**
+	 * Media type of CBOR representations, available when {@code jackson-dataformat-cbor} is on the classpath.
+	 */
+	public static final String CBOR_VALUE = "application/cbor";
+
+	/**
+	 * Media type of Smile representations, available when {@code jackson-dataformat-smile} is on the classpath.
+	 */
+	public static final String SMILE_VALUE = "application/x-jackson-smile";
 
 	private final AggregateCounterRepository repository;
 
+	private volatile AggregateCounterTail tail;
+
+	private final AggregateCounterQueryGuard guard = new AggregateCounterQueryGuard();
+
+	private volatile CacheControl closedIntervalCacheControl = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+
+	private volatile int maxStreamedCounters = 20;
+
+	private volatile long streamTimeout = TimeUnit.HOURS.toMillis(1);
+
 	public AggregateCounterController(AggregateCounterRepository repository) {
 		this.repository = repository;
+		this.tail = new AggregateCounterTail(repository, guard, 1000L);
+	}
+
+	/**
+	 * Set how often live subscribers of {@link #stream(List, AggregateCounterResolution)} are sent updates. Defaults
+	 * to 1 second.
+	 *
+	 * @param tailInterval the period of updates
+	 */
+	public void setTailInterval(Duration tailInterval) {
+		Assert.isTrue(tailInterval.getMillis() > 0, "tailInterval must be positive");
+		AggregateCounterTail previous = this.tail;
+		this.tail = new AggregateCounterTail(repository, guard, tailInterval.getMillis());
+		previous.shutdown();
+	}
+
+	/**
+	 * Set how many counters a single subscriber of {@link #stream(List, AggregateCounterResolution)} may follow.
+	 * Requests for more are refused with {@code 400 Bad Request}. Defaults to 20.
+	 *
+	 * @param maxStreamedCounters the maximum number of counters per subscriber
+	 */
+	public void setMaxStreamedCounters(int maxStreamedCounters) {
+		Assert.isTrue(maxStreamedCounters > 0, "maxStreamedCounters must be positive");
+		this.maxStreamedCounters = maxStreamedCounters;
+	}
+
+	/**
+	 * Set how many counters may be followed live at the same time, over all subscribers, each of them being read
+	 * periodically however many subscribers follow it. Subscriptions that would follow more are refused with
+	 * {@code 429 Too Many Requests}. Defaults to 1,000.
+	 *
+	 * @param maxLiveCounters the maximum number of counters followed live
+	 */
+	public void setMaxLiveCounters(int maxLiveCounters) {
+		guard.setMaxTickers(maxLiveCounters);
+	}
+
+	/**
+	 * Set how long subscriptions to {@link #stream(List, AggregateCounterResolution)} last before they are completed,
+	 * upon which clients are expected to reconnect. Defaults to 1 hour.
+	 *
+	 * @param streamTimeout the lifetime of subscriptions
+	 */
+	public void setStreamTimeout(Duration streamTimeout) {
+		Assert.isTrue(streamTimeout.getMillis() > 0, "streamTimeout must be positive");
+		this.streamTimeout = streamTimeout.getMillis();
+	}
+
+	/**
+	 * Set the maximum number of buckets a single request may read, summed over all the counters it reads. Requests
+	 * that would read more are refused with {@code 400 Bad Request}. Defaults to 1,000,000.
+	 *
+	 * @param maxQueryBuckets the maximum number of buckets per request
+	 */
+	public void setMaxQueryBuckets(long maxQueryBuckets) {
+		guard.setMaxBuckets(maxQueryBuckets);
+	}
+
+	/**
+	 * Set the number of buckets above which a request is expensive, and subject to
+	 * {@link #setMaxConcurrentExpensiveQueries(int)}. Defaults to 50,000.
+	 *
+	 * @param expensiveQueryBuckets the number of buckets above which a request is expensive
+	 */
+	public void setExpensiveQueryBuckets(long expensiveQueryBuckets) {
+		guard.setExpensiveBuckets(expensiveQueryBuckets);
+	}
+
+	/**
+	 * Set how many expensive requests may read counts at the same time. Further ones are refused with
+	 * {@code 429 Too Many Requests}. Defaults to 4.
+	 *
+	 * @param maxConcurrentExpensiveQueries the maximum number of expensive requests running at a time
+	 */
+	public void setMaxConcurrentExpensiveQueries(int maxConcurrentExpensiveQueries) {
+		guard.setMaxConcurrentExpensiveQueries(maxConcurrentExpensiveQueries);
 	}
 
 	private DeepResourceAssembler deepAssembler = new DeepResourceAssembler();
@@ -79,11 +203,10 @@ public class AggregateCounterController {
 	 */
 	@RequestMapping(value = "/{name}", method = RequestMethod.GET)
 	public AggregateCounterResource display(@PathVariable("name") String name) {
-		AggregateCounter counter = repository.findOne(name);
-		if (counter == null) {
+		if (!repository.exists(name)) {
 			throw new NoSuchMetricException(name);
 		}
-		return deepAssembler.toResource(counter);
+		return deepAssembler.toResource(repository.findOne(name));
 	}
 
 	/**
@@ -94,8 +217,7 @@ public class AggregateCounterController {
 	@RequestMapping(value = "/{name}", method = RequestMethod.DELETE)
 	@ResponseStatus(HttpStatus.OK)
 	protected void delete(@PathVariable("name") String name) {
-		AggregateCounter counter = repository.findOne(name);
-		if (counter == null) {
+		if (!repository.exists(name)) {
 			throw new NoSuchMetricException(name);
 		}
 		repository.reset(name);
@@ -106,38 +228,62 @@ public class AggregateCounterController {
 	 *
 	 * @param pageable {@link Pageable}
 	 * @param pagedAssembler {@link PagedResourcesAssembler}
+	 * @param prefix only list counters whose name starts with this prefix
 	 * @param detailed detailed info
 	 * @param from from date
  	 * @param to to date
 	 * @param resolution {@link AggregateCounterResolution}
+	 * @param maxPoints if detailed, the maximum number of data points per counter, see
+	 * {@link #display(String, DateTime, DateTime, AggregateCounterResolution, Integer, WebRequest)}
 	 * @return list counters
 	 */
 	@RequestMapping(value = "", method = RequestMethod.GET)
 	public PagedResources<AggregateCounterResource> list(
 			Pageable pageable, PagedResourcesAssembler<String> pagedAssembler,
+			@RequestParam(value = "prefix", required = false) String prefix,
 			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed,
 			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
 			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
-			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution) {
-		List<String> names = new ArrayList<>(repository.list());
-		long count = names.size();
-		long pageEnd = Math.min(count, pageable.getOffset() + pageable.getPageSize());
-		Page aggregateCounterPage = new PageImpl<>(names.subList( toIntExact(pageable.getOffset()), toIntExact(pageEnd)), pageable, names.size());
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints) {
+		List<String> names = repository.list(prefix, pageable.getOffset(), pageable.getPageSize());
+		Page<String> aggregateCounterPage = new PageImpl<>(names, pageable, repository.count(prefix));
 		PagedResources<AggregateCounterResource> resources = pagedAssembler.toResource(aggregateCounterPage, shallowAssembler);
 		if (detailed) {
-			to = providedOrDefaultToValue(to);
-			from = providedOrDefaultFromValue(from, to, resolution);
-			Interval interval = new Interval(from, to);
-			List<AggregateCounterResource> aggregateCounts = new LinkedList<>();
-			for (AggregateCounterResource aggregateCounterResource : resources) {
-				AggregateCounter aggregateCount = repository.getCounts(aggregateCounterResource.getName(), interval, resolution);
-				aggregateCounts.add(deepAssembler.toResource(aggregateCount));
-			}
+			Interval interval = interval(from, to, resolution);
+			List<AggregateCounterResource> aggregateCounts = toDeepResources(
+					query(names, interval, coarsen(interval, resolution, maxPoints)), maxPoints);
 			return new PagedResources<>(aggregateCounts, resources.getMetadata());
 		}
 		return resources;
 	}
 
+	/**
+	 * Retrieve the counts of several counters over the same time interval at once, in the order of the requested
+	 * names. Counters that don't exist have all their counts set to zero.
+	 *
+	 * @param query the names of the counters, the interval, the resolution and the maximum number of data points
+	 * @return counts
+	 * @throws InvalidMetricQueryException if no name or resolution is given, or if the maximum number of data points
+	 * is not positive
+	 */
+	@RequestMapping(value = "/query", method = RequestMethod.POST,
+			consumes = MediaType.APPLICATION_JSON_VALUE,
+			produces = { MediaType.APPLICATION_JSON_VALUE, CBOR_VALUE, SMILE_VALUE })
+	public Resources<AggregateCounterResource> batchQuery(@RequestBody AggregateCounterQuery query) {
+		if (query.getNames() == null || query.getNames().isEmpty()) {
+			throw new InvalidMetricQueryException("names are required");
+		}
+		if (query.getResolution() == null) {
+			throw new InvalidMetricQueryException("resolution is required");
+		}
+		DateTime from = query.getFrom() == null ? null : new DateTime(query.getFrom());
+		DateTime to = query.getTo() == null ? null : new DateTime(query.getTo());
+		Interval interval = interval(from, to, query.getResolution());
+		AggregateCounterResolution resolution = coarsen(interval, query.getResolution(), query.getMaxPoints());
+		return new Resources<>(toDeepResources(query(query.getNames(), interval, resolution), query.getMaxPoints()));
+	}
+
 	/**
 	 * Retrieve counts for a given time interval, using some precision.
 	 *
@@ -146,25 +292,305 @@ public class AggregateCounterController {
 	 *                   buckets)
 	 * @param to         the end-time for the interval, default "now"
 	 * @param resolution the size of buckets to aggregate, <i>e.g.</i> hourly, daily, <i>etc.</i> (default "hour")
-	 * @return counts
+	 * @param maxPoints  the maximum number of data points to return, if any. Buckets are read at the finest
+	 *                   resolution, not finer than the requested one, that spans the interval in no more buckets
+	 *                   than that. If even yearly buckets are too many, consecutive buckets are summed up.
+	 * @param webRequest the current request, checked for {@code If-None-Match} and {@code If-Modified-Since}
+	 * @return counts, or an empty {@code 304 Not Modified} response if the client has them already
 	 */
 	@ResponseBody
-	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-	public AggregateCounterResource display(
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET,
+			produces = { MediaType.APPLICATION_JSON_VALUE, CBOR_VALUE, SMILE_VALUE })
+	public ResponseEntity<AggregateCounterResource> display(
 			@PathVariable("name") String name,
 			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
 			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
-			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution) {
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+			WebRequest webRequest) {
+		Interval interval = interval(from, to, resolution);
+		AggregateCounterResolution actual = coarsen(interval, resolution, maxPoints);
+		MediaType mediaType = MetricETags.negotiate(webRequest);
+		String representation = (maxPoints == null ? "full;" : "full/" + maxPoints + ";") + mediaType;
+		return conditionally(name, interval, actual, representation, webRequest,
+				(aggregate, response) -> response.contentType(mediaType).body(toDeepResource(aggregate, maxPoints)));
+	}
+
+	/**
+	 * Retrieve counts for a given time interval as a {@link CompactAggregateCounterResource}, when requested with
+	 * {@code format=compact}. The counts array is serialized as is, with no per-bucket timestamp.
+	 *
+	 * @param name       the name of the aggregate counter we want to retrieve data from
+	 * @param from       the start-time for the interval, default depends on the resolution
+	 * @param to         the end-time for the interval, default "now"
+	 * @param resolution the size of buckets to aggregate (default "hour")
+	 * @param maxPoints  the maximum number of buckets to return, if any. As compact counts have no per-bucket
+	 *                   timestamp, they are only read at a coarser resolution, never summed up
+	 * @param webRequest the current request, checked for {@code If-None-Match} and {@code If-Modified-Since}
+	 * @return counts, or an empty {@code 304 Not Modified} response if the client has them already
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, params = "format=compact",
+			produces = { MediaType.APPLICATION_JSON_VALUE, COMPACT_JSON_VALUE, CBOR_VALUE, SMILE_VALUE })
+	public ResponseEntity<CompactAggregateCounterResource> displayCompact(
+			@PathVariable("name") String name,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+			WebRequest webRequest) {
+		Interval interval = interval(from, to, resolution);
+		AggregateCounterResolution actual = coarsen(interval, resolution, maxPoints);
+		MediaType mediaType = MetricETags.negotiate(webRequest);
+		return conditionally(name, interval, actual, "compact;" + mediaType, webRequest,
+				(aggregate, response) -> response.contentType(mediaType).body(toCompactResource(aggregate)));
+	}
+
+	/**
+	 * Same as
+	 * {@link #displayCompact(String, DateTime, DateTime, AggregateCounterResolution, Integer, WebRequest)},
+	 * selected by requesting
+	 * the {@value #COMPACT_JSON_VALUE} media type.
+	 *
+	 * @param name       the name of the aggregate counter we want to retrieve data from
+	 * @param from       the start-time for the interval, default depends on the resolution
+	 * @param to         the end-time for the interval, default "now"
+	 * @param resolution the size of buckets to aggregate (default "hour")
+	 * @param maxPoints  the maximum number of buckets to return, if any. As compact counts have no per-bucket
+	 *                   timestamp, they are only read at a coarser resolution, never summed up
+	 * @param webRequest the current request, checked for {@code If-None-Match} and {@code If-Modified-Since}
+	 * @return counts, or an empty {@code 304 Not Modified} response if the client has them already
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = COMPACT_JSON_VALUE)
+	public ResponseEntity<CompactAggregateCounterResource> displayCompactByMediaType(
+			@PathVariable("name") String name,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+			WebRequest webRequest) {
+		return displayCompact(name, from, to, resolution, maxPoints, webRequest);
+	}
+
+	/**
+	 * Retrieve counts for a given time interval as a single {@link CompactAggregateCounterCodec binary} record,
+	 * selected by requesting the {@value #COMPACT_VARINT_VALUE} media type.
+	 *
+	 * @param name       the name of the aggregate counter we want to retrieve data from
+	 * @param from       the start-time for the interval, default depends on the resolution
+	 * @param to         the end-time for the interval, default "now"
+	 * @param resolution the size of buckets to aggregate (default "hour")
+	 * @param maxPoints  the maximum number of buckets to return, if any. As compact counts have no per-bucket
+	 *                   timestamp, they are only read at a coarser resolution, never summed up
+	 * @param webRequest the current request, checked for {@code If-None-Match} and {@code If-Modified-Since}
+	 * @return the encoded counts, or an empty {@code 304 Not Modified} response if the client has them already
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = COMPACT_VARINT_VALUE)
+	public ResponseEntity<byte[]> displayCompactVarint(
+			@PathVariable("name") String name,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints,
+			WebRequest webRequest) {
+		Interval interval = interval(from, to, resolution);
+		AggregateCounterResolution actual = coarsen(interval, resolution, maxPoints);
+		return conditionally(name, interval, actual, "varint", webRequest,
+				(aggregate, response) -> response.contentType(MediaType.valueOf(COMPACT_VARINT_VALUE))
+						.body(CompactAggregateCounterCodec.encode(toCompactResource(aggregate))));
+	}
+
+	/**
+	 * Export the counts of a page of counters for a given time interval, as consecutive
+	 * {@link CompactAggregateCounterCodec binary} records in name order. Selected by requesting the
+	 * {@value #COMPACT_VARINT_VALUE} media type; clients page through all counters until they get an empty page.
+	 *
+	 * @param pageable   {@link Pageable}
+	 * @param prefix     only export counters whose name starts with this prefix
+	 * @param from       the start-time for the interval, default depends on the resolution
+	 * @param to         the end-time for the interval, default "now"
+	 * @param resolution the size of buckets to aggregate (default "hour")
+	 * @param maxPoints  the maximum number of buckets per counter, if any. Counts are only read at a coarser
+	 *                   resolution, never summed up
+	 * @return the encoded counts
+	 */
+	@RequestMapping(value = "", method = RequestMethod.GET, produces = COMPACT_VARINT_VALUE)
+	public ResponseEntity<byte[]> export(Pageable pageable,
+			@RequestParam(value = "prefix", required = false) String prefix,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints)
+			throws IOException {
+		Interval interval = interval(from, to, resolution);
+		AggregateCounterResolution actual = coarsen(interval, resolution, maxPoints);
+		List<String> names = repository.list(prefix, pageable.getOffset(), pageable.getPageSize());
+		List<AggregateCounter> aggregates = query(names, interval, actual);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(names.size() * 64);
+		for (AggregateCounter aggregate : aggregates) {
+			CompactAggregateCounterCodec.encode(toCompactResource(aggregate), out);
+		}
+		return ResponseEntity.ok().contentType(MediaType.valueOf(COMPACT_VARINT_VALUE)).body(out.toByteArray());
+	}
+
+	/**
+	 * Follow some counters live, over Server-Sent Events. A {@code snapshot} event carrying the
+	 * {@link CompactAggregateCounterResource compact} representation of the default window is first sent for each
+	 * counter. Then, an {@code update} event is pushed whenever the value of the current bucket of a counter changes,
+	 * and a {@code rollover} event with the final value of a bucket when it closes. Subscriptions are completed after
+	 * {@link #setStreamTimeout(Duration) some time}.
+	 *
+	 * @param names      the names of the counters to follow, at most {@link #setMaxStreamedCounters(int) so many}
+	 * @param resolution the size of buckets to follow (default "hour")
+	 * @return the event stream
+	 * @throws IOException if the snapshot could not be sent
+	 */
+	@RequestMapping(value = "/stream", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter stream(@RequestParam("name") List<String> names,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution)
+			throws IOException {
+		List<String> followed = new ArrayList<>(new LinkedHashSet<>(names));
+		if (followed.size() > maxStreamedCounters) {
+			throw new InvalidMetricQueryException("At most " + maxStreamedCounters + " counters may be followed");
+		}
+		for (String name : followed) {
+			if (!repository.exists(name)) {
+				throw new NoSuchMetricException(name);
+			}
+		}
+		List<AggregateCounter> snapshots = query(followed, interval(null, null, resolution), resolution);
+		SseEmitter emitter = new SseEmitter(streamTimeout);
+		for (AggregateCounter snapshot : snapshots) {
+			emitter.send(SseEmitter.event().name("snapshot").data(toCompactResource(snapshot)));
+		}
+		tail.subscribe(followed, resolution, emitter);
+		return emitter;
+	}
+
+	@Override
+	public void destroy() {
+		tail.shutdown();
+	}
+
+	/**
+	 * Set how long responses may be cached when they cover an interval that is entirely in the past. Defaults to one
+	 * hour.
+	 * <p>
+	 * Such counts are assumed not to change anymore, which doesn't hold when events are written with past timestamps,
+	 * <i>e.g.</i> through the ingest endpoint. As the entity tag of a closed interval doesn't depend on its counts,
+	 * clients that cached a response only see later writes once it expires and they drop it: keep this short, or set
+	 * it to zero, when late writes are expected.
+	 * </p>
+	 *
+	 * @param closedIntervalMaxAge the lifetime of such responses
+	 */
+	public void setClosedIntervalMaxAge(Duration closedIntervalMaxAge) {
+		Assert.isTrue(closedIntervalMaxAge.getMillis() >= 0, "closedIntervalMaxAge must not be negative");
+		this.closedIntervalCacheControl = CacheControl
+				.maxAge(closedIntervalMaxAge.getStandardSeconds(), TimeUnit.SECONDS).cachePublic();
+	}
+
+	private AggregateCounter query(String name, Interval interval, AggregateCounterResolution resolution) {
+		return guard.execute(guard.cost(interval, resolution, 1),
+				() -> repository.getCounts(name, interval, resolution));
+	}
+
+	private List<AggregateCounter> query(List<String> names, Interval interval,
+			AggregateCounterResolution resolution) {
+		return guard.execute(guard.cost(interval, resolution, names.size()),
+				() -> repository.getCounts(names, interval, resolution));
+	}
+
+	private AggregateCounterResource toDeepResource(AggregateCounter aggregate, Integer maxPoints) {
+		AggregateCounterResource resource = deepAssembler.toResource(aggregate);
+		return maxPoints == null ? resource : resource.downsample(maxPoints);
+	}
+
+	private List<AggregateCounterResource> toDeepResources(List<AggregateCounter> aggregates, Integer maxPoints) {
+		List<AggregateCounterResource> resources = deepAssembler.toResources(aggregates);
+		if (maxPoints != null) {
+			resources.replaceAll(resource -> resource.downsample(maxPoints));
+		}
+		return resources;
+	}
+
+	private CompactAggregateCounterResource toCompactResource(AggregateCounter aggregate) {
+		CompactAggregateCounterResource result = new CompactAggregateCounterResource(aggregate.getName(),
+				aggregate.getInterval().getStart().toDate(), aggregate.getResolution(), aggregate.getCounts());
+		result.add(linkTo(AggregateCounterController.class).slash(aggregate.getName()).withSelfRel());
+		return result;
+	}
+
+	/**
+	 * Answer a possibly conditional request for a representation of the counts of a counter. Once its last bucket has
+	 * closed, an interval is not expected to change anymore: its representations are cacheable for long, and their
+	 * entity tag is derived from the request so that {@code If-None-Match} (or {@code If-Modified-Since} without it)
+	 * is checked before reading counts. Representations of open intervals must be revalidated, against a tag hashed
+	 * out of the counts.
+	 */
+	private <T> ResponseEntity<T> conditionally(String name, Interval interval, AggregateCounterResolution resolution,
+			String representation, WebRequest webRequest,
+			BiFunction<AggregateCounter, ResponseEntity.BodyBuilder, ResponseEntity<T>> body) {
+		DateTime closing = closingOf(interval, resolution);
+		if (!closing.isAfterNow()) {
+			CacheControl cacheControl = closedIntervalCacheControl;
+			String eTag = MetricETags.ofClosed(name, interval, resolution, representation);
+			if (webRequest.checkNotModified(eTag, closing.getMillis())) {
+				return cacheable(HttpStatus.NOT_MODIFIED, cacheControl).build();
+			}
+			return body.apply(query(name, interval, resolution), cacheable(HttpStatus.OK, cacheControl));
+		}
+		AggregateCounter aggregate = query(name, interval, resolution);
+		if (webRequest.checkNotModified(MetricETags.of(aggregate, representation))) {
+			return cacheable(HttpStatus.NOT_MODIFIED, CacheControl.noCache()).build();
+		}
+		return body.apply(aggregate, cacheable(HttpStatus.OK, CacheControl.noCache()));
+	}
+
+	/**
+	 * Return the end of the last bucket of the given resolution that overlaps an interval.
+	 */
+	private static DateTime closingOf(Interval interval, AggregateCounterResolution resolution) {
+		return resolution.roundFloor(interval.getEnd()).plus(resolution.unitPeriod);
+	}
+
+	/**
+	 * Start a response that caches may store. As the same URL has several representations, chosen by the
+	 * {@code Accept} header, caches are told to key responses by it.
+	 */
+	private static ResponseEntity.BodyBuilder cacheable(HttpStatus status, CacheControl cacheControl) {
+		return ResponseEntity.status(status).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT);
+	}
+
+	/**
+	 * Return the resolution to query an interval at: the requested one, or a coarser one if the interval spans more
+	 * than {@code maxPoints} buckets of the requested resolution.
+	 */
+	static AggregateCounterResolution coarsen(Interval interval, AggregateCounterResolution resolution,
+			Integer maxPoints) {
+		if (maxPoints == null) {
+			return resolution;
+		}
+		if (maxPoints < 1) {
+			throw new InvalidMetricQueryException("maxPoints must be positive, got " + maxPoints);
+		}
+		return resolution.coarsen(interval, maxPoints);
+	}
+
+	/**
+	 * Return the interval to query, defaulting to a window that ends now and whose length depends on the resolution.
+	 */
+	static Interval interval(DateTime from, DateTime to, AggregateCounterResolution resolution) {
 		to = providedOrDefaultToValue(to);
 		from = providedOrDefaultFromValue(from, to, resolution);
-		AggregateCounter aggregate = repository.getCounts(name, new Interval(from, to), resolution);
-		return deepAssembler.toResource(aggregate);
+		return new Interval(from, to);
 	}
 
 	/**
 	 * Return a default value for the interval end if none has been provided.
 	 */
-	private DateTime providedOrDefaultToValue(DateTime to) {
+	private static DateTime providedOrDefaultToValue(DateTime to) {
 		if (to == null) {
 			to = new DateTime();
 		}
@@ -174,7 +600,7 @@ public class AggregateCounterController {
 	/**
 	 * Return a default value for the interval start if none has been provided.
 	 */
-	private DateTime providedOrDefaultFromValue(DateTime from, DateTime to,
+	private static DateTime providedOrDefaultFromValue(DateTime from, DateTime to,
 			AggregateCounterResolution resolution) {
 		if (from != null) {
 			return from;
@@ -231,16 +657,23 @@ public class AggregateCounterController {
 
 		@Override
 		protected AggregateCounterResource instantiateResource(AggregateCounter entity) {
-			AggregateCounterResource result = new AggregateCounterResource(
-					entity.getName());
-			ReadablePeriod increment = entity.getResolution().unitPeriod;
-			DateTime end = entity.getInterval().getEnd();
-			int i = 0;
-			for (DateTime when = entity.getInterval().getStart(); !when
-					.isAfter(end); when = when.plus(increment)) {
-				result.addValue(new Date(when.getMillis()), entity.getCounts()[i++]);
-			}
-			return result;
+			return newDeepResource(entity);
+		}
+	}
+
+	/**
+	 * Create a resource holding the counts of the given aggregate, one per bucket, with no link.
+	 */
+	static AggregateCounterResource newDeepResource(AggregateCounter entity) {
+		AggregateCounterResource result = new AggregateCounterResource(
+				entity.getName());
+		ReadablePeriod increment = entity.getResolution().unitPeriod;
+		DateTime end = entity.getInterval().getEnd();
+		int i = 0;
+		for (DateTime when = entity.getInterval().getStart(); !when
+				.isAfter(end); when = when.plus(increment)) {
+			result.addValue(new Date(when.getMillis()), entity.getCounts()[i++]);
 		}
+		return result;
 	}
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.analytics.rest.controller;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.joda.time.Interval;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.util.Assert;
+
+/**
+ * Admits aggregate counter reads depending on their cost, estimated as the number of buckets they read. Reads
+ * costing more than a hard limit are refused. Reads costing more than a lower threshold are deemed expensive, and
+ * only a few of them may run at a time: others are refused rather than queued, so that they don't pile up. Counters
+ * followed live each cost a periodic read, so only so many of them may be followed at a time.
+ */
+class AggregateCounterQueryGuard {
+
+	private volatile long maxBuckets = 1_000_000L;
+
+	private volatile long expensiveBuckets = 50_000L;
+
+	private volatile Semaphore expensiveQueries = new Semaphore(4);
+
+	private volatile int maxTickers = 1000;
+
+	private final AtomicInteger tickers = new AtomicInteger();
+
+	/**
+	 * Set the maximum number of buckets a single request may read.
+	 */
+	void setMaxBuckets(long maxBuckets) {
+		Assert.isTrue(maxBuckets > 0, "maxBuckets must be positive");
+		this.maxBuckets = maxBuckets;
+	}
+
+	/**
+	 * Set the number of buckets above which a request is expensive.
+	 */
+	void setExpensiveBuckets(long expensiveBuckets) {
+		Assert.isTrue(expensiveBuckets >= 0, "expensiveBuckets must not be negative");
+		this.expensiveBuckets = expensiveBuckets;
+	}
+
+	/**
+	 * Set how many expensive requests may run at the same time. Requests already running are not accounted for by
+	 * the new limit.
+	 */
+	void setMaxConcurrentExpensiveQueries(int maxConcurrentExpensiveQueries) {
+		Assert.isTrue(maxConcurrentExpensiveQueries > 0, "maxConcurrentExpensiveQueries must be positive");
+		this.expensiveQueries = new Semaphore(maxConcurrentExpensiveQueries);
+	}
+
+	/**
+	 * Set how many counters may be followed live at the same time, over all subscribers.
+	 */
+	void setMaxTickers(int maxTickers) {
+		Assert.isTrue(maxTickers > 0, "maxTickers must be positive");
+		this.maxTickers = maxTickers;
+	}
+
+	/**
+	 * Admit periodic reads of the given number of counters, which must be released once they stop.
+	 * @throws TooManyQueriesException if too many counters are followed live already
+	 */
+	void acquireTickers(int count) {
+		int current;
+		do {
+			current = tickers.get();
+			if (current + count > maxTickers) {
+				throw new TooManyQueriesException("Too many counters are followed live, try again later");
+			}
+		}
+		while (!tickers.compareAndSet(current, current + count));
+	}
+
+	/**
+	 * Release periodic reads admitted by {@link #acquireTickers(int)}.
+	 */
+	void releaseTickers(int count) {
+		tickers.addAndGet(-count);
+	}
+
+	/**
+	 * Return the number of buckets read to get the counts of some counters over an interval, or
+	 * {@link Long#MAX_VALUE} if there are too many to count.
+	 */
+	long cost(Interval interval, AggregateCounterResolution resolution, int counters) {
+		long buckets = resolution.bucketsIn(interval);
+		return counters == 0 ? 0L : buckets > Long.MAX_VALUE / counters ? Long.MAX_VALUE : buckets * counters;
+	}
+
+	/**
+	 * Run a read of the given cost, if admitted.
+	 * @throws QueryTooExpensiveException if the read costs too much
+	 * @throws TooManyQueriesException if the read is expensive and too many expensive reads are running
+	 */
+	<T> T execute(long cost, Supplier<T> query) {
+		Semaphore permit = admit(cost);
+		if (permit == null) {
+			return query.get();
+		}
+		try {
+			return query.get();
+		}
+		finally {
+			permit.release();
+		}
+	}
+
+	/**
+	 * Admit a read of the given cost. Expensive reads are given a permit, which must be released once they complete.
+	 * @return the semaphore to release the permit to, or {@literal null} if the read is not expensive
+	 * @throws QueryTooExpensiveException if the read costs too much
+	 * @throws TooManyQueriesException if the read is expensive and too many expensive reads are running
+	 */
+	Semaphore admit(long cost) {
+		if (cost > maxBuckets) {
+			throw new QueryTooExpensiveException(
+					"Query would read " + cost + " buckets, more than the limit of " + maxBuckets);
+		}
+		if (cost <= expensiveBuckets) {
+			return null;
+		}
+		Semaphore permit = this.expensiveQueries;
+		if (!permit.tryAcquire()) {
+			throw new TooManyQueriesException("Too many expensive queries are running, try again later");
+		}
+		return permit;
+	}
+
+}
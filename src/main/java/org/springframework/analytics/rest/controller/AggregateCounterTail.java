@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.DateTime;
+
+import org.springframework.analytics.metrics.AggregateCounterReader;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.rest.domain.AggregateCounterBucket;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes the value of the current bucket of aggregate counters to Server-Sent Events subscribers.
+ *
+ * <p>
+ * There is a single ticker per counter and resolution, however many subscribers there are: each tick reads the last
+ * two buckets of the counter once, and fans the result out. An {@code update} event is sent when the value of the
+ * current bucket changed since the previous tick. When a new bucket starts, a {@code rollover} event carrying the
+ * final value of the closed bucket is sent first. Tickers are stopped once their last subscriber goes away, and are
+ * accounted for by the {@link AggregateCounterQueryGuard} while they run.
+ * </p>
+ *
+ * <p>
+ * Ticks only queue events: each subscriber is sent its events by a separate task, so that a slow client doesn't hold
+ * up the others. Subscribers that fall too far behind are disconnected.
+ * </p>
+ */
+class AggregateCounterTail {
+
+	static final String UPDATE_EVENT = "update";
+
+	static final String ROLLOVER_EVENT = "rollover";
+
+	/**
+	 * The number of events a subscriber may have pending before it is deemed too slow, and disconnected.
+	 */
+	static final int MAX_PENDING_EVENTS = 100;
+
+	private static final Log logger = LogFactory.getLog(AggregateCounterTail.class);
+
+	private final AggregateCounterReader repository;
+
+	private final AggregateCounterQueryGuard guard;
+
+	private final long intervalMillis;
+
+	private final Map<String, Ticker> tickers = new HashMap<>();
+
+	private ScheduledExecutorService executor;
+
+	private ExecutorService sender;
+
+	AggregateCounterTail(AggregateCounterReader repository, AggregateCounterQueryGuard guard, long intervalMillis) {
+		this.repository = repository;
+		this.guard = guard;
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * Start pushing updates of the given counters to the given emitter, until it completes.
+	 * @throws TooManyQueriesException if following the counters would start more tickers than the guard allows
+	 */
+	synchronized void subscribe(Collection<String> names, AggregateCounterResolution resolution, SseEmitter emitter) {
+		int started = 0;
+		for (String name : names) {
+			if (!tickers.containsKey(resolution + ":" + name)) {
+				started++;
+			}
+		}
+		guard.acquireTickers(started);
+		if (executor == null) {
+			executor = Executors.newSingleThreadScheduledExecutor(
+					new CustomizableThreadFactory("aggregate-counter-tail-"));
+			sender = Executors.newCachedThreadPool(new CustomizableThreadFactory("aggregate-counter-tail-send-"));
+		}
+		Subscriber subscriber = new Subscriber(emitter);
+		for (String name : names) {
+			String key = resolution + ":" + name;
+			Ticker ticker = tickers.get(key);
+			if (ticker == null) {
+				ticker = new Ticker(key, name, resolution);
+				// subscribe before the first tick, which would otherwise publish the initial value to no one
+				ticker.subscribers.add(subscriber);
+				ticker.future = executor.scheduleWithFixedDelay(ticker, 0L, intervalMillis, TimeUnit.MILLISECONDS);
+				tickers.put(key, ticker);
+			}
+			else {
+				ticker.subscribers.add(subscriber);
+			}
+			subscriber.tickers.add(ticker);
+		}
+		emitter.onCompletion(subscriber::cancel);
+		emitter.onTimeout(subscriber::cancel);
+	}
+
+	/**
+	 * Stop all tickers and complete all subscriptions.
+	 */
+	synchronized void shutdown() {
+		for (Ticker ticker : tickers.values()) {
+			ticker.future.cancel(false);
+			for (Subscriber subscriber : ticker.subscribers) {
+				subscriber.emitter.complete();
+			}
+		}
+		guard.releaseTickers(tickers.size());
+		tickers.clear();
+		if (executor != null) {
+			executor.shutdownNow();
+			sender.shutdownNow();
+			executor = null;
+			sender = null;
+		}
+	}
+
+	private synchronized void unsubscribe(Ticker ticker, Subscriber subscriber) {
+		if (ticker.subscribers.remove(subscriber) && ticker.subscribers.isEmpty()
+				&& tickers.remove(ticker.key) == ticker) {
+			ticker.future.cancel(false);
+			guard.releaseTickers(1);
+		}
+	}
+
+	private synchronized void send(Subscriber subscriber) {
+		if (sender != null) {
+			sender.execute(subscriber);
+		}
+	}
+
+	private final class Ticker implements Runnable {
+
+		private final String key;
+
+		private final String name;
+
+		private final AggregateCounterResolution resolution;
+
+		private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+		private ScheduledFuture<?> future;
+
+		private long bucketStart = Long.MIN_VALUE;
+
+		private long value = -1L;
+
+		private Ticker(String key, String name, AggregateCounterResolution resolution) {
+			this.key = key;
+			this.name = name;
+			this.resolution = resolution;
+		}
+
+		@Override
+		public void run() {
+			try {
+				DateTime now = new DateTime();
+				long[] counts = repository.getCounts(name, 2, now, resolution).getCounts();
+				long start = resolution.roundFloor(now).getMillis();
+				long current = counts[counts.length - 1];
+				if (start != bucketStart) {
+					if (bucketStart != Long.MIN_VALUE && counts.length > 1) {
+						publish(ROLLOVER_EVENT, new AggregateCounterBucket(name, resolution,
+								resolution.roundFloor(now.minus(resolution.unitPeriod)).toDate(),
+								counts[counts.length - 2]));
+					}
+					bucketStart = start;
+					value = -1L;
+				}
+				if (current != value) {
+					value = current;
+					publish(UPDATE_EVENT, new AggregateCounterBucket(name, resolution, new DateTime(start).toDate(),
+							current));
+				}
+			}
+			catch (RuntimeException e) {
+				logger.warn("Could not read aggregate counter " + name, e);
+			}
+		}
+
+		private void publish(String eventName, AggregateCounterBucket bucket) {
+			for (Subscriber subscriber : subscribers) {
+				subscriber.offer(SseEmitter.event().name(eventName).data(bucket));
+			}
+		}
+	}
+
+	/**
+	 * Sends the events of one emitter in order, on a thread of its own while it has some pending.
+	 */
+	private final class Subscriber implements Runnable {
+
+		private final SseEmitter emitter;
+
+		private final List<Ticker> tickers = new CopyOnWriteArrayList<>();
+
+		private final Queue<SseEmitter.SseEventBuilder> events = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger pending = new AtomicInteger();
+
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		private Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		private void offer(SseEmitter.SseEventBuilder event) {
+			if (pending.incrementAndGet() > MAX_PENDING_EVENTS) {
+				emitter.completeWithError(new IllegalStateException(
+						"Subscriber fell more than " + MAX_PENDING_EVENTS + " events behind"));
+				cancel();
+				return;
+			}
+			events.add(event);
+			if (sending.compareAndSet(false, true)) {
+				send(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			do {
+				SseEmitter.SseEventBuilder event;
+				while ((event = events.poll()) != null) {
+					pending.decrementAndGet();
+					try {
+						emitter.send(event);
+					}
+					catch (IOException | IllegalStateException e) {
+						emitter.completeWithError(e);
+						cancel();
+						return;
+					}
+				}
+				sending.set(false);
+			}
+			while (!events.isEmpty() && sending.compareAndSet(false, true));
+		}
+
+		private void cancel() {
+			for (Ticker ticker : tickers) {
+				unsubscribe(ticker, this);
+			}
+		}
+	}
+
+}
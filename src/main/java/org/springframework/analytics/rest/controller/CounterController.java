@@ -17,7 +17,7 @@
 package org.springframework.analytics.rest.controller;
 
 import org.springframework.analytics.rest.domain.Metric;
-import org.springframework.analytics.metrics.redis.RedisMetricRepository;
+import org.springframework.analytics.metrics.MetricRepository;
 import org.springframework.analytics.rest.domain.CounterResource;
 import org.springframework.analytics.rest.domain.MetricResource;
 import org.springframework.data.domain.Page;
@@ -35,8 +35,6 @@ import org.springframework.web.bind.annotation.*;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.Math.toIntExact;
-
 /**
  * Allows interaction with Counters.
  *
@@ -51,20 +49,22 @@ public class CounterController {
 
 	public static final String COUNTER_PREFIX = "counter.";
 
-	private final RedisMetricRepository metricRepository;
+	private static final String COUNTER_TYPE = "counter";
+
+	private final MetricRepository metricRepository;
 
-	private final ResourceAssembler<Metric<Double>, CounterResource> counterResourceAssembler =
+	private final ResourceAssembler<Metric<Number>, CounterResource> counterResourceAssembler =
 			new DeepCounterResourceAssembler();
 
-	protected final ResourceAssembler<Metric<Double>, ? extends MetricResource> shallowResourceAssembler =
+	protected final ResourceAssembler<Metric<Number>, ? extends MetricResource> shallowResourceAssembler =
 			new ShallowMetricResourceAssembler();
 
 	/**
-	 * Create a {@link CounterController} that delegates to the provided {@link RedisMetricRepository}.
+	 * Create a {@link CounterController} that delegates to the provided {@link MetricRepository}.
 	 *
-	 * @param metricRepository the {@link RedisMetricRepository} used by this controller
+	 * @param metricRepository the {@link MetricRepository} used by this controller
 	 */
-	public CounterController(RedisMetricRepository metricRepository) {
+	public CounterController(MetricRepository metricRepository) {
 		Assert.notNull(metricRepository, "metricRepository must not be null");
 		this.metricRepository = metricRepository;
 	}
@@ -80,15 +80,12 @@ public class CounterController {
 	@RequestMapping(value = "", method = RequestMethod.GET)
 	public PagedResources<? extends MetricResource> list(
 			Pageable pageable,
-			PagedResourcesAssembler<Metric<Double>> pagedAssembler,
+			PagedResourcesAssembler<Metric<Number>> pagedAssembler,
 			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed) {
-		/* Page */ Iterable<Metric<?>> metrics = metricRepository.findAll(/* pageable */);
-		List<Metric<Double>> content = filterCounters(metrics);
-		long count = content.size();
-		long pageEnd = Math.min(count, pageable.getOffset() + pageable.getPageSize());
-		Page counterPage = new PageImpl<>(content.subList(toIntExact(pageable.getOffset()), toIntExact(pageEnd)),
-				pageable, content.size());
-		ResourceAssembler<Metric<Double>, ? extends MetricResource> assemblerToUse =
+		List<Metric<Number>> content = filterCounters(
+				metricRepository.findAll(COUNTER_TYPE, pageable.getOffset(), pageable.getPageSize()));
+		Page counterPage = new PageImpl<>(content, pageable, metricRepository.count(COUNTER_TYPE));
+		ResourceAssembler<Metric<Number>, ? extends MetricResource> assemblerToUse =
 				detailed ? counterResourceAssembler : shallowResourceAssembler;
 		return pagedAssembler.toResource(counterPage, assemblerToUse);
 	}
@@ -101,7 +98,7 @@ public class CounterController {
 	 */
 	@RequestMapping(value = "/{name}", method = RequestMethod.GET)
 	public CounterResource display(@PathVariable("name") String name) {
-		Metric<Double> c = findCounter(name);
+		Metric<Number> c = findCounter(name);
 		return counterResourceAssembler.toResource(c);
 	}
 
@@ -113,7 +110,7 @@ public class CounterController {
 	@RequestMapping(value = "/{name}", method = RequestMethod.DELETE)
 	@ResponseStatus(HttpStatus.OK)
 	protected void delete(@PathVariable("name") String name) {
-		Metric<Double> c = findCounter(name);
+		Metric<Number> c = findCounter(name);
 		metricRepository.reset(c.getName());
 	}
 
@@ -124,9 +121,9 @@ public class CounterController {
 	 * @return counter
 	 * @throws NoSuchMetricException if the counter does not exist
 	 */
-	private Metric<Double> findCounter(@PathVariable("name") String name) {
+	private Metric<Number> findCounter(@PathVariable("name") String name) {
 		@SuppressWarnings("unchecked")
-		Metric<Double> c = (Metric<Double>) metricRepository.findOne(COUNTER_PREFIX + name);
+		Metric<Number> c = (Metric<Number>) metricRepository.findOne(COUNTER_PREFIX + name);
 		if (c == null) {
 			throw new NoSuchMetricException(name);
 		}
@@ -155,19 +152,19 @@ public class CounterController {
 	 * @author Eric Bottard
 	 */
 	static class ShallowMetricResourceAssembler extends
-			ResourceAssemblerSupport<Metric<Double>, MetricResource> {
+			ResourceAssemblerSupport<Metric<Number>, MetricResource> {
 
 		public ShallowMetricResourceAssembler() {
 			super(CounterController.class, MetricResource.class);
 		}
 
 		@Override
-		public MetricResource toResource(Metric<Double> entity) {
+		public MetricResource toResource(Metric<Number> entity) {
 			return createResourceWithId(entity.getName().substring(COUNTER_PREFIX.length()), entity);
 		}
 
 		@Override
-		protected MetricResource instantiateResource(Metric<Double> entity) {
+		protected MetricResource instantiateResource(Metric<Number> entity) {
 			return new MetricResource(entity.getName().substring(COUNTER_PREFIX.length()));
 		}
 
@@ -179,19 +176,19 @@ public class CounterController {
 	 * @author Eric Bottard
 	 */
 	static class DeepCounterResourceAssembler extends
-			ResourceAssemblerSupport<Metric<Double>, CounterResource> {
+			ResourceAssemblerSupport<Metric<Number>, CounterResource> {
 
 		public DeepCounterResourceAssembler() {
 			super(CounterController.class, CounterResource.class);
 		}
 
 		@Override
-		public CounterResource toResource(Metric<Double> entity) {
+		public CounterResource toResource(Metric<Number> entity) {
 			return createResourceWithId(entity.getName().substring(COUNTER_PREFIX.length()), entity);
 		}
 
 		@Override
-		protected CounterResource instantiateResource(Metric<Double> entity) {
+		protected CounterResource instantiateResource(Metric<Number> entity) {
 			return new CounterResource(entity.getName().substring(COUNTER_PREFIX.length()), entity.getValue().longValue());
 		}
 
@@ -16,28 +16,41 @@
 
 package org.springframework.analytics.rest.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.analytics.metrics.FieldValueCounter;
 import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.RankedFieldValue;
 import org.springframework.analytics.rest.domain.FieldValueCounterResource;
+import org.springframework.analytics.rest.domain.FieldValueResource;
 import org.springframework.analytics.rest.domain.MetricResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.ResourceAssembler;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.UriUtils;
 
-import static java.lang.Math.toIntExact;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 
 /**
  * Allows interaction with Field Value Counters.
@@ -61,18 +74,87 @@ public class FieldValueCounterController {
 	private ShallowResourceAssembler shallowAssembler = new ShallowResourceAssembler();
 
 	/**
-	 * Retrieve information about a specific counter.
+	 * Retrieve information about a specific counter. The response carries an entity tag computed from the scores of
+	 * the counter, and must be revalidated: clients that send it back with {@code If-None-Match} get a
+	 * {@code 304 Not Modified} while the counter is unchanged.
 	 *
 	 * @param name name
-	 * @return counter information
+	 * @param webRequest the current request, checked for {@code If-None-Match}
+	 * @return counter information, or an empty {@code 304 Not Modified} response if the client has it already
 	 */
-	@RequestMapping(value = "/{name}", method = RequestMethod.GET)
-	public FieldValueCounterResource display(@PathVariable("name") String name) {
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE,
+			AggregateCounterController.CBOR_VALUE, AggregateCounterController.SMILE_VALUE })
+	public ResponseEntity<FieldValueCounterResource> display(@PathVariable("name") String name,
+			WebRequest webRequest) {
 		FieldValueCounter counter = repository.findOne(name);
 		if (counter == null) {
 			throw new NoSuchMetricException(name);
 		}
-		return deepAssembler.toResource(counter);
+		MediaType mediaType = MetricETags.negotiate(webRequest);
+		if (webRequest.checkNotModified(MetricETags.of(counter, mediaType))) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache())
+					.varyBy(HttpHeaders.ACCEPT).build();
+		}
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+				.contentType(mediaType).body(deepAssembler.toResource(counter));
+	}
+
+	/**
+	 * Retrieve the scores of some fields of a specific counter. Fields that don't exist are omitted.
+	 *
+	 * @param name name
+	 * @param fields the names of the fields to retrieve
+	 * @return counter information, restricted to the requested fields
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, params = "field")
+	public FieldValueCounterResource display(@PathVariable("name") String name,
+			@RequestParam("field") List<String> fields) {
+		Map<String, Double> scores = repository.findScores(name, fields);
+		if (scores.isEmpty() && !repository.exists(name)) {
+			throw new NoSuchMetricException(name);
+		}
+		return deepAssembler.toResource(new FieldValueCounter(name, scores));
+	}
+
+	/**
+	 * Page through the fields of a specific counter, ranked by decreasing value.
+	 *
+	 * @param name name
+	 * @param pageable {@link Pageable}
+	 * @param pagedAssembler {@link PagedResourcesAssembler}
+	 * @return the fields of the requested page
+	 */
+	@RequestMapping(value = "/{name}/fields", method = RequestMethod.GET)
+	public PagedResources<FieldValueResource> fields(@PathVariable("name") String name, Pageable pageable,
+			PagedResourcesAssembler<FieldValueResource> pagedAssembler) {
+		long count = repository.countFields(name);
+		if (count == 0) {
+			throw new NoSuchMetricException(name);
+		}
+		FieldValueCounter range = repository.findRange(name, pageable.getOffset(), pageable.getPageSize());
+		List<FieldValueResource> fields = new ArrayList<>(range.getFieldValueCounts().size());
+		long rank = pageable.getOffset();
+		for (Map.Entry<String, Double> entry : range.getFieldValueCounts().entrySet()) {
+			fields.add(new FieldValueResource(entry.getKey(), entry.getValue(), rank++));
+		}
+		return pagedAssembler.toResource(new PageImpl<>(fields, pageable, count), new FieldValueResourceAssembler(name));
+	}
+
+	/**
+	 * Retrieve the value and rank of a single field of a specific counter.
+	 *
+	 * @param name name
+	 * @param field the name of the field
+	 * @return field information
+	 */
+	@RequestMapping(value = "/{name}/fields/{field:.+}", method = RequestMethod.GET)
+	public FieldValueResource field(@PathVariable("name") String name, @PathVariable("field") String field) {
+		RankedFieldValue ranked = repository.findRankAndScore(name, field);
+		if (ranked == null) {
+			throw new NoSuchMetricException(name + "." + field);
+		}
+		return new FieldValueResourceAssembler(name)
+				.toResource(new FieldValueResource(field, ranked.getValue(), ranked.getRank()));
 	}
 
 	/**
@@ -83,8 +165,7 @@ public class FieldValueCounterController {
 	@RequestMapping(value = "/{name}", method = RequestMethod.DELETE)
 	@ResponseStatus(HttpStatus.OK)
 	protected void delete(@PathVariable("name") String name) {
-		FieldValueCounter counter = repository.findOne(name);
-		if (counter == null) {
+		if (!repository.exists(name)) {
 			throw new NoSuchMetricException(name);
 		}
 		repository.reset(name);
@@ -95,15 +176,15 @@ public class FieldValueCounterController {
 	 *
 	 * @param pageable {@link Pageable}
 	 * @param pagedAssembler {@link PagedResourcesAssembler}
+	 * @param prefix only list counters whose name starts with this prefix
 	 * @return counters
 	 */
 	@RequestMapping(value = "", method = RequestMethod.GET)
 	public PagedResources<? extends MetricResource> list(Pageable pageable,
-			PagedResourcesAssembler<String> pagedAssembler) {
-		List<String> names = new ArrayList<>(repository.list());
-		long count = names.size();
-		long pageEnd = Math.min(count, pageable.getOffset() + pageable.getPageSize());
-		Page fieldValueCounterPage = new PageImpl<>(names.subList(toIntExact(pageable.getOffset()), toIntExact(pageEnd)), pageable, names.size());
+			PagedResourcesAssembler<String> pagedAssembler,
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		List<String> names = repository.list(prefix, pageable.getOffset(), pageable.getPageSize());
+		Page<String> fieldValueCounterPage = new PageImpl<>(names, pageable, repository.count(prefix));
 		return pagedAssembler.toResource(fieldValueCounterPage, shallowAssembler);
 	}
 
@@ -128,6 +209,29 @@ public class FieldValueCounterController {
 		}
 	}
 
+	/**
+	 * Adds a self link to {@link FieldValueResource}s of a given counter.
+	 */
+	private static class FieldValueResourceAssembler implements ResourceAssembler<FieldValueResource, FieldValueResource> {
+
+		private final String counterName;
+
+		private FieldValueResourceAssembler(String counterName) {
+			this.counterName = counterName;
+		}
+
+		@Override
+		public FieldValueResource toResource(FieldValueResource resource) {
+			// slash() would parse the field as a URI, reading '/', '?' and '#' as delimiters
+			String href = linkTo(FieldValueCounterController.class).slash(counterName).slash("fields")
+					.toUriComponentsBuilder()
+					.pathSegment(UriUtils.encodePathSegment(resource.getField(), StandardCharsets.UTF_8))
+					.build(true).toUriString();
+			resource.add(new Link(href));
+			return resource;
+		}
+	}
+
 	/**
 	 * Knows how to assemble {@link FieldValueCounterResource} out of {@link FieldValueCounter}.
 	 *
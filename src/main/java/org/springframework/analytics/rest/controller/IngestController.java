@@ -0,0 +1,277 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.joda.time.DateTime;
+
+import org.springframework.analytics.metrics.AggregateCounterRepository;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.IngestReport;
+import org.springframework.analytics.rest.domain.MetricEvent;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Allows writing to metrics in bulk over HTTP.
+ *
+ * <p>
+ * The request body is a stream of {@link MetricEvent}s, one JSON object per line, which is parsed as it is read.
+ * Events are merged by metric into batches of {@link #setBatchSize(int) so many} events, and each batch is written
+ * with as few repository calls as possible before the next one is read.
+ * </p>
+ */
+@RestController
+@RequestMapping("/metrics/ingest")
+public class IngestController {
+
+	/**
+	 * Media type of newline-delimited JSON.
+	 */
+	public static final String NDJSON_VALUE = "application/x-ndjson";
+
+	private final ObjectReader reader = new ObjectMapper().readerFor(MetricEvent.class);
+
+	private final MetricRepository metricRepository;
+
+	private final AggregateCounterRepository aggregateCounterRepository;
+
+	private final FieldValueCounterRepository fieldValueCounterRepository;
+
+	private int batchSize = 1000;
+
+	public IngestController(MetricRepository metricRepository, AggregateCounterRepository aggregateCounterRepository,
+			FieldValueCounterRepository fieldValueCounterRepository) {
+		Assert.notNull(metricRepository, "metricRepository must not be null");
+		Assert.notNull(aggregateCounterRepository, "aggregateCounterRepository must not be null");
+		Assert.notNull(fieldValueCounterRepository, "fieldValueCounterRepository must not be null");
+		this.metricRepository = metricRepository;
+		this.aggregateCounterRepository = aggregateCounterRepository;
+		this.fieldValueCounterRepository = fieldValueCounterRepository;
+	}
+
+	/**
+	 * Set the maximum number of events merged and written together. Defaults to 1000.
+	 *
+	 * @param batchSize the number of events per batch
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Write a stream of events. Reading stops at the first malformed or invalid event, in which case the batches
+	 * written so far are acknowledged in a {@code 400 Bad Request} response. It also stops when a batch cannot be
+	 * written, in which case the batches written so far and the failed one are reported in a
+	 * {@code 503 Service Unavailable} response, along with the types of metrics of the failed batch that were written
+	 * before the failure: clients retrying it should leave out their events.
+	 *
+	 * @param body the request body
+	 * @return the acknowledgement of each batch written
+	 * @throws IOException if the request body could not be read
+	 */
+	@RequestMapping(value = "", method = RequestMethod.POST,
+			consumes = { NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE },
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<IngestReport> ingest(InputStream body) throws IOException {
+		IngestReport report = new IngestReport();
+		PendingWrites pending = new PendingWrites();
+		try (MappingIterator<MetricEvent> events = reader.readValues(body)) {
+			while (true) {
+				long line = events.getCurrentLocation().getLineNr();
+				try {
+					if (!events.hasNextValue()) {
+						break;
+					}
+					MetricEvent event = events.nextValue();
+					line = events.getCurrentLocation().getLineNr();
+					pending.add(event, line);
+				}
+				catch (JsonProcessingException e) {
+					return badRequest(pending, report, e.getOriginalMessage(),
+							e.getLocation() == null ? line : e.getLocation().getLineNr());
+				}
+				catch (IllegalArgumentException e) {
+					return badRequest(pending, report, e.getMessage(), line);
+				}
+				if (pending.events == batchSize && !flush(pending, report)) {
+					return serviceUnavailable(report);
+				}
+			}
+		}
+		if (!flush(pending, report)) {
+			return serviceUnavailable(report);
+		}
+		return ResponseEntity.ok(report);
+	}
+
+	private ResponseEntity<IngestReport> badRequest(PendingWrites pending, IngestReport report, String error,
+			long line) {
+		if (!flush(pending, report)) {
+			return serviceUnavailable(report);
+		}
+		report.fail(error, line);
+		return ResponseEntity.badRequest().body(report);
+	}
+
+	private ResponseEntity<IngestReport> serviceUnavailable(IngestReport report) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(report);
+	}
+
+	/**
+	 * Write the pending events and acknowledge them, or report them as failed if they could not all be written.
+	 *
+	 * @return whether the pending events were written
+	 */
+	private boolean flush(PendingWrites pending, IngestReport report) {
+		if (pending.events == 0) {
+			return true;
+		}
+		IngestReport.Batch batch = new IngestReport.Batch(pending.firstLine, pending.lastLine, pending.events,
+				pending.writes());
+		List<MetricEvent.Type> applied = new ArrayList<>();
+		try {
+			write(pending, applied);
+		}
+		catch (RuntimeException e) {
+			report.reject(batch, applied, e.getMessage());
+			return false;
+		}
+		report.acknowledge(batch);
+		pending.clear();
+		return true;
+	}
+
+	/**
+	 * Write the pending events, one repository call per type of metric, recording the types written as it goes.
+	 */
+	private void write(PendingWrites pending, List<MetricEvent.Type> applied) {
+		if (!pending.counters.isEmpty()) {
+			List<Delta<Long>> deltas = new ArrayList<>(pending.counters.size());
+			for (Map.Entry<String, Long> entry : pending.counters.entrySet()) {
+				deltas.add(new Delta<>(CounterController.COUNTER_PREFIX + entry.getKey(), entry.getValue()));
+			}
+			metricRepository.increment(deltas);
+			applied.add(MetricEvent.Type.COUNTER);
+		}
+		if (!pending.aggregates.isEmpty()) {
+			aggregateCounterRepository.increment(pending.aggregates);
+			applied.add(MetricEvent.Type.AGGREGATE_COUNTER);
+		}
+		if (!pending.fieldValues.isEmpty()) {
+			fieldValueCounterRepository.increment(pending.fieldValues);
+			applied.add(MetricEvent.Type.FIELD_VALUE_COUNTER);
+		}
+	}
+
+	/**
+	 * Events read since the last write, merged by metric.
+	 */
+	private static class PendingWrites {
+
+		private final Map<String, Long> counters = new HashMap<>();
+
+		/**
+		 * Aggregate counter increments by minute, which is the finest resolution they are stored at.
+		 */
+		private final Map<DateTime, Map<String, Long>> aggregates = new TreeMap<>();
+
+		private final Map<String, Map<String, Double>> fieldValues = new HashMap<>();
+
+		private int events;
+
+		private long firstLine;
+
+		private long lastLine;
+
+		private void add(MetricEvent event, long line) {
+			Assert.notNull(event.getType(), "type is required");
+			Assert.hasText(event.getName(), "name is required");
+			double amount = event.getAmount();
+			switch (event.getType()) {
+			case COUNTER:
+				counters.merge(event.getName(), wholeAmount(amount), Long::sum);
+				break;
+			case AGGREGATE_COUNTER:
+				DateTime when = event.getTimestamp() == null ? new DateTime() : new DateTime(event.getTimestamp());
+				DateTime minute = AggregateCounterResolution.minute.roundFloor(when);
+				long increment = wholeAmount(amount);
+				aggregates.computeIfAbsent(minute, m -> new HashMap<>()).merge(event.getName(), increment, Long::sum);
+				break;
+			case FIELD_VALUE_COUNTER:
+				Assert.notNull(event.getField(), "field is required for field value counters");
+				Assert.isTrue(Double.isFinite(amount), "amount must be a finite number, was " + amount);
+				fieldValues.computeIfAbsent(event.getName(), n -> new HashMap<>())
+						.merge(event.getField(), amount, Double::sum);
+				break;
+			default:
+				throw new IllegalStateException("Unhandled event type: " + event.getType());
+			}
+			if (events++ == 0) {
+				firstLine = line;
+			}
+			lastLine = line;
+		}
+
+		private static long wholeAmount(double amount) {
+			Assert.isTrue(amount == Math.rint(amount) && !Double.isInfinite(amount),
+					"amount must be a whole number for counters, was " + amount);
+			return (long) amount;
+		}
+
+		private int writes() {
+			int writes = counters.size();
+			for (Map<String, Long> amounts : aggregates.values()) {
+				writes += amounts.size();
+			}
+			for (Map<String, Double> scores : fieldValues.values()) {
+				writes += scores.size();
+			}
+			return writes;
+		}
+
+		private void clear() {
+			counters.clear();
+			aggregates.clear();
+			fieldValues.clear();
+			events = 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.joda.time.Interval;
+
+import org.springframework.analytics.metrics.AggregateCounter;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Computes strong entity tags of metric representations out of the metric data itself, so that they can be compared
+ * with {@code If-None-Match} before any representation is built. The counts of closed intervals are the exception,
+ * see {@link #ofClosed(String, Interval, AggregateCounterResolution, String)}.
+ */
+final class MetricETags {
+
+	private MetricETags() {
+	}
+
+	/**
+	 * Return the entity tag of the given representation of an aggregate counter.
+	 * @param counter the counter
+	 * @param representation identifies the representation, including its media type, as different representations
+	 * must have different tags
+	 */
+	static String of(AggregateCounter counter, String representation) {
+		MessageDigest digest = md5();
+		update(digest, representation);
+		update(digest, counter.getName());
+		update(digest, counter.getResolution().name());
+		ByteBuffer buffer = ByteBuffer.allocate(8 * (counter.getCounts().length + 1));
+		buffer.putLong(counter.getInterval().getStartMillis());
+		for (long count : counter.getCounts()) {
+			buffer.putLong(count);
+		}
+		digest.update(buffer.array());
+		return toETag(digest);
+	}
+
+	/**
+	 * Return the entity tag of the given representation of the counts of a closed interval, which are not expected to
+	 * change anymore. The tag is derived from the request alone, so that it can be checked without reading counts.
+	 * @param name the name of the counter
+	 * @param interval the requested interval
+	 * @param resolution the resolution counts are read at
+	 * @param representation identifies the representation, including its media type
+	 */
+	static String ofClosed(String name, Interval interval, AggregateCounterResolution resolution,
+			String representation) {
+		MessageDigest digest = md5();
+		update(digest, "closed");
+		update(digest, representation);
+		update(digest, name);
+		update(digest, resolution.name());
+		ByteBuffer bounds = ByteBuffer.allocate(16);
+		bounds.putLong(interval.getStartMillis());
+		bounds.putLong(interval.getEndMillis());
+		digest.update(bounds.array());
+		return toETag(digest);
+	}
+
+	/**
+	 * Return the entity tag of a field value counter. Fields are hashed by name order, so that the tag doesn't depend
+	 * on the iteration order of the counter.
+	 * @param counter the counter
+	 * @param mediaType the media type of the representation
+	 */
+	static String of(FieldValueCounter counter, MediaType mediaType) {
+		MessageDigest digest = md5();
+		update(digest, mediaType.toString());
+		update(digest, counter.getName());
+		ByteBuffer score = ByteBuffer.allocate(8);
+		for (Map.Entry<String, Double> entry : new TreeMap<>(counter.getFieldValueCounts()).entrySet()) {
+			update(digest, entry.getKey());
+			score.clear();
+			score.putDouble(entry.getValue());
+			digest.update(score.array());
+		}
+		return toETag(digest);
+	}
+
+	/**
+	 * Return the media type of the representation to send for a request, among those the handler produces. As a
+	 * strong tag identifies a single representation, this type must be part of the tag, and be set on the response so
+	 * that message converters don't pick another one.
+	 * @param webRequest the current request, whose {@code Accept} header is honoured
+	 */
+	@SuppressWarnings("unchecked")
+	static MediaType negotiate(WebRequest webRequest) {
+		Set<MediaType> producible = (Set<MediaType>) webRequest.getAttribute(
+				HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		Assert.state(producible != null && !producible.isEmpty(),
+				"The handler must declare the media types it produces");
+		String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+		List<MediaType> acceptable = StringUtils.hasText(accept) ? MediaType.parseMediaTypes(accept)
+				: Collections.singletonList(MediaType.ALL);
+		MediaType.sortBySpecificityAndQuality(acceptable);
+		for (MediaType requested : acceptable) {
+			if (requested.getQualityValue() == 0) {
+				continue;
+			}
+			for (MediaType candidate : producible) {
+				if (candidate.isConcrete() && requested.isCompatibleWith(candidate)) {
+					return candidate;
+				}
+			}
+		}
+		// The request was mapped to the handler, so it accepts one of these
+		return producible.iterator().next();
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		// Separator, so that ("ab", "c") and ("a", "bc") differ
+		digest.update((byte) 0);
+	}
+
+	private static String toETag(MessageDigest digest) {
+		return "\"" + new String(toHex(digest.digest())) + "\"";
+	}
+
+	private static char[] toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+			chars[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+		}
+		return chars;
+	}
+
+	private static MessageDigest md5() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not available", e);
+		}
+	}
+
+}
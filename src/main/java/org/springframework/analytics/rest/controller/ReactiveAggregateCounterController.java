@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.analytics.metrics.AggregateCounter;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.ReactiveAggregateCounterReader;
+import org.springframework.analytics.rest.domain.AggregateCounterResource;
+import org.springframework.analytics.rest.domain.CompactAggregateCounterResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Non blocking variant of {@link AggregateCounterController}, for use with Spring WebFlux. Exposes the read
+ * operations of its counterpart at the same paths, with the same representations minus the links.
+ */
+@RestController
+@RequestMapping("/metrics/aggregate-counters")
+public class ReactiveAggregateCounterController {
+
+	private final ReactiveAggregateCounterReader reader;
+
+	private final AggregateCounterQueryGuard guard = new AggregateCounterQueryGuard();
+
+	public ReactiveAggregateCounterController(ReactiveAggregateCounterReader reader) {
+		Assert.notNull(reader, "reader must not be null");
+		this.reader = reader;
+	}
+
+	/**
+	 * Same as {@link AggregateCounterController#setMaxQueryBuckets(long)}.
+	 *
+	 * @param maxQueryBuckets the maximum number of buckets per request
+	 */
+	public void setMaxQueryBuckets(long maxQueryBuckets) {
+		guard.setMaxBuckets(maxQueryBuckets);
+	}
+
+	/**
+	 * Same as {@link AggregateCounterController#setExpensiveQueryBuckets(long)}.
+	 *
+	 * @param expensiveQueryBuckets the number of buckets above which a request is expensive
+	 */
+	public void setExpensiveQueryBuckets(long expensiveQueryBuckets) {
+		guard.setExpensiveBuckets(expensiveQueryBuckets);
+	}
+
+	/**
+	 * Same as {@link AggregateCounterController#setMaxConcurrentExpensiveQueries(int)}.
+	 *
+	 * @param maxConcurrentExpensiveQueries the maximum number of expensive requests running at a time
+	 */
+	public void setMaxConcurrentExpensiveQueries(int maxConcurrentExpensiveQueries) {
+		guard.setMaxConcurrentExpensiveQueries(maxConcurrentExpensiveQueries);
+	}
+
+	/**
+	 * List Counters that match the given criteria. When {@code detailed}, the counts of all the counters of the page
+	 * are read concurrently.
+	 *
+	 * @param page the index of the page, starting at 0
+	 * @param size the size of the page
+	 * @param prefix only list counters whose name starts with this prefix
+	 * @param detailed detailed info
+	 * @param from from date
+	 * @param to to date
+	 * @param resolution {@link AggregateCounterResolution}
+	 * @param maxPoints if detailed, the maximum number of data points per counter
+	 * @return list counters
+	 */
+	@RequestMapping(value = "", method = RequestMethod.GET)
+	public Mono<PagedResources<AggregateCounterResource>> list(
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size,
+			@RequestParam(value = "prefix", required = false) String prefix,
+			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints) {
+		if (page < 0 || size <= 0) {
+			throw new InvalidMetricQueryException("page must not be negative and size must be positive");
+		}
+		Interval interval = AggregateCounterController.interval(from, to, resolution);
+		AggregateCounterResolution actual = AggregateCounterController.coarsen(interval, resolution, maxPoints);
+		Mono<List<AggregateCounterResource>> content = reader.list(prefix, (long) page * size, size)
+				.collectList()
+				.flatMap(names -> !detailed ? Mono.just(names.stream().map(AggregateCounterResource::new)
+						.collect(Collectors.toList()))
+						: guarded(guard.cost(interval, actual, names.size()), () -> Flux.fromIterable(names)
+								.flatMapSequential(name -> reader.getCounts(name, interval, actual))
+								.map(aggregate -> toDeepResource(aggregate, maxPoints))
+								.collectList()));
+		return content.zipWith(reader.count(prefix), (resources, total) ->
+				new PagedResources<>(resources, new PagedResources.PageMetadata(size, page, total)));
+	}
+
+	/**
+	 * Retrieve counts for a given time interval, using some precision.
+	 *
+	 * @param name       the name of the aggregate counter we want to retrieve data from
+	 * @param from       the start-time for the interval, default depends on the resolution (e.g. go back 1 day for hourly
+	 *                   buckets)
+	 * @param to         the end-time for the interval, default "now"
+	 * @param resolution the size of buckets to aggregate, <i>e.g.</i> hourly, daily, <i>etc.</i> (default "hour")
+	 * @param maxPoints  the maximum number of data points to return, if any. Buckets are read at the finest
+	 *                   resolution, not finer than the requested one, that spans the interval in no more buckets
+	 *                   than that. If even yearly buckets are too many, consecutive buckets are summed up.
+	 * @return counts
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET)
+	public Mono<AggregateCounterResource> display(
+			@PathVariable("name") String name,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints) {
+		return query(name, from, to, resolution, maxPoints).map(aggregate -> toDeepResource(aggregate, maxPoints));
+	}
+
+	/**
+	 * Retrieve counts for a given time interval as a {@link CompactAggregateCounterResource}, when requested with
+	 * {@code format=compact}.
+	 *
+	 * @param name       the name of the aggregate counter we want to retrieve data from
+	 * @param from       the start-time for the interval, default depends on the resolution
+	 * @param to         the end-time for the interval, default "now"
+	 * @param resolution the size of buckets to aggregate (default "hour")
+	 * @param maxPoints  the maximum number of buckets to return, if any. As compact counts have no per-bucket
+	 *                   timestamp, they are only read at a coarser resolution, never summed up
+	 * @return counts
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, params = "format=compact")
+	public Mono<CompactAggregateCounterResource> displayCompact(
+			@PathVariable("name") String name,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) DateTime to,
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCounterResolution resolution,
+			@RequestParam(value = "maxPoints", required = false) Integer maxPoints) {
+		return query(name, from, to, resolution, maxPoints).map(aggregate -> new CompactAggregateCounterResource(
+				aggregate.getName(), aggregate.getInterval().getStart().toDate(), aggregate.getResolution(),
+				aggregate.getCounts()));
+	}
+
+	private Mono<AggregateCounter> query(String name, DateTime from, DateTime to,
+			AggregateCounterResolution resolution, Integer maxPoints) {
+		Interval interval = AggregateCounterController.interval(from, to, resolution);
+		AggregateCounterResolution actual = AggregateCounterController.coarsen(interval, resolution, maxPoints);
+		return reader.exists(name).flatMap(exists -> exists
+				? guarded(guard.cost(interval, actual, 1), () -> reader.getCounts(name, interval, actual))
+				: Mono.error(new NoSuchMetricException(name)));
+	}
+
+	private static AggregateCounterResource toDeepResource(AggregateCounter aggregate, Integer maxPoints) {
+		AggregateCounterResource resource = AggregateCounterController.newDeepResource(aggregate);
+		return maxPoints == null ? resource : resource.downsample(maxPoints);
+	}
+
+	/**
+	 * Subscribe to a read of the given cost if admitted, holding the permit of an expensive read until it terminates.
+	 */
+	private <T> Mono<T> guarded(long cost, Supplier<Mono<T>> query) {
+		return Mono.defer(() -> {
+			Semaphore permit = guard.admit(cost);
+			return permit == null ? query.get() : query.get().doFinally(signal -> permit.release());
+		});
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.analytics.metrics.ReactiveMetricReader;
+import org.springframework.analytics.rest.domain.CounterResource;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.analytics.rest.domain.MetricResource;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.analytics.rest.controller.CounterController.COUNTER_PREFIX;
+
+/**
+ * Non blocking variant of {@link CounterController}, for use with Spring WebFlux. Exposes the read operations of its
+ * counterpart at the same paths, with the same representations minus the links.
+ */
+@RestController
+@RequestMapping("/metrics/counters")
+public class ReactiveCounterController {
+
+	private static final String COUNTER_TYPE = "counter";
+
+	private final ReactiveMetricReader reader;
+
+	public ReactiveCounterController(ReactiveMetricReader reader) {
+		Assert.notNull(reader, "reader must not be null");
+		this.reader = reader;
+	}
+
+	/**
+	 * List Counters that match the given criteria.
+	 *
+	 * @param page the index of the page, starting at 0
+	 * @param size the size of the page
+	 * @param detailed details
+	 * @return counters
+	 */
+	@RequestMapping(value = "", method = RequestMethod.GET)
+	public Mono<PagedResources<MetricResource>> list(
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size,
+			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed) {
+		if (page < 0 || size <= 0) {
+			throw new InvalidMetricQueryException("page must not be negative and size must be positive");
+		}
+		Mono<List<MetricResource>> content = reader.findAll(COUNTER_TYPE, (long) page * size, size)
+				.filter(metric -> metric.getName().startsWith(COUNTER_PREFIX))
+				.map(metric -> detailed ? toResource(metric) : new MetricResource(nameOf(metric)))
+				.collectList();
+		return content.zipWith(reader.count(COUNTER_TYPE), (resources, total) ->
+				new PagedResources<>(resources, new PagedResources.PageMetadata(size, page, total)));
+	}
+
+	/**
+	 * Retrieve information about a specific counter.
+	 *
+	 * @param name name
+	 * @return counter information
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET)
+	public Mono<CounterResource> display(@PathVariable("name") String name) {
+		return reader.findOne(COUNTER_PREFIX + name)
+				.switchIfEmpty(Mono.error(new NoSuchMetricException(name)))
+				.map(this::toResource);
+	}
+
+	private CounterResource toResource(Metric<?> metric) {
+		return new CounterResource(nameOf(metric), metric.getValue().longValue());
+	}
+
+	private String nameOf(Metric<?> metric) {
+		return metric.getName().substring(COUNTER_PREFIX.length());
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.ReactiveFieldValueCounterReader;
+import org.springframework.analytics.rest.domain.FieldValueCounterResource;
+import org.springframework.analytics.rest.domain.FieldValueResource;
+import org.springframework.analytics.rest.domain.MetricResource;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Non blocking variant of {@link FieldValueCounterController}, for use with Spring WebFlux. Exposes the read
+ * operations of its counterpart at the same paths, with the same representations minus the links.
+ */
+@RestController
+@RequestMapping("/metrics/field-value-counters")
+public class ReactiveFieldValueCounterController {
+
+	private final ReactiveFieldValueCounterReader reader;
+
+	public ReactiveFieldValueCounterController(ReactiveFieldValueCounterReader reader) {
+		Assert.notNull(reader, "reader must not be null");
+		this.reader = reader;
+	}
+
+	/**
+	 * List Counters that match the given criteria.
+	 *
+	 * @param page the index of the page, starting at 0
+	 * @param size the size of the page
+	 * @param prefix only list counters whose name starts with this prefix
+	 * @return counters
+	 */
+	@RequestMapping(value = "", method = RequestMethod.GET)
+	public Mono<PagedResources<MetricResource>> list(
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size,
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		if (page < 0 || size <= 0) {
+			throw new InvalidMetricQueryException("page must not be negative and size must be positive");
+		}
+		Mono<List<MetricResource>> content = reader.list(prefix, (long) page * size, size)
+				.map(MetricResource::new)
+				.collectList();
+		return content.zipWith(reader.count(prefix), (resources, total) ->
+				new PagedResources<>(resources, new PagedResources.PageMetadata(size, page, total)));
+	}
+
+	/**
+	 * Retrieve information about a specific counter.
+	 *
+	 * @param name name
+	 * @return counter information
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET)
+	public Mono<FieldValueCounterResource> display(@PathVariable("name") String name) {
+		return reader.findOne(name)
+				.switchIfEmpty(Mono.error(new NoSuchMetricException(name)))
+				.map(counter -> new FieldValueCounterResource(counter.getName(), counter.getFieldValueCounts()));
+	}
+
+	/**
+	 * Retrieve the scores of some fields of a specific counter. Fields that don't exist are omitted.
+	 *
+	 * @param name name
+	 * @param fields the names of the fields to retrieve
+	 * @return counter information, restricted to the requested fields
+	 */
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, params = "field")
+	public Mono<FieldValueCounterResource> display(@PathVariable("name") String name,
+			@RequestParam("field") List<String> fields) {
+		return reader.findScores(name, fields)
+				.filterWhen(scores -> scores.isEmpty() ? reader.exists(name) : Mono.just(true))
+				.switchIfEmpty(Mono.error(new NoSuchMetricException(name)))
+				.map(scores -> new FieldValueCounterResource(name, scores));
+	}
+
+	/**
+	 * Page through the fields of a specific counter, ranked by decreasing value.
+	 *
+	 * @param name name
+	 * @param page the index of the page, starting at 0
+	 * @param size the size of the page
+	 * @return the fields of the requested page
+	 */
+	@RequestMapping(value = "/{name}/fields", method = RequestMethod.GET)
+	public Mono<PagedResources<FieldValueResource>> fields(@PathVariable("name") String name,
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size) {
+		if (page < 0 || size <= 0) {
+			throw new InvalidMetricQueryException("page must not be negative and size must be positive");
+		}
+		long offset = (long) page * size;
+		return reader.countFields(name)
+				.filter(count -> count > 0)
+				.switchIfEmpty(Mono.error(new NoSuchMetricException(name)))
+				.zipWith(reader.findRange(name, offset, size), (total, range) ->
+						new PagedResources<>(toFieldValueResources(range, offset),
+								new PagedResources.PageMetadata(size, page, total)));
+	}
+
+	/**
+	 * Retrieve the value and rank of a single field of a specific counter.
+	 *
+	 * @param name name
+	 * @param field the name of the field
+	 * @return field information
+	 */
+	@RequestMapping(value = "/{name}/fields/{field:.+}", method = RequestMethod.GET)
+	public Mono<FieldValueResource> field(@PathVariable("name") String name, @PathVariable("field") String field) {
+		return reader.findRankAndScore(name, field)
+				.map(ranked -> new FieldValueResource(field, ranked.getValue(), ranked.getRank()))
+				.switchIfEmpty(Mono.error(new NoSuchMetricException(name + "." + field)));
+	}
+
+	private static List<FieldValueResource> toFieldValueResources(FieldValueCounter range, long offset) {
+		List<FieldValueResource> fields = new ArrayList<>(range.getFieldValueCounts().size());
+		long rank = offset;
+		for (Map.Entry<String, Double> entry : range.getFieldValueCounts().entrySet()) {
+			fields.add(new FieldValueResource(entry.getKey(), entry.getValue(), rank++));
+		}
+		return fields;
+	}
+
+}
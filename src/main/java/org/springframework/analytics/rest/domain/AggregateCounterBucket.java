@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.domain;
+
+import java.util.Date;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+
+/**
+ * The value of a single bucket of an Aggregate Counter, as pushed to live subscribers.
+ */
+public class AggregateCounterBucket {
+
+	private String name;
+
+	private AggregateCounterResolution resolution;
+
+	private Date start;
+
+	private long value;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected AggregateCounterBucket() {
+	}
+
+	public AggregateCounterBucket(String name, AggregateCounterResolution resolution, Date start, long value) {
+		this.name = name;
+		this.resolution = resolution;
+		this.start = start;
+		this.value = value;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public AggregateCounterResolution getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @return the start of the bucket
+	 */
+	public Date getStart() {
+		return start;
+	}
+
+	public long getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return "AggregateCounterBucket [name=" + name + ", resolution=" + resolution + ", start=" + start + ", value="
+				+ value + "]";
+	}
+
+}
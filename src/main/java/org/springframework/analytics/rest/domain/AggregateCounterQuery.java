@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.domain;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+
+/**
+ * A request for the counts of several aggregate counters over the same interval, as sent to the batch query endpoint.
+ */
+public class AggregateCounterQuery {
+
+	private List<String> names;
+
+	private Date from;
+
+	private Date to;
+
+	private AggregateCounterResolution resolution = AggregateCounterResolution.hour;
+
+	private Integer maxPoints;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected AggregateCounterQuery() {
+	}
+
+	public AggregateCounterQuery(List<String> names, Date from, Date to, AggregateCounterResolution resolution) {
+		this.names = names;
+		this.from = from;
+		this.to = to;
+		this.resolution = resolution;
+	}
+
+	public AggregateCounterQuery(List<String> names, Date from, Date to, AggregateCounterResolution resolution,
+			Integer maxPoints) {
+		this(names, from, to, resolution);
+		this.maxPoints = maxPoints;
+	}
+
+	/**
+	 * @return the names of the counters to query
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @return the start of the interval, or {@literal null} for a default that depends on the resolution
+	 */
+	public Date getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return the end of the interval, or {@literal null} for now
+	 */
+	public Date getTo() {
+		return to;
+	}
+
+	/**
+	 * @return the size of buckets to aggregate, hourly by default
+	 */
+	public AggregateCounterResolution getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @return the maximum number of data points per counter, or {@literal null} for no limit
+	 */
+	public Integer getMaxPoints() {
+		return maxPoints;
+	}
+
+}
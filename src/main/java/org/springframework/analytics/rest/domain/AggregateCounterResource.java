@@ -21,9 +21,12 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.util.Date;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.springframework.util.Assert;
+
 /**
  * The REST representation of an Aggregate Count.
  *
@@ -63,4 +66,36 @@ public class AggregateCounterResource extends MetricResource {
 		return values;
 	}
 
+	/**
+	 * Return a copy of this resource holding at most {@code maxPoints} data points, each the sum of consecutive data
+	 * points of this resource and dated by the first of them, so that totals are preserved.
+	 *
+	 * @param maxPoints the maximum number of data points to keep
+	 * @return the downsampled copy, with the same links, or this resource if it has few enough data points already
+	 */
+	public AggregateCounterResource downsample(int maxPoints) {
+		Assert.isTrue(maxPoints > 0, "maxPoints must be positive");
+		if (values.size() <= maxPoints) {
+			return this;
+		}
+		int groupSize = (values.size() + maxPoints - 1) / maxPoints;
+		AggregateCounterResource result = new AggregateCounterResource(getName());
+		result.add(getLinks());
+		Date groupStart = null;
+		long sum = 0L;
+		int i = 0;
+		for (Map.Entry<Date, Long> entry : values.entrySet()) {
+			if (i++ % groupSize == 0) {
+				if (groupStart != null) {
+					result.addValue(groupStart, sum);
+				}
+				groupStart = entry.getKey();
+				sum = 0L;
+			}
+			sum += entry.getValue();
+		}
+		result.addValue(groupStart, sum);
+		return result;
+	}
+
 }
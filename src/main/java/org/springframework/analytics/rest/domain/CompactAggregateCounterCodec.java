@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.domain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.util.Assert;
+
+/**
+ * Binary encoding of {@link CompactAggregateCounterResource}s, for bulk transfers of counts. Links are not encoded.
+ *
+ * <p>
+ * Each resource is written as a record prefixed by its length in bytes, so that records can be concatenated in a
+ * single stream. A record holds, in order:
+ * </p>
+ * <ul>
+ * <li>the length of the UTF-8 encoded name, then the name itself</li>
+ * <li>the start of the first bucket, in milliseconds since the epoch</li>
+ * <li>the ordinal of the {@link AggregateCounterResolution resolution}</li>
+ * <li>the number of buckets, then the difference between the count of each bucket and the previous one (the first
+ * one being relative to 0)</li>
+ * </ul>
+ * <p>
+ * All integers are unsigned LEB128 varints, signed ones being zigzag encoded first. As consecutive counts are usually
+ * close to each other, most buckets take a single byte.
+ * </p>
+ */
+public final class CompactAggregateCounterCodec {
+
+	/**
+	 * Media type of streams of encoded records.
+	 */
+	public static final String MEDIA_TYPE_VALUE = "application/vnd.spring-analytics.compact+varint";
+
+	private static final AggregateCounterResolution[] RESOLUTIONS = AggregateCounterResolution.values();
+
+	private CompactAggregateCounterCodec() {
+	}
+
+	/**
+	 * Encode a single resource as a length-prefixed record.
+	 *
+	 * @param resource the resource to encode
+	 * @return the encoded record
+	 */
+	public static byte[] encode(CompactAggregateCounterResource resource) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + resource.getCounts().length);
+		try {
+			encode(resource, out);
+		}
+		catch (IOException e) {
+			// Can't happen with an in memory stream
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Append a resource to a stream, as a length-prefixed record.
+	 *
+	 * @param resource the resource to encode
+	 * @param out the stream to write to
+	 * @throws IOException if the stream could not be written to
+	 */
+	public static void encode(CompactAggregateCounterResource resource, OutputStream out) throws IOException {
+		Assert.notNull(resource, "resource must not be null");
+		byte[] name = resource.getName().getBytes(StandardCharsets.UTF_8);
+		long[] counts = resource.getCounts();
+		ByteArrayOutputStream record = new ByteArrayOutputStream(16 + name.length + counts.length);
+		writeVarint(record, name.length);
+		record.write(name);
+		writeVarint(record, zigzag(resource.getStart().getTime()));
+		writeVarint(record, resource.getResolution().ordinal());
+		writeVarint(record, counts.length);
+		long previous = 0L;
+		for (long count : counts) {
+			writeVarint(record, zigzag(count - previous));
+			previous = count;
+		}
+		writeVarint(out, record.size());
+		record.writeTo(out);
+	}
+
+	/**
+	 * Read the next record of a stream.
+	 *
+	 * @param in the stream to read from
+	 * @return the decoded resource, or {@literal null} if the stream has no more records
+	 * @throws IOException if the stream could not be read, or ends in the middle of a record
+	 */
+	public static CompactAggregateCounterResource decode(InputStream in) throws IOException {
+		int first = in.read();
+		if (first < 0) {
+			return null;
+		}
+		byte[] record = new byte[toLength(readVarint(in, first))];
+		new DataInputStream(in).readFully(record);
+
+		InputStream body = new ByteArrayInputStream(record);
+		byte[] name = new byte[toLength(readVarint(body))];
+		if (body.read(name, 0, name.length) != name.length) {
+			throw new EOFException("Truncated counter name");
+		}
+		Date start = new Date(unzigzag(readVarint(body)));
+		long ordinal = readVarint(body);
+		if (ordinal >= RESOLUTIONS.length) {
+			throw new IOException("Unknown resolution: " + ordinal);
+		}
+		long[] counts = new long[toLength(readVarint(body))];
+		long previous = 0L;
+		for (int i = 0; i < counts.length; i++) {
+			previous += unzigzag(readVarint(body));
+			counts[i] = previous;
+		}
+		return new CompactAggregateCounterResource(new String(name, StandardCharsets.UTF_8), start,
+				RESOLUTIONS[(int) ordinal], counts);
+	}
+
+	/**
+	 * Decode all the records of a stream.
+	 *
+	 * @param in the stream to read from, which is read to its end but not closed
+	 * @return the decoded resources, in order
+	 * @throws IOException if the stream could not be read, or ends in the middle of a record
+	 */
+	public static List<CompactAggregateCounterResource> decodeAll(InputStream in) throws IOException {
+		List<CompactAggregateCounterResource> result = new ArrayList<>();
+		for (CompactAggregateCounterResource resource = decode(in); resource != null; resource = decode(in)) {
+			result.add(resource);
+		}
+		return result;
+	}
+
+	private static void writeVarint(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0L) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarint(InputStream in) throws IOException {
+		return readVarint(in, in.read());
+	}
+
+	private static long readVarint(InputStream in, int first) throws IOException {
+		long value = 0L;
+		int b = first;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (b < 0) {
+				throw new EOFException("Truncated varint");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+			b = in.read();
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	private static int toLength(long value) throws IOException {
+		if (value < 0L || value > Integer.MAX_VALUE) {
+			throw new IOException("Length out of range: " + value);
+		}
+		return (int) value;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.domain;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+
+/**
+ * A compact, columnar REST representation of an Aggregate Count: the date of the first bucket, the resolution of
+ * buckets and their counts as a plain array. The date of bucket {@code i} is {@code start + i * resolution}.
+ *
+ * @see AggregateCounterResource
+ */
+@XmlRootElement(name = "aggregate-counts")
+public class CompactAggregateCounterResource extends MetricResource {
+
+	private Date start;
+
+	private AggregateCounterResolution resolution;
+
+	private long[] counts;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected CompactAggregateCounterResource() {
+	}
+
+	public CompactAggregateCounterResource(String name, Date start, AggregateCounterResolution resolution,
+			long[] counts) {
+		super(name);
+		this.start = start;
+		this.resolution = resolution;
+		this.counts = counts;
+	}
+
+	/**
+	 * @return the date of the first bucket
+	 */
+	public Date getStart() {
+		return start;
+	}
+
+	public AggregateCounterResolution getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @return the counts of consecutive buckets, starting at {@link #getStart()}
+	 */
+	public long[] getCounts() {
+		return counts;
+	}
+
+}
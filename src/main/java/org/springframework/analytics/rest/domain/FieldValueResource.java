@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.domain;
+
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.ResourceSupport;
+
+/**
+ * The REST representation of a single field of a Field Value Counter, along with its rank in the counter.
+ */
+public class FieldValueResource extends ResourceSupport {
+
+	private String field;
+
+	private double value;
+
+	private long rank;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected FieldValueResource() {
+
+	}
+
+	public FieldValueResource(String field, double value, long rank) {
+		this.field = field;
+		this.value = value;
+		this.rank = rank;
+	}
+
+	/**
+	 * Return the name of the field.
+	 *
+	 * @return field name
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * Return the value of the field.
+	 *
+	 * @return field value
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * Return the rank of the field by decreasing value, starting at 0.
+	 *
+	 * @return field rank
+	 */
+	public long getRank() {
+		return rank;
+	}
+
+	/**
+	 * Dedicated subclass to workaround type erasure.
+	 */
+	public static class Page extends PagedResources<FieldValueResource> {
+
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a bulk ingest request: one acknowledgement per batch of events applied, and the reason why reading
+ * the request stopped early, if it did. Events of acknowledged batches have been written, those of the failed batch
+ * have been written for the {@link #getAppliedTypes() types of metrics} reported, and the others have not.
+ */
+public class IngestReport {
+
+	private final List<Batch> batches = new ArrayList<>();
+
+	private long events;
+
+	private String error;
+
+	private Long errorLine;
+
+	private Batch failedBatch;
+
+	private List<MetricEvent.Type> appliedTypes;
+
+	public List<Batch> getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return the total number of events written
+	 */
+	public long getEvents() {
+		return events;
+	}
+
+	/**
+	 * @return why the request was not fully ingested, or {@literal null} if it was
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return the (1 based) line of the request at which ingestion stopped, or {@literal null} if it did not
+	 */
+	public Long getErrorLine() {
+		return errorLine;
+	}
+
+	/**
+	 * @return the batch of events that could not be written, or {@literal null} if there was none
+	 */
+	public Batch getFailedBatch() {
+		return failedBatch;
+	}
+
+	/**
+	 * @return the types of metrics of the failed batch whose events were written before it failed, or {@literal null}
+	 * if there was no such batch. Events of the other types were not written, except maybe some of the type whose
+	 * write failed, when its repository doesn't write them atomically.
+	 */
+	public List<MetricEvent.Type> getAppliedTypes() {
+		return appliedTypes;
+	}
+
+	/**
+	 * Acknowledge that a batch of events has been written.
+	 *
+	 * @param batch the acknowledgement
+	 */
+	public void acknowledge(Batch batch) {
+		batches.add(batch);
+		events += batch.getEvents();
+	}
+
+	/**
+	 * Record why ingestion stopped.
+	 *
+	 * @param error the reason
+	 * @param line the line at which ingestion stopped
+	 */
+	public void fail(String error, long line) {
+		this.error = error;
+		this.errorLine = line;
+	}
+
+	/**
+	 * Record that a batch of events could not be written, which stops ingestion at its first line.
+	 *
+	 * @param batch the batch that failed
+	 * @param appliedTypes the types of metrics of the batch whose events were written nonetheless
+	 * @param error the reason
+	 */
+	public void reject(Batch batch, List<MetricEvent.Type> appliedTypes, String error) {
+		this.failedBatch = batch;
+		this.appliedTypes = appliedTypes;
+		fail(error, batch.getFirstLine());
+	}
+
+	/**
+	 * The acknowledgement of a batch of events.
+	 */
+	public static class Batch {
+
+		private long firstLine;
+
+		private long lastLine;
+
+		private int events;
+
+		private int writes;
+
+		/**
+		 * No-arg constructor for serialization frameworks.
+		 */
+		protected Batch() {
+		}
+
+		public Batch(long firstLine, long lastLine, int events, int writes) {
+			this.firstLine = firstLine;
+			this.lastLine = lastLine;
+			this.events = events;
+			this.writes = writes;
+		}
+
+		/**
+		 * @return the line of the first event of the batch
+		 */
+		public long getFirstLine() {
+			return firstLine;
+		}
+
+		/**
+		 * @return the line of the last event of the batch
+		 */
+		public long getLastLine() {
+			return lastLine;
+		}
+
+		public int getEvents() {
+			return events;
+		}
+
+		/**
+		 * @return the number of distinct metric updates the events were merged into
+		 */
+		public int getWrites() {
+			return writes;
+		}
+
+	}
+
+}
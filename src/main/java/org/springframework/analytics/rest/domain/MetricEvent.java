@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.domain;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A single write to a metric, as sent to the bulk ingest endpoint (one JSON object per line).
+ */
+public class MetricEvent {
+
+	/**
+	 * The kinds of metrics that can be written to.
+	 */
+	public enum Type {
+
+		/**
+		 * Adds {@code amount} (a whole number) to a counter.
+		 */
+		@JsonProperty("counter")
+		COUNTER,
+
+		/**
+		 * Adds {@code amount} (a whole number) to an aggregate counter, at {@code timestamp}.
+		 */
+		@JsonProperty("aggregate-counter")
+		AGGREGATE_COUNTER,
+
+		/**
+		 * Adds {@code amount} to the {@code field} of a field value counter.
+		 */
+		@JsonProperty("field-value-counter")
+		FIELD_VALUE_COUNTER
+	}
+
+	private Type type;
+
+	private String name;
+
+	private String field;
+
+	private double amount = 1d;
+
+	private Date timestamp;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected MetricEvent() {
+	}
+
+	public MetricEvent(Type type, String name, String field, double amount, Date timestamp) {
+		this.type = type;
+		this.name = name;
+		this.field = field;
+		this.amount = amount;
+		this.timestamp = timestamp;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the field to increment, for field value counters only
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * @return the value to add, 1 by default
+	 */
+	public double getAmount() {
+		return amount;
+	}
+
+	/**
+	 * @return when the event happened, for aggregate counters only, or {@literal null} for the time it is ingested
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "MetricEvent [type=" + type + ", name=" + name + ", field=" + field + ", amount=" + amount
+				+ ", timestamp=" + timestamp + "]";
+	}
+
+}
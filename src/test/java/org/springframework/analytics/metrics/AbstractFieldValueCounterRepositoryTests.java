@@ -0,0 +1,289 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests common to all {@link FieldValueCounterRepository} implementations.
+ */
+public abstract class AbstractFieldValueCounterRepositoryTests {
+
+	private FieldValueCounterRepository repository;
+
+	/**
+	 * Create the repository under test, decaying scores if {@code decay} is not null and enforcing the given pruning
+	 * policy every {@code pruningInterval} writes.
+	 */
+	protected abstract FieldValueCounterRepository createRepository(ForwardDecay decay,
+			FieldValueCounterPruningPolicy pruningPolicy, int pruningInterval);
+
+	/**
+	 * Return the number of fields pruned so far by the given repository.
+	 */
+	protected abstract long getPrunedFieldCount(FieldValueCounterRepository repository);
+
+	protected FieldValueCounterRepository repository(ForwardDecay decay) {
+		return repository(decay, FieldValueCounterPruningPolicy.NONE, 1000);
+	}
+
+	protected FieldValueCounterRepository repository(ForwardDecay decay, FieldValueCounterPruningPolicy pruningPolicy,
+			int pruningInterval) {
+		repository = createRepository(decay, pruningPolicy, pruningInterval);
+		return repository;
+	}
+
+	@After
+	public void cleanUp() {
+		if (repository != null) {
+			for (String name : new ArrayList<>(repository.list())) {
+				repository.reset(name);
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementSeveralFields() {
+		FieldValueCounterRepository repository = repository(null);
+		repository.increment("foo", "spring", 1);
+		Map<String, Double> scores = new HashMap<>();
+		scores.put("spring", 2D);
+		scores.put("java", 3D);
+		repository.increment("foo", scores);
+
+		assertThat(repository.findScore("foo", "spring"), is(3D));
+		assertThat(repository.findScore("foo", "java"), is(3D));
+		assertThat(repository.list("foo", 0, 10), contains("foo"));
+	}
+
+	@Test
+	public void testIncrementSeveralCounters() {
+		FieldValueCounterRepository repository = repository(null);
+		repository.increment("foo", "spring", 1);
+		Map<String, Map<String, Double>> scores = new HashMap<>();
+		scores.put("foo", new HashMap<>());
+		scores.get("foo").put("spring", 2D);
+		scores.put("bar", new HashMap<>());
+		scores.get("bar").put("java", 3D);
+		scores.put("baz", new HashMap<>());
+		repository.increment(scores);
+
+		assertThat(repository.findScore("foo", "spring"), is(3D));
+		assertThat(repository.findScore("bar", "java"), is(3D));
+		assertThat(repository.list(null, 0, 10), contains("bar", "foo"));
+	}
+
+	@Test
+	public void testListByPrefix() {
+		FieldValueCounterRepository repository = repository(null);
+		for (String name : Arrays.asList("app.c", "other", "app.a", "apq", "app.b")) {
+			repository.increment(name, "spring", 1);
+		}
+
+		assertThat(repository.list("app.", 0, 2), contains("app.a", "app.b"));
+		assertThat(repository.list("app.", 2, 2), contains("app.c"));
+		assertThat(repository.list(null, 2, 10), contains("app.c", "apq", "other"));
+		assertThat(repository.count("app."), is(3L));
+		assertThat(repository.count(null), is(5L));
+
+		repository.reset("app.b");
+		assertThat(repository.list("app.", 0, 10), contains("app.a", "app.c"));
+		assertThat(repository.count("app."), is(2L));
+	}
+
+	@Test
+	public void testListByPrefixWithDecay() {
+		FieldValueCounterRepository repository = repository(new ForwardDecay(Duration.standardHours(1)));
+		repository.increment("app.b", "spring", 1);
+		repository.increment("app.a", "spring", 1);
+
+		assertThat(repository.list("app", 0, 10), contains("app.a", "app.b"));
+	}
+
+	@Test
+	public void testIncrementDecrementAndReset() {
+		FieldValueCounterRepository repository = repository(null);
+		repository.increment("foo", "spring", 3);
+		repository.increment("foo", "java", 2);
+		repository.decrement("foo", "spring", 1);
+
+		Map<String, Double> values = repository.findOne("foo").getFieldValueCounts();
+		assertThat(values.get("spring"), is(2D));
+		assertThat(values.get("java"), is(2D));
+
+		assertThat(repository.exists("foo"), is(true));
+		repository.reset("foo");
+		assertNull(repository.findOne("foo"));
+		assertThat(repository.exists("foo"), is(false));
+	}
+
+	@Test
+	public void testFindScores() {
+		FieldValueCounterRepository repository = repository(null);
+		repository.increment("foo", "spring", 3);
+		repository.increment("foo", "java", 2);
+		repository.increment("foo", "redis", 1);
+
+		assertThat(repository.findScore("foo", "java"), is(2D));
+		assertNull(repository.findScore("foo", "none"));
+		assertNull(repository.findScore("bar", "java"));
+
+		Map<String, Double> scores = repository.findScores("foo", Arrays.asList("spring", "redis", "none"));
+		assertThat(scores.size(), is(2));
+		assertThat(scores.get("spring"), is(3D));
+		assertThat(scores.get("redis"), is(1D));
+		assertThat(repository.findScores("bar", Arrays.asList("spring")).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testFindScoresWithDecay() {
+		FieldValueCounterRepository repository = repository(new ForwardDecay(Duration.standardHours(1)));
+		repository.increment("foo", "spring", 3);
+		repository.increment("foo", "java", 2);
+
+		Map<String, Double> all = repository.findOne("foo").getFieldValueCounts();
+		Map<String, Double> scores = repository.findScores("foo", Arrays.asList("spring", "java"));
+		assertThat(scores.get("spring"), closeTo(all.get("spring"), 1e-3));
+		assertThat(scores.get("java"), closeTo(all.get("java"), 1e-3));
+	}
+
+	@Test
+	public void testFindRangeAndRank() {
+		FieldValueCounterRepository repository = repository(null);
+		repository.increment("foo", "spring", 5);
+		repository.increment("foo", "java", 4);
+		repository.increment("foo", "redis", 3);
+		repository.increment("foo", "boot", 3);
+		repository.increment("foo", "cloud", 1);
+
+		assertThat(repository.countFields("foo"), is(5L));
+		assertThat(new ArrayList<>(repository.findRange("foo", 0, 2).getFieldValueCounts().keySet()),
+				contains("spring", "java"));
+		// Ties are ordered by decreasing name
+		Map<String, Double> page = repository.findRange("foo", 2, 2).getFieldValueCounts();
+		assertThat(new ArrayList<>(page.keySet()), contains("redis", "boot"));
+		assertThat(page.get("boot"), is(3D));
+		assertThat(repository.findRange("foo", 4, 2).getFieldValueCounts().keySet(), contains("cloud"));
+		assertThat(repository.findRange("foo", 10, 2).getFieldValueCounts().isEmpty(), is(true));
+
+		assertThat(repository.findRank("foo", "spring"), is(0L));
+		assertThat(repository.findRank("foo", "boot"), is(3L));
+		assertNull(repository.findRank("foo", "none"));
+		RankedFieldValue ranked = repository.findRankAndScore("foo", "boot");
+		assertThat(ranked.getRank(), is(3L));
+		assertThat(ranked.getValue(), is(3D));
+		assertNull(repository.findRankAndScore("foo", "none"));
+		assertNull(repository.findRankAndScore("bar", "spring"));
+
+		repository.increment("foo", "cloud", 10);
+		assertThat(repository.findRank("foo", "cloud"), is(0L));
+		assertThat(repository.findRange("foo", 0, 1).getFieldValueCounts().keySet(), contains("cloud"));
+
+		assertThat(repository.countFields("bar"), is(0L));
+		assertNull(repository.findRank("bar", "spring"));
+		assertThat(repository.findRange("bar", 0, 10).getFieldValueCounts().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testDecay() throws InterruptedException {
+		FieldValueCounterRepository repository = repository(new ForwardDecay(Duration.millis(250)));
+		repository.increment("foo", "old", 16);
+		Thread.sleep(500L);
+		repository.increment("foo", "new", 1);
+
+		Map<String, Double> values = repository.findOne("foo").getFieldValueCounts();
+		// At least two half-lives went by between both increments
+		assertThat(values.get("old") / values.get("new"), lessThan(4.0001D));
+		assertThat(values.get("old"), greaterThan(0D));
+		assertThat(values.get("new"), lessThan(1.0001D));
+	}
+
+	@Test
+	public void testDecayRenormalization() throws InterruptedException {
+		// Weights grow by a factor of 2 every millisecond, thus renormalization kicks in after ~150ms
+		FieldValueCounterRepository repository = repository(new ForwardDecay(Duration.millis(1)));
+		repository.increment("foo", "old", 1);
+		Thread.sleep(200L);
+		repository.increment("foo", "new", 1);
+		repository.increment("foo", "new", 1);
+
+		Map<String, Double> values = repository.findOne("foo").getFieldValueCounts();
+		assertThat(values.get("new"), lessThan(2.0001D));
+		assertThat(values.get("new"), greaterThan(0D));
+		assertThat(values.get("old"), closeTo(0D, 1e-10));
+	}
+
+	@Test
+	public void testPruningByMinScore() {
+		FieldValueCounterRepository repository = repository(null, FieldValueCounterPruningPolicy.minScore(1), 2);
+		repository.increment("foo", "spring", 2);
+		repository.increment("foo", "java", 1);
+		repository.increment("foo", "redis", 1);
+		repository.decrement("foo", "redis", 1);
+
+		Map<String, Double> values = repository.findOne("foo").getFieldValueCounts();
+		assertThat(values.size(), is(2));
+		assertThat(values.get("spring"), is(2D));
+		assertThat(values.get("java"), is(1D));
+		assertThat(getPrunedFieldCount(repository), is(1L));
+	}
+
+	@Test
+	public void testPruningByMaxCardinality() {
+		FieldValueCounterRepository repository = repository(null, FieldValueCounterPruningPolicy.maxCardinality(2), 4);
+		repository.increment("foo", "spring", 3);
+		repository.increment("foo", "java", 2);
+		repository.increment("foo", "redis", 1);
+		repository.increment("foo", "boot", 5);
+
+		Map<String, Double> values = repository.findOne("foo").getFieldValueCounts();
+		assertThat(values.size(), is(2));
+		assertThat(values.get("boot"), is(5D));
+		assertThat(values.get("spring"), is(3D));
+		assertThat(getPrunedFieldCount(repository), is(2L));
+	}
+
+	@Test
+	public void testPruningWithDecay() throws InterruptedException {
+		FieldValueCounterRepository repository = repository(new ForwardDecay(Duration.millis(100)),
+				FieldValueCounterPruningPolicy.minScore(1), 2);
+		repository.increment("foo", "old", 1.5);
+		Thread.sleep(300L);
+		// "old" is now worth less than 0.2
+		repository.increment("foo", "new", 1.5);
+
+		Map<String, Double> values = repository.findOne("foo").getFieldValueCounts();
+		assertThat(values.size(), is(1));
+		assertThat(values.get("new"), greaterThan(1D));
+	}
+
+}
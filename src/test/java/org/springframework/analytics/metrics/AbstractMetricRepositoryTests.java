@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests common to all {@link MetricRepository} implementations.
+ */
+public abstract class AbstractMetricRepositoryTests {
+
+	private MetricRepository repository;
+
+	@Before
+	public void setUp() {
+		repository = createRepository();
+	}
+
+	@After
+	public void cleanUp() {
+		List<String> names = new ArrayList<>();
+		for (Metric<?> metric : repository.findAll()) {
+			names.add(metric.getName());
+		}
+		for (String name : names) {
+			repository.reset(name);
+		}
+	}
+
+	protected abstract MetricRepository createRepository();
+
+	@Test
+	public void testIncrementAndFindOne() {
+		Date timestamp = new Date(1234567890L);
+		repository.increment(new Delta<Long>("counter.foo", 3L, new Date(1L)));
+		repository.increment(new Delta<Long>("counter.foo", 2L, timestamp));
+
+		Metric<?> metric = repository.findOne("counter.foo");
+		assertThat(metric.getValue().doubleValue(), is(5D));
+		assertThat(metric.getTimestamp(), is(timestamp));
+		assertNull(repository.findOne("counter.bar"));
+	}
+
+	@Test
+	public void testSetAndReset() {
+		repository.increment(new Delta<Long>("counter.foo", 3L));
+		repository.set(new Metric<Long>("counter.foo", 42L, new Date(5L)));
+
+		Metric<?> metric = repository.findOne("counter.foo");
+		assertThat(metric.getValue().doubleValue(), is(42D));
+		assertThat(metric.getTimestamp().getTime(), is(5L));
+
+		repository.reset("counter.foo");
+		assertNull(repository.findOne("counter.foo"));
+		assertThat(repository.count(), is(0L));
+	}
+
+	@Test
+	public void testFindAllByType() {
+		for (int i = 0; i < 5; i++) {
+			repository.increment(new Delta<Long>("counter.c" + i, (long) i, new Date(i)));
+		}
+		repository.set(new Metric<Long>("gauge.g", 1L, new Date(3L)));
+
+		assertThat(repository.count("counter"), is(5L));
+		assertThat(repository.count("gauge"), is(1L));
+		assertThat(repository.count("meter"), is(0L));
+
+		List<Metric<?>> page = repository.findAll("counter", 2, 2);
+		assertThat(page.size(), is(2));
+		assertThat(page.get(0).getName(), is("counter.c2"));
+		assertThat(page.get(0).getValue().doubleValue(), is(2D));
+		assertThat(page.get(0).getTimestamp().getTime(), is(2L));
+		assertThat(page.get(1).getName(), is("counter.c3"));
+		assertThat(repository.findAll("counter", 4, 2).size(), is(1));
+		assertThat(repository.findAll("counter", 5, 2).isEmpty(), is(true));
+
+		repository.reset("counter.c0");
+		assertThat(repository.count("counter"), is(4L));
+		assertThat(repository.findAll("counter", 0, 1).get(0).getName(), is("counter.c1"));
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws Exception {
+		final int threads = 4;
+		final int increments = 250;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					for (int j = 0; j < increments; j++) {
+						repository.increment(new Delta<Long>("counter.concurrent", 1L));
+					}
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertThat(repository.findOne("counter.concurrent").getValue().doubleValue(), is((double) threads * increments));
+		assertThat(repository.count("counter"), is(1L));
+	}
+
+}
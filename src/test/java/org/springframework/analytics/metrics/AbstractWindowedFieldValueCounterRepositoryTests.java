@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics;
+
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests common to all {@link WindowedFieldValueCounterRepository} implementations. Repositories under test are
+ * expected to use one minute buckets and to retain at least ten of them.
+ */
+public abstract class AbstractWindowedFieldValueCounterRepositoryTests {
+
+	protected WindowedFieldValueCounterRepository repository;
+
+	private final DateTime start = new DateTime().minusMinutes(5).withSecondOfMinute(0).withMillisOfSecond(0);
+
+	@After
+	public void cleanUp() {
+		for (String name : new ArrayList<>(repository.list())) {
+			repository.reset(name);
+		}
+	}
+
+	@Test
+	public void testTopOverWindow() {
+		repository.increment("pages", "home", 5, start);
+		repository.increment("pages", "about", 1, start.plusMinutes(1));
+		repository.increment("pages", "blog", 2, start.plusMinutes(2));
+		repository.increment("pages", "about", 2, start.plusMinutes(2));
+
+		FieldValueCounter top = repository.findTop("pages", 2, Duration.standardMinutes(2), start.plusMinutes(2));
+		assertThat(top.getFieldValueCounts().keySet(), contains("about", "blog"));
+		assertThat(top.getFieldValueCounts().values(), contains(3D, 2D));
+
+		top = repository.findTop("pages", 10, Duration.standardMinutes(3), start.plusMinutes(2));
+		assertThat(top.getFieldValueCounts().keySet(), contains("home", "about", "blog"));
+	}
+
+	@Test
+	public void testSlidingWindow() {
+		for (int i = 0; i < 4; i++) {
+			repository.increment("pages", "page" + i, i + 1, start.plusMinutes(i));
+		}
+		FieldValueCounter top = repository.findTop("pages", 5, Duration.standardMinutes(2), start.plusMinutes(2));
+		assertThat(top.getFieldValueCounts().keySet(), contains("page2", "page1"));
+
+		top = repository.findTop("pages", 5, Duration.standardMinutes(2), start.plusMinutes(3));
+		assertThat(top.getFieldValueCounts().keySet(), contains("page3", "page2"));
+
+		repository.increment("pages", "page2", 10, start.plusMinutes(3));
+		top = repository.findTop("pages", 5, Duration.standardMinutes(2), start.plusMinutes(3));
+		assertThat(top.getFieldValueCounts().keySet(), contains("page2", "page3"));
+		assertThat(top.getFieldValueCounts().values(), contains(13D, 4D));
+	}
+
+	@Test
+	public void testListAndReset() {
+		repository.increment("foo", "a", 1, start);
+		repository.increment("bar", "b", 1, start);
+		assertThat(repository.list(), containsInAnyOrder("foo", "bar"));
+
+		repository.reset("foo");
+		assertThat(repository.list(), contains("bar"));
+		assertTrue(repository.findTop("foo", 5, Duration.standardMinutes(10), start).getFieldValueCounts().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFutureIncrementRejected() {
+		repository.increment("pages", "home", 1, new DateTime().plusMinutes(10));
+	}
+
+}
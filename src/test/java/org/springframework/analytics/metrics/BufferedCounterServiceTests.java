@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.memory.InMemoryMetricRepository;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link BufferedCounterService}.
+ */
+public class BufferedCounterServiceTests {
+
+	private InMemoryMetricRepository repository;
+
+	private BufferedCounterService service;
+
+	@Before
+	public void setUp() {
+		repository = new InMemoryMetricRepository();
+		service = new BufferedCounterService(repository);
+	}
+
+	@After
+	public void cleanUp() {
+		service.stop();
+	}
+
+	@Test
+	public void testWritesAreBufferedUntilFlush() {
+		for (int i = 0; i < 1000; i++) {
+			service.increment("foo");
+		}
+		service.decrement("foo");
+		service.submit("bar", 1D);
+		service.submit("bar", 2D);
+		assertNull(repository.findOne("counter.foo"));
+		assertNull(repository.findOne("gauge.bar"));
+
+		service.flush();
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(999D));
+		assertThat(repository.findOne("gauge.bar").getValue().doubleValue(), is(2D));
+
+		service.increment("foo");
+		service.flush();
+		service.flush();
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(1000D));
+	}
+
+	@Test
+	public void testLastGaugeValueWins() {
+		service.submit("bar", 3D);
+		service.submit("bar", 1D);
+		service.flush();
+		assertThat(repository.findOne("gauge.bar").getValue().doubleValue(), is(1D));
+
+		service.submit("bar", 5D);
+		service.submit("bar", 4D);
+		service.flush();
+		assertThat(repository.findOne("gauge.bar").getValue().doubleValue(), is(4D));
+		service.flush();
+		assertThat(repository.findOne("gauge.bar").getValue().doubleValue(), is(4D));
+	}
+
+	@Test
+	public void testRestartAfterStop() {
+		service.start();
+		service.increment("foo");
+		service.stop();
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(1D));
+
+		service.start();
+		assertThat(service.isRunning(), is(true));
+		service.increment("foo");
+		service.stop();
+		service.stop();
+		assertThat(service.isRunning(), is(false));
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(2D));
+	}
+
+	@Test
+	public void testScheduledAndFinalFlush() throws InterruptedException {
+		service.setFlushInterval(Duration.millis(50));
+		service.start();
+		service.increment("foo");
+		Thread.sleep(500L);
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(1D));
+
+		service.increment("foo");
+		service.stop();
+		assertThat(service.isRunning(), is(false));
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(2D));
+	}
+
+	@Test
+	public void testWritesCountersAndGaugesInOneBatch() {
+		final AtomicInteger batches = new AtomicInteger();
+		InMemoryMetricRepository inMemory = new InMemoryMetricRepository() {
+
+			@Override
+			public void write(Collection<? extends Delta<?>> deltas, Collection<? extends Metric<?>> values) {
+				batches.incrementAndGet();
+				super.write(deltas, values);
+			}
+		};
+		BufferedCounterService buffered = new BufferedCounterService(inMemory);
+		buffered.increment("foo");
+		buffered.submit("bar", 1D);
+		buffered.flush();
+		buffered.flush();
+
+		assertThat(batches.get(), is(1));
+		assertThat(inMemory.findOne("counter.foo").getValue().doubleValue(), is(1D));
+		assertThat(inMemory.findOne("gauge.bar").getValue().doubleValue(), is(1D));
+	}
+
+	@Test
+	public void testFailedFlush() {
+		final AtomicBoolean failing = new AtomicBoolean(true);
+		InMemoryMetricRepository inMemory = new InMemoryMetricRepository() {
+
+			@Override
+			public void write(Collection<? extends Delta<?>> deltas, Collection<? extends Metric<?>> values) {
+				if (failing.get()) {
+					throw new IllegalStateException("down");
+				}
+				super.write(deltas, values);
+			}
+		};
+		BufferedCounterService buffered = new BufferedCounterService(inMemory);
+		buffered.increment("foo");
+		buffered.submit("bar", 1D);
+		buffered.flush();
+		failing.set(false);
+		buffered.flush();
+		assertThat(inMemory.findOne("counter.foo").getValue().doubleValue(), is(1D));
+		assertThat(inMemory.findOne("gauge.bar").getValue().doubleValue(), is(1D));
+
+		buffered.setRetryFailedDeltas(false);
+		failing.set(true);
+		buffered.increment("foo");
+		buffered.submit("bar", 2D);
+		buffered.flush();
+		failing.set(false);
+		buffered.flush();
+		assertThat(inMemory.findOne("counter.foo").getValue().doubleValue(), is(1D));
+		assertThat(inMemory.findOne("gauge.bar").getValue().doubleValue(), is(2D));
+	}
+
+	@Test
+	public void testReset() {
+		service.increment("foo");
+		service.flush();
+		service.increment("foo");
+		service.reset("foo");
+		service.flush();
+		assertNull(repository.findOne("counter.foo"));
+	}
+
+}
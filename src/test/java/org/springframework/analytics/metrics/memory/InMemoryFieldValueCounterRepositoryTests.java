@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.memory;
+
+import org.springframework.analytics.metrics.AbstractFieldValueCounterRepositoryTests;
+import org.springframework.analytics.metrics.FieldValueCounterPruningPolicy;
+import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.ForwardDecay;
+
+/**
+ * Tests for {@link InMemoryFieldValueCounterRepository}.
+ */
+public class InMemoryFieldValueCounterRepositoryTests extends AbstractFieldValueCounterRepositoryTests {
+
+	@Override
+	protected FieldValueCounterRepository createRepository(ForwardDecay decay,
+			FieldValueCounterPruningPolicy pruningPolicy, int pruningInterval) {
+		InMemoryFieldValueCounterRepository repository = new InMemoryFieldValueCounterRepository();
+		repository.setDecay(decay);
+		repository.setDefaultPruningPolicy(pruningPolicy);
+		repository.setPruningInterval(pruningInterval);
+		return repository;
+	}
+
+	@Override
+	protected long getPrunedFieldCount(FieldValueCounterRepository repository) {
+		return ((InMemoryFieldValueCounterRepository) repository).getPrunedFieldCount();
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.memory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AbstractMetricRepositoryTests;
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link InMemoryMetricRepository}.
+ */
+public class InMemoryMetricRepositoryTests extends AbstractMetricRepositoryTests {
+
+	private InMemoryMetricRepository repository;
+
+	@Override
+	protected MetricRepository createRepository() {
+		repository = new InMemoryMetricRepository();
+		return repository;
+	}
+
+	@Test
+	public void testFindAllByName() {
+		repository.increment(new Delta<Long>("counter.foo", 3L, new Date(1L)));
+		repository.increment(new Delta<Double>("counter.bar", 0.5, new Date(2L)));
+		repository.set(new Metric<Long>("gauge.baz", 1L, new Date(3L)));
+
+		List<Metric<?>> metrics = new ArrayList<>();
+		for (Metric<?> metric : repository.findAll()) {
+			metrics.add(metric);
+		}
+		assertThat(metrics.size(), is(3));
+		assertThat(metrics.get(0).getName(), is("counter.bar"));
+		assertThat(metrics.get(0).getValue().doubleValue(), is(0.5D));
+		assertThat(metrics.get(1).getName(), is("counter.foo"));
+		assertThat(metrics.get(2).getName(), is("gauge.baz"));
+		assertThat(repository.count(), is(3L));
+		assertThat(repository.count("count"), is(0L));
+	}
+
+	@Test
+	public void testIncrementsRacingWithResets() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				writers.add(executor.submit(() -> {
+					for (int j = 0; j < 10000; j++) {
+						repository.increment(new Delta<Long>("counter.foo", 1L));
+					}
+				}));
+			}
+			Future<?> resets = executor.submit(() -> {
+				for (int j = 0; j < 1000; j++) {
+					repository.reset("counter.foo");
+				}
+			});
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+			resets.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+		// Whatever survived the resets is counted once, and only if the metric exists
+		Metric<?> metric = repository.findOne("counter.foo");
+		assertThat(repository.count("counter"), is(metric == null ? 0L : 1L));
+		assertThat(repository.count(), is(metric == null ? 0L : 1L));
+		repository.increment(new Delta<Long>("counter.foo", 1L));
+		repository.reset("counter.foo");
+		assertThat(repository.count("counter"), is(0L));
+		assertThat(repository.findAll("counter", 0, 10).isEmpty(), is(true));
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.memory;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AbstractWindowedFieldValueCounterRepositoryTests;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link InMemoryWindowedFieldValueCounterRepository}.
+ */
+public class InMemoryWindowedFieldValueCounterRepositoryTests extends AbstractWindowedFieldValueCounterRepositoryTests {
+
+	private DateTime now = new DateTime();
+
+	@Before
+	public void setUp() {
+		repository = new InMemoryWindowedFieldValueCounterRepository(Duration.standardMinutes(1), 10) {
+
+			@Override
+			long now() {
+				return now.getMillis();
+			}
+		};
+	}
+
+	@Test
+	public void testLateIncrementUpdatesMergedWindow() {
+		DateTime start = new DateTime(2018, 1, 1, 12, 0);
+		now = start.plusMinutes(2);
+		repository.increment("pages", "home", 1, start);
+		repository.increment("pages", "blog", 2, start.plusMinutes(1));
+		repository.findTop("pages", 5, Duration.standardMinutes(3), start.plusMinutes(2));
+
+		repository.increment("pages", "home", 5, start);
+		assertThat(repository.findTop("pages", 5, Duration.standardMinutes(3), start.plusMinutes(2))
+				.getFieldValueCounts().values(), contains(6D, 2D));
+	}
+
+	@Test
+	public void testEvictionBeyondRetention() {
+		DateTime start = new DateTime(2018, 1, 1, 12, 0);
+		now = start.plusMinutes(9);
+		repository.increment("pages", "home", 1, start);
+		repository.findTop("pages", 5, Duration.standardMinutes(10), start.plusMinutes(9));
+		now = start.plusMinutes(10);
+		repository.increment("pages", "blog", 2, start.plusMinutes(10));
+
+		assertThat(repository.findTop("pages", 5, Duration.standardMinutes(10), start.plusMinutes(10))
+				.getFieldValueCounts().keySet(), contains("blog"));
+		// Too old to be retained
+		repository.increment("pages", "home", 1, start);
+		assertThat(repository.findTop("pages", 5, Duration.standardMinutes(10), start.plusMinutes(10))
+				.getFieldValueCounts().keySet(), contains("blog"));
+	}
+
+	@Test
+	public void testEvictionFollowsCurrentTime() {
+		DateTime start = new DateTime(2018, 1, 1, 12, 0);
+		now = start;
+		repository.increment("pages", "home", 1, start);
+		now = start.plusMinutes(10);
+
+		assertThat(repository.findTop("pages", 5, Duration.standardMinutes(10), start.plusMinutes(9))
+				.getFieldValueCounts().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testExpiredFieldsLeaveSlidingWindow() {
+		DateTime start = new DateTime(2018, 1, 1, 12, 0);
+		now = start.plusMinutes(4);
+		repository.increment("pages", "home", 0.1, start);
+		repository.increment("pages", "home", 0.2, start.plusMinutes(1));
+		repository.increment("pages", "blog", 1, start.plusMinutes(4));
+		for (int i = 2; i <= 4; i++) {
+			repository.findTop("pages", 5, Duration.standardMinutes(3), start.plusMinutes(i));
+		}
+
+		assertThat(repository.findTop("pages", 5, Duration.standardMinutes(3), start.plusMinutes(4))
+				.getFieldValueCounts().keySet(), contains("blog"));
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.micrometer;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MockClock;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.redis.RedisAggregateCounterRepository;
+import org.springframework.analytics.metrics.redis.RedisMetricRepository;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.retry.support.RetryTemplate;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AnalyticsMeterRegistry}.
+ */
+public class AnalyticsMeterRegistryTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	private final MockClock clock = new MockClock();
+
+	private RedisAggregateCounterRepository aggregateCounterRepository;
+
+	private RedisMetricRepository metricRepository;
+
+	private AnalyticsMeterRegistry registry;
+
+	@Before
+	public void setUp() {
+		metricRepository = new RedisMetricRepository(redisTestSupport.getResource(), "test.micrometer.metrics");
+		aggregateCounterRepository = new RedisAggregateCounterRepository(redisTestSupport.getResource(),
+				new RetryTemplate());
+		AnalyticsRegistryConfig config = new AnalyticsRegistryConfig() {
+
+			@Override
+			public String get(String key) {
+				return null;
+			}
+
+			@Override
+			public boolean enabled() {
+				return false;
+			}
+		};
+		registry = new AnalyticsMeterRegistry(config, clock, metricRepository, aggregateCounterRepository);
+	}
+
+	@After
+	public void cleanUp() {
+		registry.close();
+		for (Metric<?> metric : metricRepository.findAll()) {
+			metricRepository.reset(metric.getName());
+		}
+		aggregateCounterRepository.reset("http.requests.status.200");
+		aggregateCounterRepository.reset("errors");
+	}
+
+	@Test
+	public void testPublishCountsOfLastStep() {
+		Counter requests = registry.counter("http.requests", "status", "200");
+		requests.increment(3);
+		registry.counter("errors").increment();
+
+		// Counts are only published once their step is over
+		registry.publish();
+		assertNull(metricRepository.findOne("counter.http.requests.status.200"));
+
+		clock.add(Duration.ofMinutes(1));
+		registry.publish();
+		assertThat(metricRepository.findOne("counter.http.requests.status.200").getValue().doubleValue(), is(3D));
+		assertThat(metricRepository.findOne("counter.errors").getValue().doubleValue(), is(1D));
+
+		long[] counts = aggregateCounterRepository.getCounts("http.requests.status.200", 1,
+				new DateTime(clock.wallTime()).minusMinutes(1), AggregateCounterResolution.minute).getCounts();
+		assertThat(counts[0], is(3L));
+		counts = aggregateCounterRepository.getCounts("errors", 1,
+				new DateTime(clock.wallTime()).minusMinutes(1), AggregateCounterResolution.year).getCounts();
+		assertThat(counts[0], is(1L));
+
+		requests.increment(2);
+		clock.add(Duration.ofMinutes(1));
+		registry.publish();
+		assertThat(metricRepository.findOne("counter.http.requests.status.200").getValue().doubleValue(), is(5D));
+	}
+
+	@Test
+	public void testCarryOverFractions() {
+		Counter errors = registry.counter("errors");
+		errors.increment(0.4);
+		clock.add(Duration.ofMinutes(1));
+		registry.publish();
+		assertNull(metricRepository.findOne("counter.errors"));
+
+		errors.increment(0.4);
+		clock.add(Duration.ofMinutes(1));
+		registry.publish();
+		assertThat(metricRepository.findOne("counter.errors").getValue().doubleValue(), is(1D));
+
+		for (int i = 0; i < 3; i++) {
+			errors.increment(0.4);
+			clock.add(Duration.ofMinutes(1));
+			registry.publish();
+		}
+		assertThat(metricRepository.findOne("counter.errors").getValue().doubleValue(), is(2D));
+	}
+
+}
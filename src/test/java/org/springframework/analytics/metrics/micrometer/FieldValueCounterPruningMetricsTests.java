@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.micrometer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.FieldValueCounterPruningPolicy;
+import org.springframework.analytics.metrics.memory.InMemoryFieldValueCounterRepository;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link FieldValueCounterPruningMetrics}.
+ */
+public class FieldValueCounterPruningMetricsTests {
+
+	@Test
+	public void testCountsPrunedFields() {
+		InMemoryFieldValueCounterRepository repository = new InMemoryFieldValueCounterRepository();
+		repository.setDefaultPruningPolicy(FieldValueCounterPruningPolicy.maxCardinality(1));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		new FieldValueCounterPruningMetrics(repository::getPrunedFieldCount, "memory").bindTo(registry);
+
+		repository.increment("app", "a", 1);
+		repository.increment("app", "b", 2);
+		repository.increment("app", "c", 3);
+		repository.prune();
+
+		assertThat(registry.get(FieldValueCounterPruningMetrics.METER_NAME).tag("repository", "memory")
+				.functionCounter().count(), is(2D));
+	}
+
+}
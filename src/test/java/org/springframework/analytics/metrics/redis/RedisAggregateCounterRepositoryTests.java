@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AggregateCounter;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.ReactiveAggregateCounterReader;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.retry.support.RetryTemplate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link RedisAggregateCounterRepository}.
+ */
+public class RedisAggregateCounterRepositoryTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	private RedisAggregateCounterRepository repository;
+
+	private StringRedisTemplate redisTemplate;
+
+	@Before
+	public void setUp() {
+		repository = new RedisAggregateCounterRepository(redisTestSupport.getResource(), new RetryTemplate());
+		repository.setResetBatchSize(7);
+		redisTemplate = new StringRedisTemplate(redisTestSupport.getResource());
+	}
+
+	@After
+	public void cleanUp() {
+		for (String name : repository.list()) {
+			repository.reset(name);
+		}
+		repository.destroy();
+	}
+
+	@Test
+	public void testNameIndexRebuiltOnFirstRead() {
+		repository.increment("legacy", 1L, new DateTime());
+		// As if written before the name index existed
+		redisTemplate.opsForZSet().remove("metric_meta.aggregate-counters", "legacy");
+		redisTemplate.delete("metric_meta.aggregate-counters.rebuilt");
+
+		RedisAggregateCounterRepository upgraded = new RedisAggregateCounterRepository(redisTestSupport.getResource(),
+				new RetryTemplate());
+		upgraded.increment("recent", 1L, new DateTime());
+		assertThat(upgraded.list(null, 0, 10), contains("legacy", "recent"));
+		assertThat(upgraded.count(null), is(2L));
+	}
+
+	@Test
+	public void testNameIndexRebuiltWhenSizesMatch() {
+		repository.increment("legacy", 1L, new DateTime());
+		redisTemplate.opsForZSet().remove("metric_meta.aggregate-counters", "legacy");
+		// A stale entry, so that the index has as many names as the registry
+		redisTemplate.opsForZSet().add("metric_meta.aggregate-counters", "stale", 0d);
+		redisTemplate.delete("metric_meta.aggregate-counters.rebuilt");
+
+		RedisAggregateCounterRepository upgraded = new RedisAggregateCounterRepository(redisTestSupport.getResource(),
+				new RetryTemplate());
+		assertThat(upgraded.list("legacy", 0, 10), contains("legacy"));
+		redisTemplate.opsForZSet().remove("metric_meta.aggregate-counters", "stale");
+	}
+
+	@Test
+	public void testResetReleasesAllKeysInBatches() {
+		DateTime start = new DateTime(2018, 1, 1, 0, 0);
+		for (int hour = 0; hour < 100; hour++) {
+			repository.increment("test.reset", 1L, start.plusHours(hour));
+		}
+		repository.increment("test.other", 1L, start);
+		assertThat(repository.getCounts("test.reset", 5, start.plusDays(4), AggregateCounterResolution.day)
+				.getTotal(), is(100));
+
+		repository.reset("test.reset");
+		assertThat(repository.exists("test.reset"), is(false));
+		assertThat(repository.exists("test.other"), is(true));
+		assertThat(redisTemplate.keys("aggregate-counters.test.reset*"), is(empty()));
+		assertThat(redisTemplate.hasKey("metric_meta.aggregatecounters.test.reset"), is(false));
+		assertThat(repository.getCounts("test.other", 1, start, AggregateCounterResolution.minute).getTotal(),
+				is(1));
+	}
+
+	@Test
+	public void testListByPrefix() {
+		DateTime now = new DateTime();
+		for (String name : new String[] {"app.c", "other", "app.a", "apq", "app.b"}) {
+			repository.increment(name, 1L, now);
+		}
+
+		assertThat(repository.list("app.", 0, 2), contains("app.a", "app.b"));
+		assertThat(repository.list("app.", 2, 2), contains("app.c"));
+		assertThat(repository.count("app."), is(3L));
+		assertThat(repository.count(null), is(5L));
+
+		repository.reset("app.b");
+		assertThat(repository.list("app.", 0, 10), contains("app.a", "app.c"));
+	}
+
+	@Test
+	public void testRebuildNameIndex() {
+		repository.increment("app.a", 1L, new DateTime());
+		repository.increment("app.b", 1L, new DateTime());
+		// The index is only checked on the first read
+		assertThat(repository.count("app."), is(2L));
+		redisTemplate.delete("metric_meta.aggregate-counters");
+		assertThat(repository.count("app."), is(0L));
+
+		repository.rebuildNameIndex();
+		assertThat(repository.list("app.", 0, 10), contains("app.a", "app.b"));
+	}
+
+	@Test
+	public void testRebuildNameIndexInBatches() {
+		// More names than a rebuild adds at once, registered with no counts
+		String[] names = new String[2500];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = String.format("batch.%04d", i);
+		}
+		redisTemplate.opsForSet().add("aggregate-counters", names);
+		try {
+			repository.rebuildNameIndex();
+			assertThat(repository.count("batch."), is(2500L));
+			assertThat(repository.list("batch.", 2499, 10), contains("batch.2499"));
+		}
+		finally {
+			redisTemplate.opsForSet().remove("aggregate-counters", (Object[]) names);
+			redisTemplate.opsForZSet().remove("metric_meta.aggregate-counters", (Object[]) names);
+		}
+	}
+
+	@Test
+	public void testResetAsync() throws Exception {
+		repository.increment("test.async", 3L, new DateTime());
+
+		repository.resetAsync("test.async").get(10, TimeUnit.SECONDS);
+		assertThat(repository.exists("test.async"), is(false));
+		assertThat(redisTemplate.keys("aggregate-counters.test.async*"), is(empty()));
+
+		final List<String> threads = new ArrayList<>();
+		repository.setResetExecutor(command -> {
+			threads.add(Thread.currentThread().getName());
+			command.run();
+		});
+		repository.increment("test.async", 3L, new DateTime());
+		repository.resetAsync("test.async").get(10, TimeUnit.SECONDS);
+		assertThat(threads, contains(Thread.currentThread().getName()));
+		assertThat(repository.exists("test.async"), is(false));
+	}
+
+	@Test
+	public void testBatchGetCounts() {
+		DateTime start = new DateTime(2016, 12, 31, 22, 0);
+		for (int hour = 0; hour < 30; hour++) {
+			repository.increment("app.a", hour, start.plusHours(hour));
+			repository.increment("app.b", 2 * hour, start.plusHours(hour).plusMinutes(30));
+		}
+		for (AggregateCounterResolution resolution : AggregateCounterResolution.values()) {
+			Interval interval = resolution == AggregateCounterResolution.minute
+					? new Interval(start.plusHours(1), start.plusHours(3))
+					: new Interval(start, start.plusDays(2));
+			List<AggregateCounter> counts = repository.getCounts(Arrays.asList("app.b", "none", "app.a"), interval,
+					resolution);
+			assertThat(counts.size(), is(3));
+			assertThat(resolution.name(), counts.get(0).getCounts(),
+					is(repository.getCounts("app.b", interval, resolution).getCounts()));
+			assertThat(counts.get(1).getName(), is("none"));
+			assertThat(counts.get(1).getTotal(), is(0));
+			assertThat(resolution.name(), counts.get(2).getCounts(),
+					is(repository.getCounts("app.a", interval, resolution).getCounts()));
+		}
+	}
+
+	@Test
+	public void testIncrementAtSeveralInstants() {
+		DateTime start = new DateTime(2016, 12, 31, 23, 58);
+		Map<DateTime, Map<String, Long>> amounts = new TreeMap<>();
+		for (int minute = 0; minute < 5; minute++) {
+			DateTime when = start.plusMinutes(minute);
+			Map<String, Long> byName = new HashMap<>();
+			byName.put("app.batched", (long) minute + 1);
+			byName.put("app.other", 1L);
+			amounts.put(when, byName);
+			repository.increment("app.single", minute + 1, when);
+		}
+		repository.increment(amounts);
+
+		for (AggregateCounterResolution resolution : AggregateCounterResolution.values()) {
+			Interval interval = new Interval(start.minusMinutes(1), start.plusMinutes(5));
+			assertThat(resolution.name(), repository.getCounts("app.batched", interval, resolution).getCounts(),
+					is(repository.getCounts("app.single", interval, resolution).getCounts()));
+		}
+		assertThat(repository.getCounts("app.other", new Interval(start, start.plusMinutes(5)),
+				AggregateCounterResolution.minute).getTotal(), is(5));
+		assertThat(repository.list(), containsInAnyOrder("app.batched", "app.other", "app.single"));
+
+		repository.reset("app.batched");
+		assertThat(redisTemplate.keys("aggregate-counters.app.batched*"), is(empty()));
+	}
+
+	@Test
+	public void testReactiveReader() {
+		DateTime start = new DateTime(2016, 12, 31, 22, 0);
+		for (int hour = 0; hour < 60; hour++) {
+			repository.increment("app.a", hour, start.plusHours(hour).plusMinutes(hour));
+		}
+		repository.increment("app.b", 1L, start);
+		repository.increment("other", 1L, start);
+
+		ReactiveAggregateCounterReader reader = repository.reactiveReader(redisTestSupport.getResource());
+		Interval interval = new Interval(start.minusYears(1), start.plusDays(3));
+		for (AggregateCounterResolution resolution : AggregateCounterResolution.values()) {
+			Interval queried = resolution == AggregateCounterResolution.minute
+					? new Interval(start.plusHours(20), start.plusHours(23))
+					: resolution == AggregateCounterResolution.hour ? new Interval(start, start.plusDays(3)) : interval;
+			AggregateCounter expected = repository.getCounts("app.a", queried, resolution);
+			AggregateCounter actual = reader.getCounts("app.a", queried, resolution).block();
+			assertThat(resolution.name(), actual.getCounts(), is(expected.getCounts()));
+			assertThat(actual.getInterval(), is(expected.getInterval()));
+		}
+		assertThat(reader.getCounts("app.a", interval, AggregateCounterResolution.year).block().getTotal(),
+				is(59 * 60 / 2));
+
+		assertThat(reader.exists("app.b").block(), is(true));
+		assertThat(reader.exists("app.c").block(), is(false));
+		assertThat(reader.list("app.", 1, 10).collectList().block(), contains("app.b"));
+		assertThat(reader.count("app.").block(), is(2L));
+		assertThat(reader.count(null).block(), is(3L));
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.redis;
+
+import java.util.Arrays;
+
+import org.joda.time.Duration;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AbstractFieldValueCounterRepositoryTests;
+import org.springframework.analytics.metrics.FieldValueCounter;
+import org.springframework.analytics.metrics.FieldValueCounterPruningPolicy;
+import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.ForwardDecay;
+import org.springframework.analytics.metrics.RankedFieldValue;
+import org.springframework.analytics.metrics.ReactiveFieldValueCounterReader;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.retry.support.RetryTemplate;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link RedisFieldValueCounterRepository}.
+ */
+public class RedisFieldValueCounterRepositoryTests extends AbstractFieldValueCounterRepositoryTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	@Override
+	protected FieldValueCounterRepository createRepository(ForwardDecay decay,
+			FieldValueCounterPruningPolicy pruningPolicy, int pruningInterval) {
+		RedisFieldValueCounterRepository repository = new RedisFieldValueCounterRepository(
+				redisTestSupport.getResource(), "test.fieldvaluecounters.", new RetryTemplate());
+		repository.setDecay(decay);
+		repository.setDefaultPruningPolicy(pruningPolicy);
+		repository.setPruningInterval(pruningInterval);
+		return repository;
+	}
+
+	@Override
+	protected long getPrunedFieldCount(FieldValueCounterRepository repository) {
+		return ((RedisFieldValueCounterRepository) repository).getPrunedFieldCount();
+	}
+
+	@Test
+	public void testReactiveReader() {
+		RedisFieldValueCounterRepository repository = (RedisFieldValueCounterRepository) repository(null);
+		repository.increment("app.a", "spring", 2);
+		repository.increment("app.a", "java", 1);
+		repository.increment("app.b", "spring", 1);
+		repository.increment("other", "spring", 1);
+
+		ReactiveFieldValueCounterReader reader = repository.reactiveReader(redisTestSupport.getResource());
+		FieldValueCounter counter = reader.findOne("app.a").block();
+		assertThat(counter.getFieldValueCounts().get("spring"), is(2D));
+		assertThat(counter.getFieldValueCounts().get("java"), is(1D));
+		assertNull(reader.findOne("app.c").block());
+		RankedFieldValue ranked = reader.findRankAndScore("app.a", "java").block();
+		assertThat(ranked.getRank(), is(1L));
+		assertThat(ranked.getValue(), is(1D));
+		assertNull(reader.findRankAndScore("app.a", "none").block());
+		assertThat(reader.exists("app.b").block(), is(true));
+		assertThat(reader.list("app.", 0, 10).collectList().block(), contains("app.a", "app.b"));
+		assertThat(reader.count("app.").block(), is(2L));
+		assertThat(reader.count(null).block(), is(3L));
+	}
+
+	@Test
+	public void testSweepPrunesDueCounters() {
+		RedisFieldValueCounterRepository repository = (RedisFieldValueCounterRepository) repository(null,
+				FieldValueCounterPruningPolicy.maxCardinality(1), 2);
+		repository.setPruningSweepInterval(Duration.standardHours(1));
+		try {
+			repository.increment("app", "a", 1);
+			repository.increment("app", "b", 2);
+			// Due, but left to the sweep
+			assertThat(repository.findOne("app").getFieldValueCounts().size(), is(2));
+
+			repository.pruneDue();
+			assertThat(repository.findOne("app").getFieldValueCounts().keySet(), contains("b"));
+			assertThat(repository.getPrunedFieldCount(), is(1L));
+		}
+		finally {
+			repository.destroy();
+		}
+	}
+
+	@Test
+	public void testNameIndexRebuiltOnFirstRead() {
+		repository(null).increment("legacy", "spring", 1);
+		// As if written before the name index existed
+		StringRedisTemplate template = new StringRedisTemplate(redisTestSupport.getResource());
+		template.opsForZSet().remove("metric_meta.test.fieldvaluecounters.names", "legacy");
+		template.delete("metric_meta.test.fieldvaluecounters.names.rebuilt");
+
+		FieldValueCounterRepository upgraded = repository(null);
+		upgraded.increment("recent", "spring", 1);
+		assertThat(upgraded.list(null, 0, 10), contains("legacy", "recent"));
+		assertThat(upgraded.count(null), is(2L));
+	}
+
+	@Test
+	public void testReactiveReaderDecays() throws Exception {
+		RedisFieldValueCounterRepository repository = (RedisFieldValueCounterRepository) repository(
+				new ForwardDecay(Duration.millis(250)));
+		repository.increment("foo", "spring", 8);
+		Thread.sleep(500);
+
+		double blocking = repository.findOne("foo").getFieldValueCounts().get("spring");
+		double reactive = repository.reactiveReader(redisTestSupport.getResource()).findOne("foo").block()
+				.getFieldValueCounts().get("spring");
+		assertThat(reactive, lessThan(4D));
+		assertThat(reactive, closeTo(blocking, 1D));
+
+		ReactiveFieldValueCounterReader reader = repository.reactiveReader(redisTestSupport.getResource());
+		assertThat(reader.findScore("foo", "spring").block(), closeTo(blocking, 1D));
+		assertThat(reader.findScores("foo", Arrays.asList("spring", "none")).block().keySet(), contains("spring"));
+		assertThat(reader.findRange("foo", 0, 10).block().getFieldValueCounts().get("spring"), closeTo(blocking, 1D));
+		assertThat(repository.findRange("foo", 0, 10).getFieldValueCounts().get("spring"), closeTo(blocking, 1D));
+	}
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AbstractMetricRepositoryTests;
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.metrics.ReactiveMetricReader;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link RedisMetricRepository}.
+ */
+public class RedisMetricRepositoryTests extends AbstractMetricRepositoryTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	private RedisMetricRepository repository;
+
+	@Override
+	protected MetricRepository createRepository() {
+		repository = new RedisMetricRepository(redisTestSupport.getResource(), "test.metrics");
+		return repository;
+	}
+
+	@Test
+	public void testFindAll() {
+		repository.increment(new Delta<Long>("counter.foo", 3L, new Date(1L)));
+		repository.increment(new Delta<Long>("counter.bar", 2L, new Date(2L)));
+		repository.set(new Metric<Long>("gauge.baz", 1L, new Date(3L)));
+
+		List<Metric<?>> metrics = new ArrayList<>();
+		for (Metric<?> metric : repository.findAll()) {
+			metrics.add(metric);
+		}
+		assertThat(metrics.size(), is(3));
+		assertThat(metrics.get(0).getName(), is("gauge.baz"));
+		assertThat(metrics.get(0).getValue().doubleValue(), is(1D));
+		assertThat(metrics.get(1).getName(), is("counter.bar"));
+		assertThat(metrics.get(1).getValue().doubleValue(), is(2D));
+		assertThat(metrics.get(1).getTimestamp().getTime(), is(2L));
+		assertThat(metrics.get(2).getName(), is("counter.foo"));
+		assertThat(metrics.get(2).getTimestamp().getTime(), is(1L));
+		assertThat(repository.count(), is(3L));
+	}
+
+	@Test
+	public void testWriteDeltasAndValues() {
+		repository.increment(new Delta<Long>("counter.foo", 1L));
+		repository.write(Arrays.<Delta<?>>asList(new Delta<Long>("counter.foo", 2L)),
+				Arrays.<Metric<?>>asList(new Metric<Double>("gauge.bar", 4D)));
+
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(3D));
+		assertThat(repository.findOne("gauge.bar").getValue().doubleValue(), is(4D));
+	}
+
+	@Test
+	public void testBatchIncrementAfterScriptFlush() {
+		List<Delta<?>> deltas = Arrays.<Delta<?>>asList(new Delta<Long>("counter.foo", 1L),
+				new Delta<Long>("counter.bar", 2L));
+		repository.increment(deltas);
+		new StringRedisTemplate(redisTestSupport.getResource()).execute((RedisCallback<Object>) connection -> {
+			connection.scriptFlush();
+			return null;
+		});
+		repository.increment(deltas);
+		repository.increment(deltas);
+
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(3D));
+		assertThat(repository.findOne("counter.bar").getValue().doubleValue(), is(6D));
+	}
+
+	@Test
+	public void testBatchWriteAfterFlushOfOneKnownScript() {
+		// Only the set script is known to be loaded when the scripts are flushed
+		repository.set(Arrays.<Metric<?>>asList(new Metric<Double>("gauge.bar", 1D)));
+		new StringRedisTemplate(redisTestSupport.getResource()).execute((RedisCallback<Object>) connection -> {
+			connection.scriptFlush();
+			return null;
+		});
+		repository.write(Arrays.<Delta<?>>asList(new Delta<Long>("counter.foo", 2L)),
+				Arrays.<Metric<?>>asList(new Metric<Double>("gauge.bar", 4D)));
+
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(2D));
+		assertThat(repository.findOne("gauge.bar").getValue().doubleValue(), is(4D));
+	}
+
+	@Test
+	public void testBatchIncrementWhenScriptFlushedMidway() {
+		final StringRedisTemplate template = new StringRedisTemplate(redisTestSupport.getResource());
+		repository.increment(new Delta<Long>("counter.warmup", 1L));
+		final AtomicBoolean flushed = new AtomicBoolean();
+		Delta<Long> flushing = new Delta<Long>("counter.bar", 2L) {
+
+			@Override
+			public Long getValue() {
+				if (flushed.compareAndSet(false, true)) {
+					try {
+						// Flush the scripts once the first command of the batch has been sent
+						Thread.sleep(200L);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					template.execute((RedisCallback<Object>) connection -> {
+						connection.scriptFlush();
+						return null;
+					});
+				}
+				return super.getValue();
+			}
+		};
+		repository.increment(Arrays.<Delta<?>>asList(new Delta<Long>("counter.foo", 1L), flushing,
+				new Delta<Long>("counter.baz", 3L)));
+
+		assertThat(flushed.get(), is(true));
+		assertThat(repository.findOne("counter.foo").getValue().doubleValue(), is(1D));
+		assertThat(repository.findOne("counter.bar").getValue().doubleValue(), is(2D));
+		assertThat(repository.findOne("counter.baz").getValue().doubleValue(), is(3D));
+	}
+
+	@Test
+	public void testIntegerHashStorage() {
+		repository.setStorage(RedisMetricRepository.Storage.INTEGER_HASH);
+		long big = (1L << 53) + 1;
+		repository.set(new Metric<Long>("counter.foo", big, new Date(1L)));
+		repository.increment(new Delta<Long>("counter.foo", 2L, new Date(2L)));
+		repository.increment(new Delta<Long>("counter.bar", 3L, new Date(3L)));
+
+		Metric<?> metric = repository.findOne("counter.foo");
+		assertThat(metric.getValue(), is((Number) (big + 2)));
+		assertThat(metric.getTimestamp().getTime(), is(2L));
+
+		List<Metric<?>> metrics = new ArrayList<>();
+		for (Metric<?> m : repository.findAll()) {
+			metrics.add(m);
+		}
+		assertThat(metrics.size(), is(2));
+		assertThat(metrics.get(0).getName(), is("counter.bar"));
+		assertThat(metrics.get(0).getValue(), is((Number) 3L));
+		assertThat(metrics.get(1).getValue(), is((Number) (big + 2)));
+
+		List<Metric<?>> page = repository.findAll("counter", 1, 10);
+		assertThat(page.size(), is(1));
+		assertThat(page.get(0).getName(), is("counter.foo"));
+
+		repository.reset("counter.foo");
+		assertNull(repository.findOne("counter.foo"));
+		assertThat(repository.count(), is(1L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIntegerHashStorageRejectsFractions() {
+		repository.setStorage(RedisMetricRepository.Storage.INTEGER_HASH);
+		repository.increment(new Delta<Double>("counter.foo", 0.5D));
+	}
+
+	@Test
+	public void testTypeIndexRebuiltOnFirstRead() {
+		repository.increment(new Delta<Long>("counter.foo", 3L, new Date(1L)));
+		repository.set(new Metric<Long>("gauge.baz", 1L, new Date(3L)));
+		// As if written before type indexes existed
+		StringRedisTemplate template = new StringRedisTemplate(redisTestSupport.getResource());
+		template.delete("keys.test.metrics.counter");
+		template.delete("keys.test.metrics.gauge");
+		template.delete("metric_meta.keys.test.metrics.types.rebuilt");
+
+		RedisMetricRepository upgraded = new RedisMetricRepository(redisTestSupport.getResource(), "test.metrics");
+		upgraded.increment(new Delta<Long>("counter.bar", 2L, new Date(2L)));
+		List<Metric<?>> page = upgraded.findAll("counter", 0, 10);
+		assertThat(page.size(), is(2));
+		assertThat(page.get(0).getName(), is("counter.bar"));
+		assertThat(page.get(1).getName(), is("counter.foo"));
+		assertThat(upgraded.count("gauge"), is(1L));
+	}
+
+	@Test
+	public void testTypeIndexRebuiltInBatches() {
+		List<Delta<?>> deltas = new ArrayList<>();
+		for (int i = 0; i <= NameIndexes.REBUILD_BATCH_SIZE; i++) {
+			deltas.add(new Delta<Long>("counter.c" + i, 1L));
+		}
+		repository.increment(deltas);
+		repository.set(new Metric<Long>("gauge.baz", 1L));
+		StringRedisTemplate template = new StringRedisTemplate(redisTestSupport.getResource());
+		template.delete("keys.test.metrics.counter");
+		template.delete("keys.test.metrics.gauge");
+
+		repository.rebuildTypeIndex();
+		assertThat(repository.count("counter"), is((long) NameIndexes.REBUILD_BATCH_SIZE + 1));
+		assertThat(repository.count("gauge"), is(1L));
+	}
+
+	@Test
+	public void testHashStorage() {
+		repository.setStorage(RedisMetricRepository.Storage.HASH);
+		repository.set(new Metric<Double>("counter.foo", 0.1D, new Date(1L)));
+		repository.increment(new Delta<Double>("counter.foo", 2D, new Date(2L)));
+		repository.increment(new Delta<Long>("counter.bar", 3L, new Date(3L)));
+		repository.increment(new Delta<Long>("gauge.baz", -1L, new Date(4L)));
+
+		Metric<?> metric = repository.findOne("counter.foo");
+		assertThat(metric.getValue().doubleValue(), is(2.1D));
+		assertThat(metric.getTimestamp().getTime(), is(2L));
+		assertNull(repository.findOne("counter.none"));
+
+		List<Metric<?>> metrics = new ArrayList<>();
+		for (Metric<?> m : repository.findAll()) {
+			metrics.add(m);
+		}
+		assertThat(metrics.size(), is(3));
+		assertThat(metrics.get(0).getName(), is("counter.bar"));
+		assertThat(metrics.get(2).getName(), is("gauge.baz"));
+		assertThat(metrics.get(2).getValue().doubleValue(), is(-1D));
+		assertThat(repository.count(), is(3L));
+
+		List<Metric<?>> page = repository.findAll("counter", 0, 10);
+		assertThat(page.size(), is(2));
+		assertThat(page.get(1).getName(), is("counter.foo"));
+		assertThat(page.get(1).getTimestamp().getTime(), is(2L));
+
+		repository.reset("counter.foo");
+		assertNull(repository.findOne("counter.foo"));
+		assertThat(repository.count("counter"), is(1L));
+	}
+
+	@Test
+	public void testReactiveReader() {
+		ReactiveMetricReader reader = repository.reactiveReader(redisTestSupport.getResource());
+		for (RedisMetricRepository.Storage storage : RedisMetricRepository.Storage.values()) {
+			repository.setStorage(storage);
+			repository.increment(new Delta<Long>("counter.foo", 3L, new Date(1L)));
+			repository.increment(new Delta<Long>("counter.bar", 2L, new Date(2L)));
+			repository.set(new Metric<Long>("gauge.baz", 1L, new Date(3L)));
+
+			Metric<?> metric = reader.findOne("counter.foo").block();
+			assertNotNull(storage.name(), metric);
+			assertThat(metric.getValue().doubleValue(), is(3D));
+			assertThat(metric.getTimestamp().getTime(), is(1L));
+			assertNull(reader.findOne("counter.none").block());
+
+			List<Metric<?>> page = reader.findAll("counter", 0, 10).collectList().block();
+			assertThat(page.size(), is(2));
+			assertThat(page.get(0).getName(), is("counter.bar"));
+			assertThat(page.get(0).getValue().doubleValue(), is(2D));
+			assertThat(page.get(1).getName(), is("counter.foo"));
+			assertThat(reader.findAll("counter", 1, 10).collectList().block().size(), is(1));
+			assertThat(reader.count("counter").block(), is(2L));
+
+			for (String name : new String[] {"counter.foo", "counter.bar", "gauge.baz"}) {
+				repository.reset(name);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.metrics.redis;
+
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Rule;
+
+import org.springframework.analytics.metrics.AbstractWindowedFieldValueCounterRepositoryTests;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.retry.support.RetryTemplate;
+
+/**
+ * Tests for {@link RedisWindowedFieldValueCounterRepository}.
+ */
+public class RedisWindowedFieldValueCounterRepositoryTests extends AbstractWindowedFieldValueCounterRepositoryTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	@Before
+	public void setUp() {
+		repository = new RedisWindowedFieldValueCounterRepository(redisTestSupport.getResource(),
+				"test.windowedfieldvaluecounters.", Duration.standardMinutes(1), 10, new RetryTemplate());
+	}
+
+}
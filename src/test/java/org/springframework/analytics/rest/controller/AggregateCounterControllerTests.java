@@ -13,30 +13,53 @@
 
 package org.springframework.analytics.rest.controller;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType.HAL;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.hamcrest.Matchers;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 
 import org.springframework.analytics.metrics.AggregateCounterRepository;
 import org.springframework.analytics.metrics.AggregateCounterResolution;
 import org.springframework.analytics.metrics.memory.InMemoryAggregateCounterRepository;
+import org.springframework.analytics.rest.domain.CompactAggregateCounterCodec;
+import org.springframework.analytics.rest.domain.CompactAggregateCounterResource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
@@ -54,6 +77,9 @@ public class AggregateCounterControllerTests {
 	@Autowired
 	AggregateCounterRepository aggregateCounterRepository;
 
+	@Autowired
+	AggregateCounterController aggregateCounterController;
+
 	@Autowired
 	private WebApplicationContext wac;
 
@@ -104,6 +130,362 @@ public class AggregateCounterControllerTests {
 		}
 	}
 
+	@Test
+	public void testBatchQuery() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to.minusHours(1));
+		aggregateCounterRepository.increment("c1", 7L, to);
+		String query = "{\"names\": [\"c1\", \"c0\", \"none\"], \"from\": " + to.minusHours(2).getMillis()
+				+ ", \"to\": " + to.getMillis() + ", \"resolution\": \"hour\"}";
+
+		mockMvc.perform(post("/metrics/aggregate-counters/query").contentType(MediaType.APPLICATION_JSON)
+				.content(query))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content", Matchers.hasSize(3)))
+				.andExpect(jsonPath("$.content[0].name").value("c1"))
+				.andExpect(jsonPath("$.content[0].counts.*", Matchers.contains(0, 0, 7)))
+				.andExpect(jsonPath("$.content[1].counts.*", Matchers.contains(0, 3, 0)))
+				.andExpect(jsonPath("$.content[2].name").value("none"))
+				.andExpect(jsonPath("$.content[2].counts.*", Matchers.contains(0, 0, 0)));
+
+		mockMvc.perform(post("/metrics/aggregate-counters/query").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"names\": []}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testMaxPoints() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to.minusHours(1));
+		aggregateCounterRepository.increment("c0", 7L, to);
+		String from = to.minusHours(2).toString();
+
+		// 121 minutes, coarsened to 3 hours
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("from", from).param("to", to.toString())
+				.param("resolution", "minute").param("maxPoints", "10"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.counts.*", Matchers.contains(0, 3, 7)));
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("format", "compact").param("from", from)
+				.param("to", to.toString()).param("resolution", "minute").param("maxPoints", "10"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.resolution").value("hour"))
+				.andExpect(jsonPath("$.counts", Matchers.contains(0, 3, 7)));
+		String query = "{\"names\": [\"c0\"], \"from\": " + to.minusHours(2).getMillis() + ", \"to\": "
+				+ to.getMillis() + ", \"resolution\": \"minute\", \"maxPoints\": 10}";
+		mockMvc.perform(post("/metrics/aggregate-counters/query").contentType(MediaType.APPLICATION_JSON)
+				.content(query))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].counts.*", Matchers.contains(0, 3, 7)));
+		mockMvc.perform(post("/metrics/aggregate-counters/query").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"names\": [\"c0\"], \"maxPoints\": 0}"))
+				.andExpect(status().isBadRequest());
+
+		// 3 hours, coarsened to 1 day
+		byte[] body = mockMvc.perform(get("/metrics/aggregate-counters/c0")
+				.accept(AggregateCounterController.COMPACT_VARINT_VALUE)
+				.param("from", from).param("to", to.toString()).param("maxPoints", "1"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		CompactAggregateCounterResource c0 = CompactAggregateCounterCodec.decode(new ByteArrayInputStream(body));
+		assertThat(c0.getResolution(), is(AggregateCounterResolution.day));
+		assertThat(c0.getCounts(), is(new long[] { 10L }));
+		body = mockMvc.perform(get("/metrics/aggregate-counters")
+				.accept(AggregateCounterController.COMPACT_VARINT_VALUE)
+				.param("from", from).param("to", to.toString()).param("maxPoints", "1"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(CompactAggregateCounterCodec.decodeAll(new ByteArrayInputStream(body)).get(0).getCounts(),
+				is(new long[] { 10L }));
+
+		// 9 years, summed up 3 by 3
+		aggregateCounterRepository.increment("c1", 1L, new DateTime(2011, 3, 1, 0, 0));
+		aggregateCounterRepository.increment("c1", 2L, new DateTime(2012, 3, 1, 0, 0));
+		aggregateCounterRepository.increment("c1", 5L, new DateTime(2017, 3, 1, 0, 0));
+		mockMvc.perform(get("/metrics/aggregate-counters/c1").param("from", new DateTime(2010, 1, 1, 0, 0).toString())
+				.param("to", new DateTime(2018, 1, 1, 0, 0).toString()).param("resolution", "year")
+				.param("maxPoints", "3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.counts.*", Matchers.contains(3, 0, 5)));
+
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("maxPoints", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testQueryCostGuard() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to);
+		aggregateCounterRepository.increment("c1", 7L, to);
+		String from = to.minusMinutes(59).toString();
+		aggregateCounterController.setMaxQueryBuckets(100);
+		try {
+			mockMvc.perform(get("/metrics/aggregate-counters/c0").param("from", from).param("to", to.toString())
+					.param("resolution", "minute"))
+					.andExpect(status().isOk());
+			mockMvc.perform(get("/metrics/aggregate-counters").param("detailed", "true").param("from", from)
+					.param("to", to.toString()).param("resolution", "minute"))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(get("/metrics/aggregate-counters").param("detailed", "true").param("from", from)
+					.param("to", to.toString()).param("resolution", "minute").param("maxPoints", "1"))
+					.andExpect(status().isOk());
+		}
+		finally {
+			aggregateCounterController.setMaxQueryBuckets(1_000_000L);
+		}
+	}
+
+	@Test
+	public void testQueryOfVeryLongInterval() throws Exception {
+		aggregateCounterRepository.increment("c0", 3L, new DateTime(2018, 6, 1, 12, 30));
+		Exception refused = mockMvc.perform(get("/metrics/aggregate-counters/c0")
+				.param("from", new DateTime(2010, 1, 1, 0, 0).toString())
+				.param("to", new DateTime(9999, 1, 1, 0, 0).toString())
+				.param("resolution", "minute"))
+				.andExpect(status().isBadRequest())
+				.andReturn().getResolvedException();
+		assertThat(refused.getMessage(), endsWith("buckets, more than the limit of 1000000"));
+	}
+
+	@Test
+	public void testDelete() throws Exception {
+		aggregateCounterRepository.increment("c0", 3L, DateTime.now());
+		mockMvc.perform(delete("/metrics/aggregate-counters/c0")).andExpect(status().isOk());
+		assertThat(aggregateCounterRepository.exists("c0"), is(false));
+		mockMvc.perform(delete("/metrics/aggregate-counters/c0")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testCompactFormat() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to.minusHours(1));
+		aggregateCounterRepository.increment("c0", 2L, to);
+		String from = to.minusHours(2).toString();
+
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("format", "compact")
+				.param("from", from).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("c0"))
+				.andExpect(jsonPath("$.resolution").value("hour"))
+				.andExpect(jsonPath("$.start").value(to.minusHours(2).getMillis()))
+				.andExpect(jsonPath("$.counts", Matchers.contains(0, 3, 2)));
+
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").accept(AggregateCounterController.COMPACT_JSON_VALUE)
+				.param("from", from).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.counts", Matchers.contains(0, 3, 2)));
+
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("from", from).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.counts.length()").value(3));
+	}
+
+	@Test
+	public void testCompactVarintFormat() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to.minusHours(1));
+		aggregateCounterRepository.increment("c0", 2L, to);
+		aggregateCounterRepository.increment("c1", 7L, to);
+		aggregateCounterRepository.increment("other", 1L, to);
+		String from = to.minusHours(2).toString();
+
+		byte[] body = mockMvc.perform(get("/metrics/aggregate-counters/c0")
+				.accept(AggregateCounterController.COMPACT_VARINT_VALUE)
+				.param("from", from).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(AggregateCounterController.COMPACT_VARINT_VALUE))
+				.andReturn().getResponse().getContentAsByteArray();
+		CompactAggregateCounterResource c0 = CompactAggregateCounterCodec.decode(new ByteArrayInputStream(body));
+		assertThat(c0.getName(), is("c0"));
+		assertThat(c0.getStart().getTime(), is(to.minusHours(2).getMillis()));
+		assertThat(c0.getCounts(), is(new long[] { 0L, 3L, 2L }));
+
+		body = mockMvc.perform(get("/metrics/aggregate-counters")
+				.accept(AggregateCounterController.COMPACT_VARINT_VALUE)
+				.param("prefix", "c").param("from", from).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		List<CompactAggregateCounterResource> exported = CompactAggregateCounterCodec
+				.decodeAll(new ByteArrayInputStream(body));
+		assertThat(exported.size(), is(2));
+		assertThat(exported.get(0).getCounts(), is(new long[] { 0L, 3L, 2L }));
+		assertThat(exported.get(1).getName(), is("c1"));
+		assertThat(exported.get(1).getCounts(), is(new long[] { 0L, 0L, 7L }));
+	}
+
+	@Test
+	public void testCborFormat() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to);
+
+		byte[] body = mockMvc.perform(get("/metrics/aggregate-counters/c0").param("format", "compact")
+				.param("to", to.toString()).accept(AggregateCounterController.CBOR_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(AggregateCounterController.CBOR_VALUE))
+				.andReturn().getResponse().getContentAsByteArray();
+		JsonNode compact = new ObjectMapper(new CBORFactory()).readTree(body);
+		assertThat(compact.get("name").asText(), is("c0"));
+		assertThat(compact.get("counts").size(), is(24));
+		assertThat(compact.get("counts").get(23).asLong(), is(3L));
+	}
+
+	@Test
+	public void testConditionalGetOfClosedInterval() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to);
+		MockHttpServletResponse response = mockMvc.perform(get("/metrics/aggregate-counters/c0")
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "max-age=3600, public"))
+				.andExpect(header().dateValue("Last-Modified", to.plusMinutes(30).getMillis()))
+				.andExpect(header().string("Vary", "Accept"))
+				.andReturn().getResponse();
+		String etag = response.getHeader("ETag");
+
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-None-Match", etag)
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("Vary", "Accept"))
+				.andExpect(content().string(""));
+
+		// The compact representation has its own entity tag
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-None-Match", etag).param("format", "compact")
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isOk());
+
+		// Clients that have the counts of a closed interval are answered without reading them
+		Mockito.clearInvocations(aggregateCounterRepository);
+		String lastModified = response.getHeader("Last-Modified");
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-Modified-Since", lastModified)
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("Cache-Control", "max-age=3600, public"))
+				.andExpect(header().string("Vary", "Accept"));
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-Modified-Since", lastModified)
+				.param("format", "compact").param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-Modified-Since", lastModified)
+				.accept(AggregateCounterController.COMPACT_VARINT_VALUE)
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isNotModified());
+		// So are browsers, that send both validators
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-Modified-Since", lastModified)
+				.header("If-None-Match", etag)
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag));
+		Mockito.verify(aggregateCounterRepository, Mockito.never()).getCounts(Mockito.anyString(),
+				Mockito.any(Interval.class), Mockito.any(AggregateCounterResolution.class));
+
+		// If-Modified-Since is ignored when the client also sends an entity tag, which must match
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-Modified-Since", lastModified)
+				.header("If-None-Match", "\"stale\"")
+				.param("from", to.minusHours(2).toString()).param("to", to.toString()))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", etag));
+	}
+
+	@Test
+	public void testEntityTagsDependOnMediaType() throws Exception {
+		DateTime to = new DateTime(2018, 6, 1, 12, 30);
+		aggregateCounterRepository.increment("c0", 3L, to);
+		String jsonETag = mockMvc.perform(get("/metrics/aggregate-counters/c0").param("to", to.toString())
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getHeader("ETag");
+		String cborETag = mockMvc.perform(get("/metrics/aggregate-counters/c0").param("to", to.toString())
+				.accept(AggregateCounterController.CBOR_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(AggregateCounterController.CBOR_VALUE))
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(cborETag.equals(jsonETag), is(false));
+
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("to", to.toString())
+				.accept(MediaType.APPLICATION_JSON).header("If-None-Match", cborETag))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", jsonETag));
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("to", to.toString())
+				.accept(AggregateCounterController.CBOR_VALUE).header("If-None-Match", cborETag))
+				.andExpect(status().isNotModified());
+
+		String compactETag = mockMvc.perform(get("/metrics/aggregate-counters/c0").param("to", to.toString())
+				.accept(AggregateCounterController.COMPACT_JSON_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(AggregateCounterController.COMPACT_JSON_VALUE))
+				.andReturn().getResponse().getHeader("ETag");
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").param("to", to.toString()).param("format", "compact")
+				.accept(MediaType.APPLICATION_JSON).header("If-None-Match", compactETag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void testConditionalGetOfOpenInterval() throws Exception {
+		aggregateCounterRepository.increment("c0", 3L, DateTime.now());
+		String etag = mockMvc.perform(get("/metrics/aggregate-counters/c0"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "no-cache"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		aggregateCounterRepository.increment("c0", 1L, DateTime.now());
+		mockMvc.perform(get("/metrics/aggregate-counters/c0").header("If-None-Match", etag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void testStream() throws Exception {
+		aggregateCounterController.setTailInterval(Duration.millis(20));
+		aggregateCounterRepository.increment("c0", 3L, DateTime.now());
+		aggregateCounterRepository.increment("c1", 0L, DateTime.now());
+		MvcResult result = mockMvc.perform(get("/metrics/aggregate-counters/stream")
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.param("name", "c0", "c1").param("resolution", "day"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		awaitContent(result, "event:update\ndata:{\"name\":\"c0\",\"resolution\":\"day\"");
+		String content = result.getResponse().getContentAsString();
+		assertThat(content.startsWith("event:snapshot\ndata:{\"name\":\"c0\""), is(true));
+		assertThat(content.contains("event:snapshot\ndata:{\"name\":\"c1\""), is(true));
+		assertThat(content.contains("\"value\":3"), is(true));
+
+		aggregateCounterRepository.increment("c0", 2L, DateTime.now());
+		awaitContent(result, "\"value\":5");
+	}
+
+	@Test
+	public void testStreamLimits() throws Exception {
+		aggregateCounterRepository.increment("c0", 1L, DateTime.now());
+		aggregateCounterRepository.increment("c1", 1L, DateTime.now());
+		aggregateCounterController.setMaxStreamedCounters(1);
+		aggregateCounterController.setMaxLiveCounters(1);
+		try {
+			mockMvc.perform(get("/metrics/aggregate-counters/stream").accept(MediaType.TEXT_EVENT_STREAM)
+					.param("name", "c0", "c1"))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(get("/metrics/aggregate-counters/stream").accept(MediaType.TEXT_EVENT_STREAM)
+					.param("name", "missing"))
+					.andExpect(status().isNotFound());
+			mockMvc.perform(get("/metrics/aggregate-counters/stream").accept(MediaType.TEXT_EVENT_STREAM)
+					.param("name", "c0", "c0"))
+					.andExpect(request().asyncStarted());
+			mockMvc.perform(get("/metrics/aggregate-counters/stream").accept(MediaType.TEXT_EVENT_STREAM)
+					.param("name", "c1"))
+					.andExpect(status().isTooManyRequests());
+		}
+		finally {
+			aggregateCounterController.setMaxStreamedCounters(20);
+			aggregateCounterController.setMaxLiveCounters(1000);
+			aggregateCounterController.setTailInterval(Duration.standardSeconds(1));
+		}
+	}
+
+	private void awaitContent(MvcResult result, String expected) throws Exception {
+		for (int i = 0; i < 200 && !result.getResponse().getContentAsString().contains(expected); i++) {
+			Thread.sleep(10L);
+		}
+		assertThat(result.getResponse().getContentAsString(), containsString(expected));
+	}
+
 	@Configuration
 	@EnableSpringDataWebSupport
 	@EnableHypermediaSupport(type = HAL)
@@ -112,7 +494,7 @@ public class AggregateCounterControllerTests {
 
 		@Bean
 		public InMemoryAggregateCounterRepository aggregateCounterRepository() {
-			return new InMemoryAggregateCounterRepository();
+			return Mockito.spy(new InMemoryAggregateCounterRepository());
 		}
 
 		@Bean
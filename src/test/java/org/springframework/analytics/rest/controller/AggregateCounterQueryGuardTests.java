@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.analytics.rest.controller;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.Semaphore;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+
+/**
+ * Tests for {@link AggregateCounterQueryGuard}.
+ */
+public class AggregateCounterQueryGuardTests {
+
+	private final AggregateCounterQueryGuard guard = new AggregateCounterQueryGuard();
+
+	@Test
+	public void testCost() {
+		DateTime start = new DateTime(2018, 6, 1, 12, 30);
+		Interval interval = new Interval(start, start.plusDays(1));
+		assertThat(guard.cost(interval, AggregateCounterResolution.minute, 3), is(3L * (24 * 60 + 1)));
+		assertThat(guard.cost(interval, AggregateCounterResolution.hour, 2), is(2L * 25));
+		assertThat(guard.cost(interval, AggregateCounterResolution.year, 2), is(2L));
+	}
+
+	@Test
+	public void testCostOfLongIntervals() {
+		Interval interval = new Interval(new DateTime(2010, 1, 1, 0, 0), new DateTime(9999, 1, 1, 0, 0));
+		long minutes = guard.cost(interval, AggregateCounterResolution.minute, 1);
+		assertThat(minutes, is(interval.toDurationMillis() / 60_000L + 1));
+		assertThat(guard.cost(interval, AggregateCounterResolution.minute, 1000), is(1000L * minutes));
+
+		Interval ages = new Interval(new DateTime(-100_000_000, 1, 1, 0, 0), new DateTime(100_000_000, 1, 1, 0, 0));
+		assertThat(guard.cost(ages, AggregateCounterResolution.minute, Integer.MAX_VALUE), is(Long.MAX_VALUE));
+		assertThat(guard.cost(ages, AggregateCounterResolution.day, 1), is(Long.MAX_VALUE));
+		assertThat(guard.cost(ages, AggregateCounterResolution.year, 1), is(200_000_001L));
+	}
+
+	@Test(expected = QueryTooExpensiveException.class)
+	public void testTooExpensive() {
+		guard.setMaxBuckets(100);
+		guard.admit(101);
+	}
+
+	@Test
+	public void testConcurrentExpensiveQueries() {
+		guard.setExpensiveBuckets(10);
+		guard.setMaxConcurrentExpensiveQueries(1);
+		assertThat(guard.admit(10), nullValue());
+		Semaphore permit = guard.admit(11);
+		assertThat(permit, notNullValue());
+		try {
+			guard.admit(11);
+			throw new AssertionError("Expected TooManyQueriesException");
+		}
+		catch (TooManyQueriesException expected) {
+		}
+		assertThat(guard.execute(10, () -> "cheap"), is("cheap"));
+		permit.release();
+		assertThat(guard.execute(11, () -> "expensive"), is("expensive"));
+		assertThat(guard.admit(11), notNullValue());
+	}
+
+	@Test
+	public void testTickers() {
+		guard.setMaxTickers(2);
+		guard.acquireTickers(2);
+		try {
+			guard.acquireTickers(1);
+			throw new AssertionError("Expected TooManyQueriesException");
+		}
+		catch (TooManyQueriesException expected) {
+		}
+		guard.releaseTickers(1);
+		guard.acquireTickers(1);
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.memory.InMemoryAggregateCounterRepository;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AggregateCounterTail}.
+ */
+public class AggregateCounterTailTests {
+
+	private final InMemoryAggregateCounterRepository repository = new InMemoryAggregateCounterRepository();
+
+	private final AggregateCounterTail tail = new AggregateCounterTail(repository, new AggregateCounterQueryGuard(),
+			10L);
+
+	private final CountDownLatch unblock = new CountDownLatch(1);
+
+	@After
+	public void cleanUp() {
+		unblock.countDown();
+		tail.shutdown();
+	}
+
+	@Test
+	public void testSlowSubscriberDoesNotHoldUpOthers() throws Exception {
+		repository.increment("foo", 1L, new DateTime());
+		SseEmitter slow = new SseEmitter() {
+
+			@Override
+			public void send(SseEventBuilder builder) throws IOException {
+				try {
+					unblock.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		final List<Object> received = new CopyOnWriteArrayList<>();
+		SseEmitter fast = new SseEmitter() {
+
+			@Override
+			public void send(SseEventBuilder builder) throws IOException {
+				received.add(builder);
+			}
+		};
+		tail.subscribe(Collections.singletonList("foo"), AggregateCounterResolution.minute, slow);
+		tail.subscribe(Collections.singletonList("foo"), AggregateCounterResolution.minute, fast);
+
+		for (int i = 0; i < 3; i++) {
+			int expected = received.size() + 1;
+			repository.increment("foo", 1L, new DateTime());
+			for (int wait = 0; wait < 200 && received.size() < expected; wait++) {
+				Thread.sleep(10L);
+			}
+			assertThat(received.size(), greaterThanOrEqualTo(expected));
+		}
+	}
+
+}
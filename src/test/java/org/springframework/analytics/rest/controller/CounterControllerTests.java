@@ -16,6 +16,9 @@
 
 package org.springframework.analytics.rest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -23,8 +26,8 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.analytics.metrics.CounterService;
 import org.springframework.analytics.metrics.redis.RedisMetricRepository;
-import org.springframework.analytics.test.support.CounterService;
 import org.springframework.analytics.test.support.DefaultCounterService;
 import org.springframework.analytics.test.support.RedisTestSupport;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,9 +49,11 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType.HAL;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -123,6 +128,20 @@ public class CounterControllerTests {
 
 	}
 
+	@Test
+	public void testSmileFormat() throws Exception {
+		counterService.increment("foo");
+		counterService.increment("foo");
+		byte[] body = mockMvc.perform(
+				get("/metrics/counters/foo").accept(AggregateCounterController.SMILE_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(AggregateCounterController.SMILE_VALUE))
+				.andReturn().getResponse().getContentAsByteArray();
+		JsonNode counter = new ObjectMapper(new SmileFactory()).readTree(body);
+		assertThat(counter.get("name").asText(), is("foo"));
+		assertThat(counter.get("value").asLong(), is(2L));
+	}
+
 	@Configuration
 	@EnableSpringDataWebSupport
 	@EnableHypermediaSupport(type = HAL)
@@ -16,6 +16,9 @@
 
 package org.springframework.analytics.rest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -40,11 +43,16 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType.HAL;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -98,6 +106,33 @@ public class FieldValueCounterControllerTests {
 		;
 	}
 
+	@Test
+	public void testListByPrefix() throws Exception {
+		repository.increment("app.foo", "spring", 20D);
+		repository.increment("app.bar", "java", 2D);
+		repository.increment("other", "java", 2D);
+		mockMvc.perform(
+				get("/metrics/field-value-counters?prefix=app.&size=1").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.page.totalElements", is(2)))
+				.andExpect(jsonPath("$.content.*.name", contains("app.bar")))
+		;
+	}
+
+	@Test
+	public void testCborFormat() throws Exception {
+		repository.increment("foo", "spring", 20D);
+		byte[] body = mockMvc.perform(
+				get("/metrics/field-value-counters/foo").accept(AggregateCounterController.CBOR_VALUE)
+		)
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(AggregateCounterController.CBOR_VALUE))
+				.andReturn().getResponse().getContentAsByteArray();
+		JsonNode counter = new ObjectMapper(new CBORFactory()).readTree(body);
+		assertThat(counter.get("values").get("spring").asDouble(), is(20D));
+	}
+
 	@Test
 	public void testGetAndDelete() throws Exception {
 		repository.increment("foo", "spring", 20D);
@@ -126,6 +161,119 @@ public class FieldValueCounterControllerTests {
 
 	}
 
+	@Test
+	public void testConditionalGet() throws Exception {
+		repository.increment("foo", "spring", 20D);
+		String etag = mockMvc.perform(
+				get("/metrics/field-value-counters/foo").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "no-cache"))
+				.andExpect(header().string("Vary", "Accept"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo").accept(MediaType.APPLICATION_JSON).header("If-None-Match", etag)
+		)
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("Vary", "Accept"))
+				.andExpect(content().string(""))
+		;
+
+		// Other representations have other entity tags
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo").accept(AggregateCounterController.CBOR_VALUE)
+						.header("If-None-Match", etag)
+		)
+				.andExpect(status().isOk())
+		;
+
+		repository.increment("foo", "java", 2D);
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo").accept(MediaType.APPLICATION_JSON).header("If-None-Match", etag)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.values.java", is(2D)))
+		;
+	}
+
+	@Test
+	public void testGetSomeFields() throws Exception {
+		repository.increment("foo", "spring", 20D);
+		repository.increment("foo", "java", 2D);
+		repository.increment("foo", "redis", 1D);
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo?field=spring&field=redis&field=none")
+						.accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("foo")))
+				.andExpect(jsonPath("$.values.spring", is(20D)))
+				.andExpect(jsonPath("$.values.redis", is(1D)))
+				.andExpect(jsonPath("$.values.java").doesNotExist())
+				.andExpect(jsonPath("$.values.none").doesNotExist())
+		;
+	}
+
+	@Test
+	public void testGetSomeFieldsOfMissingCounter() throws Exception {
+		repository.increment("foo", "spring", 20D);
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo?field=none").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.values.none").doesNotExist());
+		mockMvc.perform(
+				get("/metrics/field-value-counters/bar?field=spring").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testPageThroughFields() throws Exception {
+		repository.increment("foo", "spring", 20D);
+		repository.increment("foo", "java", 2D);
+		repository.increment("foo", "redis", 1D);
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo/fields?page=1&size=2").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.page.totalElements", is(3)))
+				.andExpect(jsonPath("$.content.length()", is(1)))
+				.andExpect(jsonPath("$.content[0].field", is("redis")))
+				.andExpect(jsonPath("$.content[0].value", is(1D)))
+				.andExpect(jsonPath("$.content[0].rank", is(2)))
+		;
+
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo/fields/java").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.value", is(2D)))
+				.andExpect(jsonPath("$.rank", is(1)))
+		;
+
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo/fields/none").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isNotFound())
+		;
+
+		repository.increment("foo", "50% off?", 1D);
+		mockMvc.perform(
+				get("/metrics/field-value-counters/foo/fields/{field}", "50% off?").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.field", is("50% off?")))
+				.andExpect(jsonPath("$.links[0].href", endsWith("/foo/fields/50%25%20off%3F")))
+		;
+		mockMvc.perform(
+				get("/metrics/field-value-counters/bar/fields").accept(MediaType.APPLICATION_JSON)
+		)
+				.andExpect(status().isNotFound())
+		;
+	}
+
 	@Configuration
 	@EnableSpringDataWebSupport
 	@EnableHypermediaSupport(type = HAL)
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.controller;
+
+import java.util.ArrayList;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import org.springframework.analytics.metrics.AggregateCounterRepository;
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+import org.springframework.analytics.metrics.FieldValueCounterRepository;
+import org.springframework.analytics.metrics.MetricRepository;
+import org.springframework.analytics.metrics.memory.InMemoryAggregateCounterRepository;
+import org.springframework.analytics.metrics.memory.InMemoryFieldValueCounterRepository;
+import org.springframework.analytics.metrics.memory.InMemoryMetricRepository;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for {@link IngestController}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = IngestControllerTests.Config.class)
+public class IngestControllerTests {
+
+	@Autowired
+	private MetricRepository metricRepository;
+
+	@Autowired
+	private AggregateCounterRepository aggregateCounterRepository;
+
+	@Autowired
+	private FieldValueCounterRepository fieldValueCounterRepository;
+
+	@Autowired
+	private WebApplicationContext wac;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void setupMockMVC() {
+		this.mockMvc = MockMvcBuilders.webAppContextSetup(wac).build();
+	}
+
+	@After
+	public void cleanUp() {
+		Mockito.clearInvocations(aggregateCounterRepository);
+		for (Metric<?> metric : metricRepository.findAll()) {
+			metricRepository.reset(metric.getName());
+		}
+		for (String name : aggregateCounterRepository.list()) {
+			aggregateCounterRepository.reset(name);
+		}
+		for (String name : new ArrayList<>(fieldValueCounterRepository.list())) {
+			fieldValueCounterRepository.reset(name);
+		}
+	}
+
+	@Test
+	public void testIngestInBatches() throws Exception {
+		DateTime when = new DateTime(2018, 6, 1, 12, 30, 15);
+		String body = "{\"type\":\"counter\",\"name\":\"requests\"}\n"
+				+ "{\"type\":\"counter\",\"name\":\"requests\",\"amount\":2}\n"
+				+ "{\"type\":\"aggregate-counter\",\"name\":\"logins\",\"amount\":3,\"timestamp\":" + when.getMillis() + "}\n"
+				+ "\n"
+				+ "{\"type\":\"aggregate-counter\",\"name\":\"logins\",\"timestamp\":" + when.plusSeconds(20).getMillis() + "}\n"
+				+ "{\"type\":\"field-value-counter\",\"name\":\"hashtags\",\"field\":\"spring\",\"amount\":2.5}\n";
+
+		mockMvc.perform(post("/metrics/ingest").contentType(IngestController.NDJSON_VALUE).content(body))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.events").value(5))
+				.andExpect(jsonPath("$.batches.length()").value(3))
+				.andExpect(jsonPath("$.batches[0].events").value(2))
+				.andExpect(jsonPath("$.batches[0].writes").value(1))
+				.andExpect(jsonPath("$.batches[1].firstLine").value(3))
+				.andExpect(jsonPath("$.batches[1].lastLine").value(5))
+				.andExpect(jsonPath("$.batches[2].events").value(1))
+				.andExpect(jsonPath("$.error").doesNotExist());
+
+		assertThat(metricRepository.findOne("counter.requests").getValue().longValue(), is(3L));
+		long[] counts = aggregateCounterRepository.getCounts("logins",
+				new Interval(when.minusMinutes(1), when), AggregateCounterResolution.minute).getCounts();
+		assertThat(counts[counts.length - 1], is(4L));
+		assertThat(fieldValueCounterRepository.findScore("hashtags", "spring"), is(2.5D));
+	}
+
+	@Test
+	public void testMalformedLineStopsIngestion() throws Exception {
+		String body = "{\"type\":\"counter\",\"name\":\"a\"}\n"
+				+ "{\"type\":\"counter\",\"name\":\"b\"}\n"
+				+ "{\"type\":\"counter\",\"name\":\"c\"}\n"
+				+ "{\"type\":\"counter\",\n"
+				+ "{\"type\":\"counter\",\"name\":\"d\"}\n";
+
+		mockMvc.perform(post("/metrics/ingest").contentType(IngestController.NDJSON_VALUE).content(body))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.events").value(3))
+				.andExpect(jsonPath("$.batches.length()").value(2))
+				.andExpect(jsonPath("$.errorLine").value(5));
+
+		assertThat(metricRepository.findOne("counter.c").getValue().longValue(), is(1L));
+		assertThat(metricRepository.findOne("counter.d"), is(nullValue()));
+	}
+
+	@Test
+	public void testInvalidEventStopsIngestion() throws Exception {
+		String body = "{\"type\":\"counter\",\"name\":\"a\"}\n"
+				+ "{\"type\":\"field-value-counter\",\"name\":\"hashtags\"}\n";
+
+		mockMvc.perform(post("/metrics/ingest").contentType(MediaType.APPLICATION_STREAM_JSON).content(body))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.events").value(1))
+				.andExpect(jsonPath("$.error").value("field is required for field value counters"))
+				.andExpect(jsonPath("$.errorLine").value(2));
+	}
+
+	@Test
+	public void testNonFiniteAmountStopsIngestion() throws Exception {
+		String body = "{\"type\":\"field-value-counter\",\"name\":\"hashtags\",\"field\":\"spring\"}\n"
+				+ "{\"type\":\"field-value-counter\",\"name\":\"hashtags\",\"field\":\"java\",\"amount\":\"NaN\"}\n";
+
+		mockMvc.perform(post("/metrics/ingest").contentType(MediaType.APPLICATION_STREAM_JSON).content(body))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.events").value(1))
+				.andExpect(jsonPath("$.errorLine").value(2));
+
+		body = "{\"type\":\"field-value-counter\",\"name\":\"hashtags\",\"field\":\"java\",\"amount\":1e400}\n";
+		mockMvc.perform(post("/metrics/ingest").contentType(MediaType.APPLICATION_STREAM_JSON).content(body))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.errorLine").value(1));
+		assertThat(fieldValueCounterRepository.findScore("hashtags", "java"), is(nullValue()));
+	}
+
+	@Test
+	public void testFailedWriteReportsAppliedTypes() throws Exception {
+		Mockito.doThrow(new IllegalStateException("unavailable")).when(fieldValueCounterRepository)
+				.increment(Mockito.anyMap());
+		DateTime when = new DateTime(2018, 6, 1, 12, 30);
+		String body = "{\"type\":\"counter\",\"name\":\"requests\"}\n"
+				+ "{\"type\":\"field-value-counter\",\"name\":\"hashtags\",\"field\":\"spring\"}\n"
+				+ "{\"type\":\"aggregate-counter\",\"name\":\"logins\",\"timestamp\":" + when.getMillis() + "}\n";
+		try {
+			mockMvc.perform(post("/metrics/ingest").contentType(IngestController.NDJSON_VALUE).content(body))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(jsonPath("$.events").value(0))
+					.andExpect(jsonPath("$.error").value("unavailable"))
+					.andExpect(jsonPath("$.errorLine").value(1))
+					.andExpect(jsonPath("$.failedBatch.lastLine").value(2))
+					.andExpect(jsonPath("$.appliedTypes.length()").value(1))
+					.andExpect(jsonPath("$.appliedTypes[0]").value("counter"));
+		}
+		finally {
+			Mockito.reset(fieldValueCounterRepository);
+		}
+		assertThat(metricRepository.findOne("counter.requests").getValue().longValue(), is(1L));
+		assertThat(aggregateCounterRepository.exists("logins"), is(false));
+	}
+
+	@Test
+	public void testAggregateCounterEventsWrittenAtOnce() throws Exception {
+		DateTime when = new DateTime(2018, 6, 1, 12, 30);
+		String body = "{\"type\":\"aggregate-counter\",\"name\":\"logins\",\"timestamp\":" + when.getMillis() + "}\n"
+				+ "{\"type\":\"aggregate-counter\",\"name\":\"logins\",\"timestamp\":"
+				+ when.plusHours(1).getMillis() + "}\n";
+		mockMvc.perform(post("/metrics/ingest").contentType(IngestController.NDJSON_VALUE).content(body))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.batches[0].writes").value(2));
+		Mockito.verify(aggregateCounterRepository).increment(Mockito.anyMap());
+		assertThat(aggregateCounterRepository.getCounts("logins", new Interval(when, when.plusHours(2)),
+				AggregateCounterResolution.hour).getTotal(), is(2));
+	}
+
+	@Configuration
+	@EnableWebMvc
+	public static class Config {
+
+		@Bean
+		public InMemoryMetricRepository metricRepository() {
+			return new InMemoryMetricRepository();
+		}
+
+		@Bean
+		public InMemoryAggregateCounterRepository aggregateCounterRepository() {
+			return Mockito.spy(new InMemoryAggregateCounterRepository());
+		}
+
+		@Bean
+		public InMemoryFieldValueCounterRepository fieldValueCounterRepository() {
+			return Mockito.spy(new InMemoryFieldValueCounterRepository());
+		}
+
+		@Bean
+		public IngestController ingestController() {
+			IngestController controller = new IngestController(metricRepository(), aggregateCounterRepository(),
+					fieldValueCounterRepository());
+			controller.setBatchSize(2);
+			return controller;
+		}
+	}
+
+}
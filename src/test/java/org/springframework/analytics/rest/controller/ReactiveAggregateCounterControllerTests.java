@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.redis.RedisAggregateCounterRepository;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Tests for {@link ReactiveAggregateCounterController}.
+ */
+public class ReactiveAggregateCounterControllerTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	private RedisAggregateCounterRepository repository;
+
+	private ReactiveAggregateCounterController controller;
+
+	private WebTestClient client;
+
+	@Before
+	public void setUp() {
+		repository = new RedisAggregateCounterRepository(redisTestSupport.getResource(), new RetryTemplate());
+		controller = new ReactiveAggregateCounterController(repository.reactiveReader(redisTestSupport.getResource()));
+		client = WebTestClient.bindToController(controller).build();
+	}
+
+	@After
+	public void cleanUp() {
+		for (String name : repository.list()) {
+			repository.reset(name);
+		}
+	}
+
+	@Test
+	public void testDisplay() {
+		DateTime start = new DateTime(2018, 3, 1, 10, 0, DateTimeZone.UTC);
+		repository.increment("foo", 2L, start);
+		repository.increment("foo", 3L, start.plusHours(2));
+
+		client.get().uri("/metrics/aggregate-counters/foo?from={from}&to={to}&resolution=hour",
+				start.toString(), start.plusHours(2).toString())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.name").isEqualTo("foo")
+				.jsonPath("$.counts.length()").isEqualTo(3);
+
+		client.get().uri("/metrics/aggregate-counters/foo?format=compact&from={from}&to={to}&resolution=hour",
+				start.toString(), start.plusHours(2).toString())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.counts[0]").isEqualTo(2)
+				.jsonPath("$.counts[1]").isEqualTo(0)
+				.jsonPath("$.counts[2]").isEqualTo(3);
+
+		client.get().uri("/metrics/aggregate-counters/bar")
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testMaxPoints() {
+		DateTime start = new DateTime(2018, 3, 1, 10, 0, DateTimeZone.UTC);
+		repository.increment("foo", 2L, start);
+		repository.increment("foo", 3L, start.plusHours(2));
+
+		client.get().uri("/metrics/aggregate-counters/foo?from={from}&to={to}&resolution=minute&maxPoints=5",
+				start.toString(), start.plusHours(2).toString())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.counts.length()").isEqualTo(3);
+
+		client.get().uri("/metrics/aggregate-counters/foo?format=compact&from={from}&to={to}&maxPoints=1",
+				start.toString(), start.plusHours(2).toString())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.resolution").isEqualTo("day")
+				.jsonPath("$.counts[0]").isEqualTo(5);
+
+		client.get().uri("/metrics/aggregate-counters?detailed=true&from={from}&to={to}&maxPoints=1",
+				start.toString(), start.plusHours(2).toString())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content[0].counts.length()").isEqualTo(1);
+
+		client.get().uri("/metrics/aggregate-counters/foo?maxPoints=0")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testList() {
+		DateTime now = new DateTime();
+		for (String name : new String[] {"app.b", "app.a", "other", "app.c"}) {
+			repository.increment(name, 1L, now);
+		}
+
+		client.get().uri("/metrics/aggregate-counters?prefix=app.&page=1&size=2")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content.length()").isEqualTo(1)
+				.jsonPath("$.content[0].name").isEqualTo("app.c")
+				.jsonPath("$.page.totalElements").isEqualTo(3);
+
+		client.get().uri("/metrics/aggregate-counters?detailed=true&resolution=minute")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content[0].name").isEqualTo("app.a")
+				.jsonPath("$.content[1].name").isEqualTo("app.b")
+				.jsonPath("$.content[2].name").isEqualTo("app.c")
+				.jsonPath("$.content[3].name").isEqualTo("other")
+				.jsonPath("$.content[3].counts.length()").isEqualTo(60);
+
+		client.get().uri("/metrics/aggregate-counters?page=-1")
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.get().uri("/metrics/aggregate-counters?size=0")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testQueryCostGuard() {
+		DateTime now = new DateTime();
+		repository.increment("foo", 1L, now);
+		repository.increment("bar", 1L, now);
+		controller.setMaxQueryBuckets(100);
+
+		client.get().uri("/metrics/aggregate-counters/foo?resolution=minute")
+				.exchange()
+				.expectStatus().isOk();
+		client.get().uri("/metrics/aggregate-counters?detailed=true&resolution=minute")
+				.exchange()
+				.expectStatus().isBadRequest();
+		client.get().uri("/metrics/aggregate-counters/foo?resolution=minute&from={from}&to={to}",
+				new DateTime(2010, 1, 1, 0, 0).toString(), new DateTime(9999, 1, 1, 0, 0).toString())
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		controller.setMaxQueryBuckets(1000);
+		controller.setExpensiveQueryBuckets(0);
+		client.get().uri("/metrics/aggregate-counters?detailed=true&resolution=minute")
+				.exchange()
+				.expectStatus().isOk();
+	}
+
+}
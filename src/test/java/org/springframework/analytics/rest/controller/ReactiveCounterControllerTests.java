@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.redis.RedisMetricRepository;
+import org.springframework.analytics.rest.domain.Delta;
+import org.springframework.analytics.rest.domain.Metric;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Tests for {@link ReactiveCounterController}.
+ */
+public class ReactiveCounterControllerTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	private RedisMetricRepository repository;
+
+	private WebTestClient client;
+
+	@Before
+	public void setUp() {
+		repository = new RedisMetricRepository(redisTestSupport.getResource(), "test.reactive.metrics");
+		client = WebTestClient.bindToController(new ReactiveCounterController(
+				repository.reactiveReader(redisTestSupport.getResource()))).build();
+	}
+
+	@After
+	public void cleanUp() {
+		for (Metric<?> metric : repository.findAll()) {
+			repository.reset(metric.getName());
+		}
+	}
+
+	@Test
+	public void testDisplay() {
+		repository.increment(new Delta<Long>(CounterController.COUNTER_PREFIX + "foo", 3L, new Date()));
+
+		client.get().uri("/metrics/counters/foo")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.name").isEqualTo("foo")
+				.jsonPath("$.value").isEqualTo(3);
+
+		client.get().uri("/metrics/counters/bar")
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testList() {
+		for (String name : new String[] {"c", "a", "b"}) {
+			repository.increment(new Delta<Long>(CounterController.COUNTER_PREFIX + name, 1L, new Date()));
+		}
+		repository.set(new Metric<Long>("gauge.d", 1L, new Date()));
+
+		client.get().uri("/metrics/counters?page=0&size=2")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content[0].name").isEqualTo("a")
+				.jsonPath("$.content[1].name").isEqualTo("b")
+				.jsonPath("$.page.totalElements").isEqualTo(3);
+
+		client.get().uri("/metrics/counters?detailed=true&page=1&size=2")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content[0].name").isEqualTo("c")
+				.jsonPath("$.content[0].value").isEqualTo(1);
+
+		client.get().uri("/metrics/counters?page=-1")
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.get().uri("/metrics/counters?size=0")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.analytics.rest.controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.redis.RedisFieldValueCounterRepository;
+import org.springframework.analytics.test.support.RedisTestSupport;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Tests for {@link ReactiveFieldValueCounterController}.
+ */
+public class ReactiveFieldValueCounterControllerTests {
+
+	@Rule
+	public RedisTestSupport redisTestSupport = new RedisTestSupport();
+
+	private RedisFieldValueCounterRepository repository;
+
+	private WebTestClient client;
+
+	@Before
+	public void setUp() {
+		repository = new RedisFieldValueCounterRepository(redisTestSupport.getResource(),
+				"test.reactive.fieldvaluecounters.", new RetryTemplate());
+		client = WebTestClient.bindToController(new ReactiveFieldValueCounterController(
+				repository.reactiveReader(redisTestSupport.getResource()))).build();
+	}
+
+	@After
+	public void cleanUp() {
+		for (String name : repository.list()) {
+			repository.reset(name);
+		}
+	}
+
+	@Test
+	public void testDisplay() {
+		repository.increment("foo", "spring", 2);
+		repository.increment("foo", "java", 1);
+
+		client.get().uri("/metrics/field-value-counters/foo")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.name").isEqualTo("foo")
+				.jsonPath("$.values.spring").isEqualTo(2.0)
+				.jsonPath("$.values.java").isEqualTo(1.0);
+
+		client.get().uri("/metrics/field-value-counters/bar")
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testGetSomeFields() {
+		repository.increment("foo", "spring", 20);
+		repository.increment("foo", "java", 2);
+		repository.increment("foo", "redis", 1);
+
+		client.get().uri("/metrics/field-value-counters/foo?field=spring&field=redis&field=none")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.name").isEqualTo("foo")
+				.jsonPath("$.values.spring").isEqualTo(20.0)
+				.jsonPath("$.values.redis").isEqualTo(1.0)
+				.jsonPath("$.values.java").doesNotExist()
+				.jsonPath("$.values.none").doesNotExist();
+
+		client.get().uri("/metrics/field-value-counters/foo?field=none")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.values.none").doesNotExist();
+
+		client.get().uri("/metrics/field-value-counters/bar?field=spring")
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	public void testPageThroughFields() {
+		repository.increment("foo", "spring", 20);
+		repository.increment("foo", "java", 2);
+		repository.increment("foo", "redis", 1);
+
+		client.get().uri("/metrics/field-value-counters/foo/fields?page=1&size=2")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.page.totalElements").isEqualTo(3)
+				.jsonPath("$.content.length()").isEqualTo(1)
+				.jsonPath("$.content[0].field").isEqualTo("redis")
+				.jsonPath("$.content[0].value").isEqualTo(1.0)
+				.jsonPath("$.content[0].rank").isEqualTo(2);
+
+		client.get().uri("/metrics/field-value-counters/foo/fields/java")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.field").isEqualTo("java")
+				.jsonPath("$.value").isEqualTo(2.0)
+				.jsonPath("$.rank").isEqualTo(1);
+
+		client.get().uri("/metrics/field-value-counters/foo/fields/none")
+				.exchange()
+				.expectStatus().isNotFound();
+
+		client.get().uri("/metrics/field-value-counters/bar/fields")
+				.exchange()
+				.expectStatus().isNotFound();
+
+		client.get().uri("/metrics/field-value-counters/foo/fields?size=0")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void testList() {
+		for (String name : new String[] {"app.b", "app.a", "other"}) {
+			repository.increment(name, "spring", 1);
+		}
+
+		client.get().uri("/metrics/field-value-counters?prefix=app.")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.content[0].name").isEqualTo("app.a")
+				.jsonPath("$.content[1].name").isEqualTo("app.b")
+				.jsonPath("$.page.totalElements").isEqualTo(2);
+
+		client.get().uri("/metrics/field-value-counters?page=-1")
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.get().uri("/metrics/field-value-counters?size=0")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+}
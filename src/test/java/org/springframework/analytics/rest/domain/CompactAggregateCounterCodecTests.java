@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.analytics.rest.domain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.analytics.metrics.AggregateCounterResolution;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CompactAggregateCounterCodec}.
+ */
+public class CompactAggregateCounterCodecTests {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		long[] counts = { 0L, 3L, 2L, -5L, Long.MAX_VALUE, Long.MIN_VALUE, 0L };
+		CompactAggregateCounterResource resource = new CompactAggregateCounterResource("caf\u00e9", new Date(-1L),
+				AggregateCounterResolution.year, counts);
+
+		byte[] encoded = CompactAggregateCounterCodec.encode(resource);
+		CompactAggregateCounterResource decoded = CompactAggregateCounterCodec
+				.decode(new ByteArrayInputStream(encoded));
+
+		assertThat(decoded.getName(), is("caf\u00e9"));
+		assertThat(decoded.getStart(), is(new Date(-1L)));
+		assertThat(decoded.getResolution(), is(AggregateCounterResolution.year));
+		assertThat(decoded.getCounts(), is(counts));
+	}
+
+	@Test
+	public void testSmallDeltasTakeOneByteEach() {
+		long[] counts = new long[1000];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 1000000L + (i % 7);
+		}
+		CompactAggregateCounterResource resource = new CompactAggregateCounterResource("c", new Date(),
+				AggregateCounterResolution.minute, counts);
+
+		assertThat(CompactAggregateCounterCodec.encode(resource).length, lessThan(counts.length + 32));
+	}
+
+	@Test
+	public void testDecodeAll() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (String name : Arrays.asList("a", "b", "c")) {
+			CompactAggregateCounterCodec.encode(new CompactAggregateCounterResource(name, new Date(0L),
+					AggregateCounterResolution.hour, new long[] { name.charAt(0) }), out);
+		}
+
+		List<CompactAggregateCounterResource> decoded = CompactAggregateCounterCodec
+				.decodeAll(new ByteArrayInputStream(out.toByteArray()));
+
+		assertThat(decoded.size(), is(3));
+		assertThat(decoded.get(2).getName(), is("c"));
+		assertThat(decoded.get(2).getCounts()[0], is((long) 'c'));
+		assertThat(CompactAggregateCounterCodec.decode(new ByteArrayInputStream(new byte[0])), is(nullValue()));
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedRecord() throws Exception {
+		byte[] encoded = CompactAggregateCounterCodec.encode(new CompactAggregateCounterResource("c", new Date(),
+				AggregateCounterResolution.hour, new long[] { 1L, 2L, 3L }));
+
+		CompactAggregateCounterCodec.decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)));
+	}
+
+}
@@ -16,7 +16,8 @@
 
 package org.springframework.analytics.test.support;
 
-import org.springframework.analytics.metrics.redis.RedisMetricRepository;
+import org.springframework.analytics.metrics.CounterService;
+import org.springframework.analytics.metrics.MetricWriter;
 import org.springframework.analytics.rest.domain.Delta;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,7 +29,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DefaultCounterService implements CounterService {
 
-	private final RedisMetricRepository writer;
+	private final MetricWriter writer;
 
 	private final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<String, String>();
 
@@ -36,7 +37,7 @@ public class DefaultCounterService implements CounterService {
 	 * Create a {@link DefaultCounterService} instance.
 	 * @param writer the underlying writer used to manage metrics
 	 */
-	public DefaultCounterService(RedisMetricRepository writer) {
+	public DefaultCounterService(MetricWriter writer) {
 		this.writer = writer;
 	}
 